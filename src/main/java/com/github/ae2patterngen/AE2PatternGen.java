@@ -1,12 +1,16 @@
 package com.github.ae2patterngen;
 
+import com.github.ae2patterngen.network.PatternGenerationJobs;
 import com.github.ae2patterngen.proxy.CommonProxy;
+import com.github.ae2patterngen.storage.PatternStorage;
+import com.github.ae2patterngen.storage.RecipeCacheService;
 
 import cpw.mods.fml.common.Mod;
 import cpw.mods.fml.common.SidedProxy;
 import cpw.mods.fml.common.event.FMLInitializationEvent;
 import cpw.mods.fml.common.event.FMLPreInitializationEvent;
 import cpw.mods.fml.common.event.FMLServerStartingEvent;
+import cpw.mods.fml.common.event.FMLServerStoppingEvent;
 
 @Mod(
     modid = AE2PatternGen.MODID,
@@ -40,4 +44,13 @@ public class AE2PatternGen {
     public void serverStarting(FMLServerStartingEvent event) {
         event.registerServerCommand(new com.github.ae2patterngen.command.CommandPatternGen());
     }
+
+    @Mod.EventHandler
+    public void serverStopping(FMLServerStoppingEvent event) {
+        // The server thread is stopping, so background scans and cache rebuilds are pointless
+        PatternGenerationJobs.cancelAll();
+        RecipeCacheService.cancelCacheBuild();
+        // Flush pattern storage synchronously before the world unloads; the next world may use another save directory
+        PatternStorage.closeAll();
+    }
 }
@@ -13,9 +13,15 @@ import net.minecraft.util.EnumChatFormatting;
 
 import com.github.ae2patterngen.encoder.PatternEncoder;
 import com.github.ae2patterngen.filter.CompositeFilter;
+import com.github.ae2patterngen.filter.ParallelRecipeFilter;
 import com.github.ae2patterngen.filter.RecipeFilterFactory;
+import com.github.ae2patterngen.network.GenerationJobStats;
+import com.github.ae2patterngen.network.PatternGenerationJobs;
+import com.github.ae2patterngen.recipe.ComputeStats;
 import com.github.ae2patterngen.recipe.GTRecipeSource;
 import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.storage.PatternStorage;
+import com.github.ae2patterngen.storage.PatternStorageStats;
 import com.github.ae2patterngen.util.I18nUtil;
 
 /**
@@ -39,7 +45,7 @@ public class CommandPatternGen extends CommandBase {
 
     @Override
     public String getCommandUsage(ICommandSender sender) {
-        return "/patterngen <list|generate|count> [recipeMapId] [outputFilter] [inputFilter] [ncFilter] [blacklistInput] [blacklistOutput]";
+        return "/patterngen <list|generate|count|jobs|storage|stats> [recipeMapId] [outputFilter] [inputFilter] [ncFilter] [blacklistInput] [blacklistOutput]";
     }
 
     @Override
@@ -66,6 +72,15 @@ public class CommandPatternGen extends CommandBase {
             case "count":
                 handleCount(sender, args);
                 break;
+            case "jobs":
+                handleJobs(sender);
+                break;
+            case "storage":
+                handleStorage(sender);
+                break;
+            case "stats":
+                handleStats(sender);
+                break;
             default:
                 sendHelp(sender);
                 break;
@@ -77,6 +92,64 @@ public class CommandPatternGen extends CommandBase {
         send(sender, EnumChatFormatting.YELLOW, "ae2patterngen.command.help.list");
         send(sender, EnumChatFormatting.YELLOW, "ae2patterngen.command.help.count");
         send(sender, EnumChatFormatting.YELLOW, "ae2patterngen.command.help.generate");
+        send(sender, EnumChatFormatting.YELLOW, "ae2patterngen.command.help.jobs");
+        send(sender, EnumChatFormatting.YELLOW, "ae2patterngen.command.help.storage");
+        send(sender, EnumChatFormatting.YELLOW, "ae2patterngen.command.help.stats");
+    }
+
+    private void handleJobs(ICommandSender sender) {
+        GenerationJobStats stats = PatternGenerationJobs.getStats();
+        send(
+            sender,
+            EnumChatFormatting.GOLD,
+            "ae2patterngen.command.jobs.stats",
+            stats.running,
+            stats.queued,
+            stats.peakQueued,
+            stats.started,
+            stats.rejected,
+            stats.getAverageWaitMillis(),
+            stats.getMaxWaitMillis());
+    }
+
+    private void handleStorage(ICommandSender sender) {
+        PatternStorageStats stats = PatternStorage.getStats();
+        send(
+            sender,
+            EnumChatFormatting.GOLD,
+            "ae2patterngen.command.storage.stats",
+            stats.cachedPlayers,
+            stats.dirtyPlayers,
+            stats.pendingMutations,
+            stats.flushes,
+            stats.failedFlushes,
+            stats.getAverageFlushMillis(),
+            stats.getMaxFlushMillis(),
+            stats.getAverageLatencyMillis(),
+            stats.getMaxLatencyMillis());
+    }
+
+    private void handleStats(ICommandSender sender) {
+        send(
+            sender,
+            EnumChatFormatting.GOLD,
+            "ae2patterngen.command.stats.collection",
+            GTRecipeSource.getCollectionCacheSize(),
+            GTRecipeSource.getCollectionCacheHits(),
+            GTRecipeSource.getCollectionCacheMisses(),
+            GTRecipeSource.getCollectionCacheEvictions());
+        for (Map.Entry<String, ComputeStats> entry : GTRecipeSource.getCollectionComputeStats()
+            .entrySet()) {
+            ComputeStats stats = entry.getValue();
+            send(
+                sender,
+                EnumChatFormatting.GRAY,
+                "ae2patterngen.command.stats.collection_entry",
+                entry.getKey(),
+                stats.getComputeCount(),
+                stats.getLastMillis(),
+                stats.getAverageMillis());
+        }
     }
 
     private void handleList(ICommandSender sender) {
@@ -197,14 +270,13 @@ public class CommandPatternGen extends CommandBase {
             -1);
 
         // 4. 应用过滤
-        List<RecipeEntry> filtered = new java.util.ArrayList<>();
-        for (RecipeEntry recipe : recipes) {
-            if (filter.matches(recipe)) {
-                filtered.add(recipe);
-            }
-        }
+        List<RecipeEntry> filtered = ParallelRecipeFilter.filter(recipes, filter);
 
         send(sender, EnumChatFormatting.GRAY, "ae2patterngen.command.filter_result", totalBefore, filtered.size());
+        if (filter.isEvaluationOrderAdapted()) {
+            String order = filter.describeEvaluationOrder();
+            send(sender, EnumChatFormatting.GRAY, "ae2patterngen.command.filter_order", order);
+        }
 
         return filtered;
     }
@@ -18,6 +18,9 @@ public final class ForgeConfig {
     private static final String CATEGORY_UI_RECIPE_PICKER = "ui.recipePicker";
     private static final String CATEGORY_STORAGE = "storage";
     private static final String CATEGORY_ITEMS = "items";
+    private static final String CATEGORY_RECIPE_CACHE = "recipeCache";
+    private static final String CATEGORY_FILTER = "filter";
+    private static final String CATEGORY_GENERATION = "generation";
 
     // ========== 冲突处理配置 ==========
     private static final int MIN_CONFLICT_BATCH_SIZE = 1;
@@ -61,9 +64,47 @@ public final class ForgeConfig {
     // ========== 存储配置 ==========
     private static final String DEFAULT_STORAGE_DIRECTORY_NAME = "ae2patterngen";
     private static final String DEFAULT_RECIPE_CACHE_DIRECTORY_NAME = "recipe_cache";
+    private static final int DEFAULT_STORAGE_FLUSH_DELAY_MILLIS = 1000;
+    private static final int DEFAULT_STORAGE_CACHE_IDLE_SECONDS = 300;
+    private static final int DEFAULT_STORAGE_IO_THREADS = 2;
 
     private static volatile String storageDirectoryName = DEFAULT_STORAGE_DIRECTORY_NAME;
     private static volatile String recipeCacheDirectoryName = DEFAULT_RECIPE_CACHE_DIRECTORY_NAME;
+    private static volatile int storageFlushDelayMillis = DEFAULT_STORAGE_FLUSH_DELAY_MILLIS;
+    private static volatile int storageCacheIdleSeconds = DEFAULT_STORAGE_CACHE_IDLE_SECONDS;
+    private static volatile int storageIoThreads = DEFAULT_STORAGE_IO_THREADS;
+
+    // ========== 配方缓存配置 ==========
+    private static final int DEFAULT_MEMORY_CACHE_MAX_RECIPES = 100000;
+    private static final int DEFAULT_CACHE_REBUILD_WORKERS = 2;
+    private static final int DEFAULT_FILTER_CACHE_MAX_RECIPES = 50000;
+    private static final int DEFAULT_FILTER_CACHE_TTL_SECONDS = 300;
+    private static final int DEFAULT_QUERY_CACHE_TTL_SECONDS = 60;
+
+    private static volatile int memoryCacheMaxRecipes = DEFAULT_MEMORY_CACHE_MAX_RECIPES;
+    private static volatile int cacheRebuildWorkers = DEFAULT_CACHE_REBUILD_WORKERS;
+    private static volatile boolean recipeIndexEnabled = true;
+    private static volatile int filterCacheMaxRecipes = DEFAULT_FILTER_CACHE_MAX_RECIPES;
+    private static volatile int filterCacheTtlSeconds = DEFAULT_FILTER_CACHE_TTL_SECONDS;
+    private static volatile int queryCacheTtlSeconds = DEFAULT_QUERY_CACHE_TTL_SECONDS;
+
+    // ========== 过滤配置 ==========
+    private static final int DEFAULT_ADAPTIVE_FILTER_SAMPLE_SIZE = 256;
+
+    private static final int DEFAULT_PARALLEL_FILTER_THRESHOLD = 20000;
+
+    private static volatile int adaptiveFilterSampleSize = DEFAULT_ADAPTIVE_FILTER_SAMPLE_SIZE;
+    private static volatile int parallelFilterThreshold = DEFAULT_PARALLEL_FILTER_THRESHOLD;
+    private static volatile int parallelFilterThreads = 0;
+
+    // ========== 后台生成配置 ==========
+    private static final int DEFAULT_GENERATION_WORKERS = 2;
+    private static final int DEFAULT_GENERATION_MAX_QUEUED_JOBS = 16;
+    private static final int DEFAULT_GENERATION_DEADLINE_SECONDS = 120;
+
+    private static volatile int generationWorkers = DEFAULT_GENERATION_WORKERS;
+    private static volatile int generationMaxQueuedJobs = DEFAULT_GENERATION_MAX_QUEUED_JOBS;
+    private static volatile int generationDeadlineSeconds = DEFAULT_GENERATION_DEADLINE_SECONDS;
 
     // ========== 物品兼容性配置 ==========
     private static final String DEFAULT_ENCODED_PATTERN_ID = "appliedenergistics2:item.ItemEncodedPattern";
@@ -82,6 +123,9 @@ public final class ForgeConfig {
             loadDuplicateConfig(cfg);
             loadUIConfig(cfg);
             loadStorageConfig(cfg);
+            loadRecipeCacheConfig(cfg);
+            loadFilterConfig(cfg);
+            loadGenerationConfig(cfg);
             loadItemsConfig(cfg);
 
         } catch (RuntimeException e) {
@@ -221,6 +265,139 @@ public final class ForgeConfig {
             DEFAULT_RECIPE_CACHE_DIRECTORY_NAME,
             "Name of the subdirectory used for persisted recipe cache files (under the storage directory). / 持久化配方缓存文件使用的子目录名称（位于样板存储目录下）。");
         recipeCacheDirectoryName = configuredRecipeCacheDirectoryName;
+
+        storageFlushDelayMillis = cfg.getInt(
+            "flushDelayMillis",
+            CATEGORY_STORAGE,
+            DEFAULT_STORAGE_FLUSH_DELAY_MILLIS,
+            0,
+            60000,
+            "Delay in milliseconds before pattern storage changes are written to disk; changes within the window are merged into one write. / 样板仓储变更写入磁盘前的延迟（毫秒），窗口内的多次变更合并为一次写入。");
+
+        storageCacheIdleSeconds = cfg.getInt(
+            "cacheIdleSeconds",
+            CATEGORY_STORAGE,
+            DEFAULT_STORAGE_CACHE_IDLE_SECONDS,
+            10,
+            86400,
+            "Seconds a player's pattern storage stays cached in memory after its last access. / 玩家样板仓储在最后一次访问后保留在内存中的秒数。");
+
+        storageIoThreads = cfg.getInt(
+            "ioThreads",
+            CATEGORY_STORAGE,
+            DEFAULT_STORAGE_IO_THREADS,
+            1,
+            8,
+            "Background threads that load and update pattern storage off the server thread. Operations of one player always run in order. Takes effect after restart. / 在服务器主线程之外加载与更新样板仓储的后台线程数。同一玩家的操作始终按顺序执行。重启后生效。");
+    }
+
+    private static void loadRecipeCacheConfig(Configuration cfg) {
+        int configuredMemoryCacheMaxRecipes = cfg.getInt(
+            "memoryCacheMaxRecipes",
+            CATEGORY_RECIPE_CACHE,
+            DEFAULT_MEMORY_CACHE_MAX_RECIPES,
+            0,
+            2000000,
+            "Maximum number of decoded recipes kept in memory across cached recipe maps. 0 disables the in-memory cache. / 内存中保留的已解码配方总数上限（跨所有配方表）。0 表示禁用内存缓存。");
+        memoryCacheMaxRecipes = configuredMemoryCacheMaxRecipes;
+
+        int configuredRebuildWorkers = cfg.getInt(
+            "rebuildWorkers",
+            CATEGORY_RECIPE_CACHE,
+            DEFAULT_CACHE_REBUILD_WORKERS,
+            1,
+            16,
+            "Worker threads used to hash and write recipe maps during a cache rebuild. Recipes are always read on the server thread. 1 = sequential. / 重建配方缓存时用于计算哈希与写盘的工作线程数。配方本身始终在服务器主线程读取。1 表示串行。");
+        cacheRebuildWorkers = configuredRebuildWorkers;
+
+        recipeIndexEnabled = cfg.getBoolean(
+            "recipeIndexEnabled",
+            CATEGORY_RECIPE_CACHE,
+            true,
+            "Index in-memory recipe maps by input/output item and ore name so selective item filters skip non-matching recipes. / 为内存中的配方表建立输入/输出物品与矿辞索引，使选择性物品筛选跳过不可能匹配的配方。");
+
+        int configuredFilterCacheMaxRecipes = cfg.getInt(
+            "filterCacheMaxRecipes",
+            CATEGORY_RECIPE_CACHE,
+            DEFAULT_FILTER_CACHE_MAX_RECIPES,
+            0,
+            2000000,
+            "Maximum total number of recipes held in cached filter results. Least recently used results are dropped first. / 已缓存的过滤结果中配方总数上限，超出时优先淘汰最久未使用的结果。");
+        filterCacheMaxRecipes = configuredFilterCacheMaxRecipes;
+
+        int configuredFilterCacheTtl = cfg.getInt(
+            "filterCacheTtlSeconds",
+            CATEGORY_RECIPE_CACHE,
+            DEFAULT_FILTER_CACHE_TTL_SECONDS,
+            0,
+            86400,
+            "Seconds a cached filter result stays valid. 0 = until the recipe cache is rebuilt or cleared. / 过滤结果缓存的有效秒数。0 表示保留到配方缓存重建或清空为止。");
+        filterCacheTtlSeconds = configuredFilterCacheTtl;
+
+        int configuredQueryCacheTtl = cfg.getInt(
+            "queryCacheTtlSeconds",
+            CATEGORY_RECIPE_CACHE,
+            DEFAULT_QUERY_CACHE_TTL_SECONDS,
+            0,
+            600,
+            "Seconds a preview result is kept so a following generate with identical parameters reuses it. 0 disables. / 预览结果的保留秒数，参数相同的后续生成请求可直接复用。0 表示禁用。");
+        queryCacheTtlSeconds = configuredQueryCacheTtl;
+    }
+
+    private static void loadFilterConfig(Configuration cfg) {
+        int configuredSampleSize = cfg.getInt(
+            "adaptiveSampleSize",
+            CATEGORY_FILTER,
+            DEFAULT_ADAPTIVE_FILTER_SAMPLE_SIZE,
+            0,
+            65536,
+            "Number of recipes used to measure each filter's rejection rate and cost before reordering filters for the rest of the scan. 0 keeps the fixed order. / 重排过滤器前用于测量各过滤器拒绝率与耗时的配方数量，其余配方按测得的顺序求值。0 表示保持固定顺序。");
+        adaptiveFilterSampleSize = configuredSampleSize;
+
+        int configuredParallelThreshold = cfg.getInt(
+            "parallelThreshold",
+            CATEGORY_FILTER,
+            DEFAULT_PARALLEL_FILTER_THRESHOLD,
+            0,
+            10000000,
+            "Recipe lists at least this large are filtered in parallel chunks. 0 disables parallel filtering. / 配方数量达到该值时分块并行过滤。0 表示禁用并行过滤。");
+        parallelFilterThreshold = configuredParallelThreshold;
+
+        int configuredParallelThreads = cfg.getInt(
+            "parallelThreads",
+            CATEGORY_FILTER,
+            0,
+            0,
+            64,
+            "Worker threads used for parallel filtering. 0 = CPU cores - 1. Values below 2 keep filtering on one thread. Read once on first use. / 并行过滤使用的工作线程数。0 表示 CPU 核心数 - 1；小于 2 时仍单线程过滤。首次使用时读取。");
+        parallelFilterThreads = configuredParallelThreads;
+    }
+
+    private static void loadGenerationConfig(Configuration cfg) {
+        int configuredWorkers = cfg.getInt(
+            "workers",
+            CATEGORY_GENERATION,
+            DEFAULT_GENERATION_WORKERS,
+            1,
+            8,
+            "Worker threads that load, filter and group recipes for preview/generate requests off the server thread. This is also the global limit of concurrently running jobs. Read once on first use. / 在服务器主线程之外为预览/生成请求读取、过滤与分组配方的工作线程数，同时也是全局并发任务上限。首次使用时读取。");
+        int configuredMaxQueuedJobs = cfg.getInt(
+            "maxQueuedJobs",
+            CATEGORY_GENERATION,
+            DEFAULT_GENERATION_MAX_QUEUED_JOBS,
+            0,
+            256,
+            "Maximum number of preview/generate jobs waiting for a free worker. Further requests are rejected. Read once on first use. / 等待空闲工作线程的预览/生成任务上限，超出时拒绝新请求。首次使用时读取。");
+        int configuredDeadlineSeconds = cfg.getInt(
+            "requestDeadlineSeconds",
+            CATEGORY_GENERATION,
+            DEFAULT_GENERATION_DEADLINE_SECONDS,
+            0,
+            3600,
+            "Maximum time in seconds a preview/generate job may spend loading, filtering and encoding recipes before it is aborted. Time spent waiting in the queue is not counted. Set to 0 to disable. / 单个预览/生成任务读取、过滤与编码配方的最长时间（秒），超时即中止，排队时间不计入。设为 0 表示不限制。");
+        generationWorkers = configuredWorkers;
+        generationMaxQueuedJobs = configuredMaxQueuedJobs;
+        generationDeadlineSeconds = configuredDeadlineSeconds;
     }
 
     private static void loadItemsConfig(Configuration cfg) {
@@ -288,6 +465,66 @@ public final class ForgeConfig {
         return recipeCacheDirectoryName;
     }
 
+    public static int getStorageFlushDelayMillis() {
+        return storageFlushDelayMillis;
+    }
+
+    public static int getStorageCacheIdleSeconds() {
+        return storageCacheIdleSeconds;
+    }
+
+    public static int getStorageIoThreads() {
+        return storageIoThreads;
+    }
+
+    public static int getMemoryCacheMaxRecipes() {
+        return memoryCacheMaxRecipes;
+    }
+
+    public static int getCacheRebuildWorkers() {
+        return cacheRebuildWorkers;
+    }
+
+    public static boolean isRecipeIndexEnabled() {
+        return recipeIndexEnabled;
+    }
+
+    public static int getFilterCacheMaxRecipes() {
+        return filterCacheMaxRecipes;
+    }
+
+    public static int getFilterCacheTtlSeconds() {
+        return filterCacheTtlSeconds;
+    }
+
+    public static int getQueryCacheTtlSeconds() {
+        return queryCacheTtlSeconds;
+    }
+
+    public static int getAdaptiveFilterSampleSize() {
+        return adaptiveFilterSampleSize;
+    }
+
+    public static int getParallelFilterThreshold() {
+        return parallelFilterThreshold;
+    }
+
+    public static int getParallelFilterThreads() {
+        return parallelFilterThreads;
+    }
+
+    public static int getGenerationWorkers() {
+        return generationWorkers;
+    }
+
+    public static int getGenerationMaxQueuedJobs() {
+        return generationMaxQueuedJobs;
+    }
+
+    public static int getGenerationDeadlineSeconds() {
+        return generationDeadlineSeconds;
+    }
+
     public static String getEncodedPatternId() {
         return encodedPatternId;
     }
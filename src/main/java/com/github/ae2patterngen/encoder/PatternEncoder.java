@@ -11,6 +11,7 @@ import net.minecraftforge.fluids.FluidStack;
 
 import com.github.ae2patterngen.config.ForgeConfig;
 import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.util.CancellationToken;
 
 /**
  * AE2 样板编码器 — 将 RecipeEntry 转为 AE2 编码样板 ItemStack
@@ -19,6 +20,9 @@ import com.github.ae2patterngen.recipe.RecipeEntry;
  */
 public class PatternEncoder {
 
+    /** 批量编码时的取消检查间隔 (配方数) */
+    private static final int CANCEL_CHECK_INTERVAL = 64;
+
     /** 缓存 AE2FC 是否可用 */
     private static Boolean ae2fcAvailable = null;
 
@@ -87,8 +91,21 @@ public class PatternEncoder {
     }
 
     public static List<ItemStack> encodeBatch(List<RecipeEntry> recipes) {
+        return encodeBatch(recipes, CancellationToken.NONE);
+    }
+
+    /**
+     * 批量编码，每 {@value #CANCEL_CHECK_INTERVAL} 条配方检查一次取消令牌。
+     *
+     * @throws CancellationToken.CancelledException 令牌被取消或超时
+     */
+    public static List<ItemStack> encodeBatch(List<RecipeEntry> recipes, CancellationToken token) {
         List<ItemStack> patterns = new ArrayList<>();
+        int encoded = 0;
         for (RecipeEntry recipe : recipes) {
+            if (encoded++ % CANCEL_CHECK_INTERVAL == 0) {
+                token.throwIfCancelled();
+            }
             ItemStack pattern = encode(recipe);
             if (pattern != null) {
                 patterns.add(pattern);
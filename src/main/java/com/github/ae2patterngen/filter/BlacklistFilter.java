@@ -1,8 +1,8 @@
 package com.github.ae2patterngen.filter;
 
-import net.minecraft.item.ItemStack;
-
 import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.recipe.RecipeRecordView;
+import com.github.ae2patterngen.recipe.RecipeSummary;
 
 /**
  * 黑名单过滤器 — 如果配方包含匹配项，则拒绝。
@@ -32,28 +32,29 @@ public class BlacklistFilter implements IRecipeFilter {
             return true;
         }
 
-        if (checkInputs && containsMatch(recipe.inputs)) {
+        RecipeSummary summary = recipe.getSummary();
+        if (checkInputs && matcher.matchesAny(recipe.inputs, summary.inputItems, null)) {
             return false;
         }
 
-        if (checkOutputs && containsMatch(recipe.outputs)) {
+        if (checkOutputs && matcher.matchesAny(recipe.outputs, summary.outputItems, null)) {
             return false;
         }
 
         return true;
     }
 
-    private boolean containsMatch(ItemStack[] stacks) {
-        if (stacks == null || stacks.length == 0) {
-            return false;
+    @Override
+    public boolean mayMatch(RecipeRecordView record) {
+        if (matcher.isDisabled() || !matcher.isIdOnly()) {
+            return true;
         }
 
-        for (ItemStack stack : stacks) {
-            if (matcher.matches(stack)) {
-                return true;
-            }
+        if (checkInputs && matcher.matchesAnyId(record, RecipeRecordView.Slot.INPUT, false)) {
+            return false;
         }
-        return false;
+
+        return !(checkOutputs && matcher.matchesAnyId(record, RecipeRecordView.Slot.OUTPUT, false));
     }
 
     @Override
@@ -1,35 +1,121 @@
 package com.github.ae2patterngen.filter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.recipe.RecipeIndex;
+import com.github.ae2patterngen.recipe.RecipeRecordView;
 
 /**
  * 组合过滤器 — 所有子过滤器必须同时满足 (AND)
+ * <p>
+ * 启用自适应模式后，前 N 条配方会对每个子过滤器全部求值，统计拒绝次数与耗时；采样结束后按
+ * "每纳秒拒绝数" 从高到低重排子过滤器，其余配方按新顺序短路求值。结果与固定顺序完全一致，只影响开销。
  */
 public class CompositeFilter implements IRecipeFilter {
 
     private final List<IRecipeFilter> filters = new ArrayList<>();
 
+    private int adaptiveSampleSize;
+    private final AtomicInteger sampleTickets = new AtomicInteger();
+    private final AtomicInteger completedSamples = new AtomicInteger();
+    private LongAdder[] rejections = new LongAdder[0];
+    private LongAdder[] elapsedNanos = new LongAdder[0];
+    private volatile IRecipeFilter[] evaluationOrder;
+
     public CompositeFilter() {}
 
     public void addFilter(IRecipeFilter filter) {
         if (filter != null) {
             filters.add(filter);
+            resetAdaptiveState();
         }
     }
 
     public void clearFilters() {
         filters.clear();
+        resetAdaptiveState();
     }
 
     public List<IRecipeFilter> getFilters() {
         return filters;
     }
 
+    /**
+     * 启用自适应排序。
+     *
+     * @param sampleSize 用于测量的配方数量，&lt;= 0 表示关闭 (保持添加顺序)
+     */
+    public void setAdaptiveSampleSize(int sampleSize) {
+        this.adaptiveSampleSize = Math.max(0, sampleSize);
+        resetAdaptiveState();
+    }
+
+    public int getAdaptiveSampleSize() {
+        return adaptiveSampleSize;
+    }
+
+    /**
+     * 采样是否已完成并确定了新的求值顺序。
+     */
+    public boolean isEvaluationOrderAdapted() {
+        return evaluationOrder != null;
+    }
+
+    /**
+     * 当前的求值顺序 (供诊断)；采样完成前为添加顺序。
+     */
+    public List<IRecipeFilter> getEvaluationOrder() {
+        IRecipeFilter[] order = evaluationOrder;
+        return order != null ? Collections.unmodifiableList(Arrays.asList(order))
+            : Collections.unmodifiableList(new ArrayList<IRecipeFilter>(filters));
+    }
+
+    /**
+     * 以 "描述 (拒绝数/耗时ns)" 形式输出当前求值顺序与采样统计。
+     */
+    public String describeEvaluationOrder() {
+        List<IRecipeFilter> order = getEvaluationOrder();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < order.size(); i++) {
+            IRecipeFilter filter = order.get(i);
+            if (i > 0) sb.append(" -> ");
+            sb.append(filter.getDescription());
+            int slot = filters.indexOf(filter);
+            if (slot >= 0 && slot < rejections.length && completedSamples.get() > 0) {
+                sb.append(" (")
+                    .append(rejections[slot].sum())
+                    .append('/')
+                    .append(elapsedNanos[slot].sum())
+                    .append("ns)");
+            }
+        }
+        return sb.toString();
+    }
+
     @Override
     public boolean matches(RecipeEntry recipe) {
+        IRecipeFilter[] order = evaluationOrder;
+        if (order != null) {
+            for (IRecipeFilter filter : order) {
+                if (!filter.matches(recipe)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        if (adaptiveSampleSize > 0 && filters.size() > 1 && sampleTickets.getAndIncrement() < adaptiveSampleSize) {
+            return sampleMatches(recipe);
+        }
+
         for (IRecipeFilter filter : filters) {
             if (!filter.matches(recipe)) {
                 return false;
@@ -38,6 +124,97 @@ public class CompositeFilter implements IRecipeFilter {
         return true;
     }
 
+    private boolean sampleMatches(RecipeEntry recipe) {
+        boolean matched = true;
+        for (int i = 0; i < filters.size(); i++) {
+            long start = System.nanoTime();
+            boolean accepted = filters.get(i)
+                .matches(recipe);
+            elapsedNanos[i].add(System.nanoTime() - start);
+            if (!accepted) {
+                rejections[i].increment();
+                matched = false;
+            }
+        }
+        if (completedSamples.incrementAndGet() == adaptiveSampleSize) {
+            evaluationOrder = rankByRejectionsPerNano();
+        }
+        return matched;
+    }
+
+    private IRecipeFilter[] rankByRejectionsPerNano() {
+        final int count = filters.size();
+        final double[] score = new double[count];
+        Integer[] slots = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            slots[i] = Integer.valueOf(i);
+            score[i] = rejections[i].sum() / (double) Math.max(1L, elapsedNanos[i].sum());
+        }
+        // 稳定排序: 得分相同 (如均未拒绝) 时保持原有优先级
+        Arrays.sort(slots, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(score[b.intValue()], score[a.intValue()]);
+            }
+        });
+        IRecipeFilter[] order = new IRecipeFilter[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = filters.get(slots[i].intValue());
+        }
+        return order;
+    }
+
+    private void resetAdaptiveState() {
+        int count = filters.size();
+        rejections = new LongAdder[count];
+        elapsedNanos = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            rejections[i] = new LongAdder();
+            elapsedNanos[i] = new LongAdder();
+        }
+        sampleTickets.set(0);
+        completedSamples.set(0);
+        evaluationOrder = null;
+    }
+
+    @Override
+    public boolean mayMatch(RecipeRecordView record) {
+        for (IRecipeFilter filter : filters) {
+            if (!filter.mayMatch(record)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public BitSet selectCandidates(RecipeIndex index) {
+        BitSet candidates = null;
+        for (IRecipeFilter filter : filters) {
+            BitSet selected = filter.selectCandidates(index);
+            if (selected == null) {
+                continue;
+            }
+            if (candidates == null) {
+                candidates = selected;
+            } else {
+                candidates.and(selected);
+            }
+        }
+        return candidates;
+    }
+
+    @Override
+    public boolean canSelectCandidates() {
+        for (IRecipeFilter filter : filters) {
+            if (filter.canSelectCandidates()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public String getDescription() {
         if (filters.isEmpty()) return "无过滤条件";
@@ -1,16 +1,25 @@
 package com.github.ae2patterngen.filter;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
 
+import com.github.ae2patterngen.recipe.RecipeIndex;
+import com.github.ae2patterngen.recipe.RecipeRecordView;
+import com.github.ae2patterngen.recipe.RecipeSummary;
 import com.github.ae2patterngen.util.ItemStackUtil;
 import com.github.ae2patterngen.util.OreDictUtil;
 
@@ -29,6 +38,10 @@ import com.github.ae2patterngen.util.OreDictUtil;
 public class ExplicitStackMatcher {
 
     private static final String[] EMPTY_STRINGS = new String[0];
+    private static final int[] EMPTY_INTS = new int[0];
+    private static final Supplier<String[]> DEFAULT_ORE_NAME_TABLE = OreDictUtil::getAllOreNamesSafe;
+
+    private static volatile Supplier<String[]> oreNameTable = DEFAULT_ORE_NAME_TABLE;
 
     private final String source;
     private final boolean disabled;
@@ -76,12 +89,37 @@ public class ExplicitStackMatcher {
             return false;
         }
 
-        final int itemId = Item.getIdFromItem(item);
-        final int meta = stack.getItemDamage();
+        return matchesStack(stack, Item.getIdFromItem(item), stack.getItemDamage());
+    }
+
+    /**
+     * Whether any stack matches. Id and meta come from the packed {@link RecipeSummary} arrays; the ItemStack is only
+     * touched when ore-dictionary or display-name rules need it.
+     *
+     * @param mask when not {@code null}, only slots whose mask entry is {@code true} are checked
+     */
+    public boolean matchesAny(ItemStack[] stacks, long[] packedItems, boolean[] mask) {
+        if (disabled || invalid) {
+            return false;
+        }
+        for (int i = 0; i < packedItems.length; i++) {
+            long packed = packedItems[i];
+            if (packed == RecipeSummary.ABSENT_ITEM || (mask != null && !mask[i])) {
+                continue;
+            }
+            if (matchesStack(stacks[i], RecipeSummary.itemId(packed), RecipeSummary.meta(packed))) {
+                return true;
+            }
+        }
+        return false;
+    }
 
+    private boolean matchesStack(final ItemStack stack, int itemId, int meta) {
         return matches(
             itemId,
             meta,
+            () -> stackCache.getOrCreate(stack)
+                .getOreIds(),
             () -> stackCache.getOrCreate(stack)
                 .getOreNames(),
             () -> stackCache.getOrCreate(stack)
@@ -103,10 +141,72 @@ public class ExplicitStackMatcher {
         return matchPlan.matches(itemId, meta, oreNamesSupplier, displayNameSupplier);
     }
 
+    /**
+     * When ore ids are supplied, ore-only and mixed rules are checked against a precompiled ore id bitmap instead of
+     * running the regexes over each ore name.
+     */
+    boolean matches(int itemId, int meta, Supplier<int[]> oreIdsSupplier, Supplier<String[]> oreNamesSupplier,
+        Supplier<String> displayNameSupplier) {
+        if (disabled || invalid) {
+            return false;
+        }
+        return matchPlan.matches(itemId, meta, oreIdsSupplier, oreNamesSupplier, displayNameSupplier);
+    }
+
+    /**
+     * With only {@code [id:meta]} rules, matching can run directly on the item ids of undecoded records.
+     */
+    boolean isIdOnly() {
+        return !disabled && !invalid && matchPlan instanceof IdOnlyMatchPlan;
+    }
+
+    boolean matchesAnyId(RecipeRecordView record, RecipeRecordView.Slot slot, boolean zeroSizeOnly) {
+        int count = record.getItemCount(slot);
+        for (int i = 0; i < count; i++) {
+            if (zeroSizeOnly && record.getStackSize(slot, i) != 0) {
+                continue;
+            }
+            int itemId = record.getItemId(slot, i);
+            if (itemId >= 0 && matchPlan.matches(itemId, record.getItemMeta(slot, i), null, null)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolves {@code [id:meta]} and {@code (regex)} rules into candidate recipe ordinals on the inverted index.
+     *
+     * @return a superset of the matching ordinals, or {@code null} when display-name rules are present or the slot is
+     *         not indexed
+     */
+    BitSet selectCandidates(RecipeIndex index, RecipeRecordView.Slot slot) {
+        if (disabled || invalid || index == null || !index.isIndexed(slot)) {
+            return null;
+        }
+        return matchPlan.selectCandidates(index, slot);
+    }
+
+    /**
+     * @return whether the rules can be resolved on the inverted index (no display-name rules); when {@code false} no
+     *         index needs to be built for this matcher
+     */
+    boolean canSelectCandidates() {
+        return !disabled && !invalid && matchPlan.canSelectCandidates();
+    }
+
     String getSource() {
         return source;
     }
 
+    static void setOreNameTable(Supplier<String[]> table) {
+        oreNameTable = table != null ? table : oreNameTable;
+    }
+
+    static void resetOreNameTable() {
+        oreNameTable = DEFAULT_ORE_NAME_TABLE;
+    }
+
     private static ParsedRules parseRules(String source) {
         List<IdRule> idRules = new ArrayList<IdRule>();
         List<RegexRule> oreDictRules = new ArrayList<RegexRule>();
@@ -249,27 +349,134 @@ public class ExplicitStackMatcher {
 
     /**
      * Global cache shared across all ExplicitStackMatcher instances.
-     * Item info (ore names, display name) is computed once and reused across all recipes.
+     * Item info (ore names, display name) is computed once per (item, meta, NBT) and reused across all recipes and
+     * across freshly decoded stack instances.
+     * <p>
+     * Reads are lock-free {@link ConcurrentHashMap} lookups. When the size bound is exceeded one thread sweeps the
+     * map with a second-chance (CLOCK) policy: entries read since the last sweep survive once, the rest are evicted.
      */
     static final class GlobalStackMatchCache {
 
-        private static final IdentityHashMap<ItemStack, StackMatchData> GLOBAL_CACHE = new IdentityHashMap<ItemStack, StackMatchData>();
+        static final int DEFAULT_MAX_ENTRIES = 32768;
 
-        private static final Object CACHE_LOCK = new Object();
+        private final int maxEntries;
+        private final ConcurrentHashMap<StackKey, StackMatchData> entries = new ConcurrentHashMap<StackKey, StackMatchData>();
+        private final AtomicBoolean evicting = new AtomicBoolean();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
 
-        /**
-         * Get or create cached item data from global cache.
-         * Thread-safe - uses synchronized to prevent duplicate computation.
-         */
-        private StackMatchData getOrCreate(ItemStack stack) {
-            synchronized (CACHE_LOCK) {
-                StackMatchData data = GLOBAL_CACHE.get(stack);
-                if (data == null) {
-                    data = new StackMatchData(stack);
-                    GLOBAL_CACHE.put(stack, data);
-                }
+        GlobalStackMatchCache(int maxEntries) {
+            this.maxEntries = Math.max(1, maxEntries);
+        }
+
+        StackMatchData getOrCreate(ItemStack stack) {
+            StackKey key = new StackKey(stack, stack.getTagCompound());
+            StackMatchData data = entries.get(key);
+            if (data != null) {
+                data.referenced = true;
+                hits.increment();
                 return data;
             }
+
+            misses.increment();
+            ItemStack snapshot = stack.copy();
+            StackMatchData created = new StackMatchData(snapshot);
+            StackMatchData existing = entries.putIfAbsent(new StackKey(snapshot, snapshot.getTagCompound()), created);
+            if (existing != null) {
+                return existing;
+            }
+            if (entries.size() > maxEntries) {
+                evictOverflow();
+            }
+            return created;
+        }
+
+        private void evictOverflow() {
+            if (!evicting.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                int target = maxEntries - maxEntries / 8;
+                for (int pass = 0; pass < 2 && entries.size() > target; pass++) {
+                    Iterator<Map.Entry<StackKey, StackMatchData>> iterator = entries.entrySet()
+                        .iterator();
+                    while (iterator.hasNext() && entries.size() > target) {
+                        StackMatchData data = iterator.next()
+                            .getValue();
+                        if (data.referenced && pass == 0) {
+                            data.referenced = false;
+                            continue;
+                        }
+                        iterator.remove();
+                        evictions.increment();
+                    }
+                }
+            } finally {
+                evicting.set(false);
+            }
+        }
+
+        int size() {
+            return entries.size();
+        }
+
+        long getHits() {
+            return hits.sum();
+        }
+
+        long getMisses() {
+            return misses.sum();
+        }
+
+        long getEvictions() {
+            return evictions.sum();
+        }
+
+        void clear() {
+            entries.clear();
+            hits.reset();
+            misses.reset();
+            evictions.reset();
+        }
+    }
+
+    /**
+     * Cache key: item id + meta + NBT. The NBT hash is precomputed; equality still compares the compound itself so a
+     * hash collision never shares ore/display data between different stacks.
+     */
+    private static final class StackKey {
+
+        private final Item item;
+        private final int meta;
+        private final NBTTagCompound tag;
+        private final int hash;
+
+        private StackKey(ItemStack stack, NBTTagCompound tag) {
+            this.item = stack.getItem();
+            this.meta = stack.getItemDamage();
+            this.tag = tag;
+            int nbtHash = tag != null ? tag.hashCode() : 0;
+            this.hash = (System.identityHashCode(item) * 31 + meta) * 31 + nbtHash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof StackKey)) {
+                return false;
+            }
+            StackKey key = (StackKey) other;
+            return hash == key.hash && item == key.item
+                && meta == key.meta
+                && (tag != null ? tag.equals(key.tag) : key.tag == null);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
         }
     }
 
@@ -279,22 +486,41 @@ public class ExplicitStackMatcher {
      */
     static final class StackMatchCache {
 
-        private static final GlobalStackMatchCache GLOBAL = new GlobalStackMatchCache();
+        private static final GlobalStackMatchCache GLOBAL = new GlobalStackMatchCache(
+            GlobalStackMatchCache.DEFAULT_MAX_ENTRIES);
 
         private StackMatchData getOrCreate(ItemStack stack) {
             return GLOBAL.getOrCreate(stack);
         }
     }
 
-    private static final class StackMatchData {
+    public static long getStackCacheHits() {
+        return StackMatchCache.GLOBAL.getHits();
+    }
+
+    public static long getStackCacheMisses() {
+        return StackMatchCache.GLOBAL.getMisses();
+    }
+
+    public static long getStackCacheEvictions() {
+        return StackMatchCache.GLOBAL.getEvictions();
+    }
+
+    public static int getStackCacheSize() {
+        return StackMatchCache.GLOBAL.size();
+    }
+
+    static final class StackMatchData {
 
         private final ItemStack stack;
         private final int itemId;
         private final int meta;
-        private String[] oreNames;
-        private String displayName;
-        private boolean oreNamesLoaded;
-        private boolean displayNameLoaded;
+        private volatile boolean referenced;
+        // Lazy fields may be read by several filter threads at once; they are published through volatile references and
+        // null means not computed yet
+        private volatile int[] oreIds;
+        private volatile String[] oreNames;
+        private volatile String displayName;
 
         private StackMatchData(ItemStack stack) {
             this.stack = stack;
@@ -317,20 +543,33 @@ public class ExplicitStackMatcher {
             return meta;
         }
 
+        public int[] getOreIds() {
+            int[] loaded = oreIds;
+            if (loaded == null) {
+                loaded = OreDictUtil.getOreIdsSafe(stack);
+                oreIds = loaded;
+            }
+            return loaded;
+        }
+
         public String[] getOreNames() {
-            if (!oreNamesLoaded) {
-                oreNames = OreDictUtil.getOreNamesSafe(stack);
-                oreNamesLoaded = true;
+            String[] loaded = oreNames;
+            if (loaded == null) {
+                loaded = OreDictUtil.getOreNamesSafe(stack);
+                loaded = loaded != null ? loaded : EMPTY_STRINGS;
+                oreNames = loaded;
             }
-            return oreNames != null ? oreNames : EMPTY_STRINGS;
+            return loaded;
         }
 
         public String getDisplayName() {
-            if (!displayNameLoaded) {
-                displayName = ItemStackUtil.getSafeDisplayName(stack);
-                displayNameLoaded = true;
+            String loaded = displayName;
+            if (loaded == null) {
+                loaded = ItemStackUtil.getSafeDisplayName(stack);
+                loaded = loaded != null ? loaded : "";
+                displayName = loaded;
             }
-            return displayName != null ? displayName : "";
+            return loaded;
         }
     }
 
@@ -438,6 +677,130 @@ public class ExplicitStackMatcher {
 
         boolean matches(int itemId, int meta, Supplier<String[]> oreNamesSupplier,
             Supplier<String> displayNameSupplier);
+
+        default boolean matches(int itemId, int meta, Supplier<int[]> oreIdsSupplier,
+            Supplier<String[]> oreNamesSupplier, Supplier<String> displayNameSupplier) {
+            return matches(itemId, meta, oreNamesSupplier, displayNameSupplier);
+        }
+
+        default BitSet selectCandidates(RecipeIndex index, RecipeRecordView.Slot slot) {
+            return null;
+        }
+
+        default boolean canSelectCandidates() {
+            return false;
+        }
+    }
+
+    /**
+     * Compiles {@code (regex)} rules once into an ore id bitmap over {@link OreDictUtil#getAllOreNamesSafe()}.
+     * <p>
+     * Ore ids only grow, so an id beyond the bitmap means new ore names were registered and the rules are recompiled
+     * against the current table. When the ore table is unavailable, names are matched one by one with the regexes.
+     */
+    private static final class OreIdRules {
+
+        private final List<RegexRule> rules;
+        private volatile CompiledOreIds compiled;
+
+        private OreIdRules(List<RegexRule> rules) {
+            this.rules = rules;
+        }
+
+        private boolean matches(Supplier<int[]> oreIdsSupplier, Supplier<String[]> oreNamesSupplier) {
+            if (oreIdsSupplier != null) {
+                int[] oreIds = oreIdsSupplier.get();
+                CompiledOreIds table = compiledFor(oreIds != null ? oreIds : EMPTY_INTS);
+                if (table != null) {
+                    return table.matchesAny(oreIds != null ? oreIds : EMPTY_INTS);
+                }
+            }
+            return matchesNames(oreNamesSupplier != null ? oreNamesSupplier.get() : null);
+        }
+
+        private boolean matchesNames(String[] oreNames) {
+            for (RegexRule rule : rules) {
+                if (rule.matchesAny(oreNames)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private CompiledOreIds compiledFor(int[] oreIds) {
+            CompiledOreIds current = compiled;
+            if (current != null && current.covers(oreIds)) {
+                return current;
+            }
+
+            String[] oreNamesById = oreNameTable.get();
+            if (oreNamesById == null) {
+                return null;
+            }
+            BitSet bits = new BitSet(oreNamesById.length);
+            for (int oreId = 0; oreId < oreNamesById.length; oreId++) {
+                for (RegexRule rule : rules) {
+                    if (rule.matches(oreNamesById[oreId])) {
+                        bits.set(oreId);
+                        break;
+                    }
+                }
+            }
+            current = new CompiledOreIds(bits, oreNamesById.length);
+            compiled = current;
+            return current.covers(oreIds) ? current : null;
+        }
+    }
+
+    private static final class CompiledOreIds {
+
+        private final BitSet matchingIds;
+        private final int oreCount;
+
+        private CompiledOreIds(BitSet matchingIds, int oreCount) {
+            this.matchingIds = matchingIds;
+            this.oreCount = oreCount;
+        }
+
+        private boolean covers(int[] oreIds) {
+            for (int oreId : oreIds) {
+                if (oreId >= oreCount) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matchesAny(int[] oreIds) {
+            for (int oreId : oreIds) {
+                if (oreId >= 0 && matchingIds.get(oreId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static void collectIdCandidates(BitSet target, List<IdRule> idRules, RecipeIndex index,
+        RecipeRecordView.Slot slot) {
+        for (IdRule rule : idRules) {
+            RecipeIndex.union(
+                target,
+                rule.meta == null ? index.itemPostings(slot, rule.itemId)
+                    : index.itemPostings(slot, rule.itemId, rule.meta.intValue()));
+        }
+    }
+
+    private static void collectOreCandidates(BitSet target, List<RegexRule> oreDictRules, RecipeIndex index,
+        RecipeRecordView.Slot slot) {
+        for (String oreName : index.getOreNames(slot)) {
+            for (RegexRule rule : oreDictRules) {
+                if (rule.matches(oreName)) {
+                    RecipeIndex.union(target, index.orePostings(slot, oreName));
+                    break;
+                }
+            }
+        }
     }
 
     private abstract static class BaseMatchPlan implements MatchPlan {
@@ -479,26 +842,52 @@ public class ExplicitStackMatcher {
             }
             return false;
         }
+
+        @Override
+        public BitSet selectCandidates(RecipeIndex index, RecipeRecordView.Slot slot) {
+            BitSet candidates = new BitSet(index.size());
+            collectIdCandidates(candidates, idRules, index, slot);
+            return candidates;
+        }
+
+        @Override
+        public boolean canSelectCandidates() {
+            return true;
+        }
     }
 
     private static final class OreOnlyMatchPlan extends BaseMatchPlan {
 
         private final List<RegexRule> oreDictRules;
+        private final OreIdRules oreIdRules;
 
         private OreOnlyMatchPlan(List<RegexRule> oreDictRules) {
             this.oreDictRules = oreDictRules;
+            this.oreIdRules = new OreIdRules(oreDictRules);
         }
 
         @Override
         public boolean matches(int itemId, int meta, Supplier<String[]> oreNamesSupplier,
             Supplier<String> displayNameSupplier) {
-            String[] oreNames = getOreNames(oreNamesSupplier);
-            for (RegexRule rule : oreDictRules) {
-                if (rule.matchesAny(oreNames)) {
-                    return true;
-                }
-            }
-            return false;
+            return oreIdRules.matchesNames(getOreNames(oreNamesSupplier));
+        }
+
+        @Override
+        public boolean matches(int itemId, int meta, Supplier<int[]> oreIdsSupplier,
+            Supplier<String[]> oreNamesSupplier, Supplier<String> displayNameSupplier) {
+            return oreIdRules.matches(oreIdsSupplier, oreNamesSupplier);
+        }
+
+        @Override
+        public BitSet selectCandidates(RecipeIndex index, RecipeRecordView.Slot slot) {
+            BitSet candidates = new BitSet(index.size());
+            collectOreCandidates(candidates, oreDictRules, index, slot);
+            return candidates;
+        }
+
+        @Override
+        public boolean canSelectCandidates() {
+            return true;
         }
     }
 
@@ -528,29 +917,32 @@ public class ExplicitStackMatcher {
         private final List<IdRule> idRules;
         private final List<RegexRule> oreDictRules;
         private final List<RegexRule> displayNameRules;
+        private final OreIdRules oreIdRules;
 
         private MixedMatchPlan(List<IdRule> idRules, List<RegexRule> oreDictRules, List<RegexRule> displayNameRules) {
             this.idRules = idRules;
             this.oreDictRules = oreDictRules;
             this.displayNameRules = displayNameRules;
+            this.oreIdRules = new OreIdRules(oreDictRules);
         }
 
         @Override
         public boolean matches(int itemId, int meta, Supplier<String[]> oreNamesSupplier,
             Supplier<String> displayNameSupplier) {
+            return matches(itemId, meta, null, oreNamesSupplier, displayNameSupplier);
+        }
+
+        @Override
+        public boolean matches(int itemId, int meta, Supplier<int[]> oreIdsSupplier,
+            Supplier<String[]> oreNamesSupplier, Supplier<String> displayNameSupplier) {
             for (IdRule rule : idRules) {
                 if (rule.matches(itemId, meta)) {
                     return true;
                 }
             }
 
-            if (!oreDictRules.isEmpty()) {
-                String[] oreNames = getOreNames(oreNamesSupplier);
-                for (RegexRule rule : oreDictRules) {
-                    if (rule.matchesAny(oreNames)) {
-                        return true;
-                    }
-                }
+            if (!oreDictRules.isEmpty() && oreIdRules.matches(oreIdsSupplier, oreNamesSupplier)) {
+                return true;
             }
 
             if (!displayNameRules.isEmpty()) {
@@ -564,6 +956,22 @@ public class ExplicitStackMatcher {
 
             return false;
         }
+
+        @Override
+        public BitSet selectCandidates(RecipeIndex index, RecipeRecordView.Slot slot) {
+            if (!displayNameRules.isEmpty()) {
+                return null;
+            }
+            BitSet candidates = new BitSet(index.size());
+            collectIdCandidates(candidates, idRules, index, slot);
+            collectOreCandidates(candidates, oreDictRules, index, slot);
+            return candidates;
+        }
+
+        @Override
+        public boolean canSelectCandidates() {
+            return displayNameRules.isEmpty();
+        }
     }
 
     private static final class ParseResult {
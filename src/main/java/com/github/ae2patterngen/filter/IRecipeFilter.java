@@ -1,6 +1,10 @@
 package com.github.ae2patterngen.filter;
 
+import java.util.BitSet;
+
 import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.recipe.RecipeIndex;
+import com.github.ae2patterngen.recipe.RecipeRecordView;
 
 /**
  * 配方过滤器接口
@@ -15,6 +19,31 @@ public interface IRecipeFilter {
      */
     boolean matches(RecipeEntry recipe);
 
+    /**
+     * 基于未解码记录的快速预判，用于跳过必然被拒绝的配方。
+     * <p>
+     * 返回 false 表示 {@link #matches} 一定为 false；返回 true 仍需调用 {@link #matches} 确认。
+     */
+    default boolean mayMatch(RecipeRecordView record) {
+        return true;
+    }
+
+    /**
+     * 基于配方表倒排索引选出候选配方序号，避免逐条扫描。
+     * <p>
+     * 返回集合必须是 {@link #matches} 为 true 的序号的超集；返回 null 表示无法用索引缩小范围。
+     */
+    default BitSet selectCandidates(RecipeIndex index) {
+        return null;
+    }
+
+    /**
+     * 是否含有可在倒排索引上解析的规则。返回 false 时 {@link #selectCandidates} 一定返回 null，调用方无需构建索引。
+     */
+    default boolean canSelectCandidates() {
+        return false;
+    }
+
     /**
      * 过滤器描述（用于 GUI 显示）
      */
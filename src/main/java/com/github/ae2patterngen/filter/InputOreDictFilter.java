@@ -1,8 +1,10 @@
 package com.github.ae2patterngen.filter;
 
-import net.minecraft.item.ItemStack;
+import java.util.BitSet;
 
 import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.recipe.RecipeIndex;
+import com.github.ae2patterngen.recipe.RecipeRecordView;
 
 /**
  * 按输入物品的统一显式筛选语法进行匹配。
@@ -27,12 +29,25 @@ public class InputOreDictFilter implements IRecipeFilter {
             return true;
         }
 
-        for (ItemStack input : recipe.inputs) {
-            if (input != null && matcher.matches(input)) {
-                return true;
-            }
+        return matcher.matchesAny(recipe.inputs, recipe.getSummary().inputItems, null);
+    }
+
+    @Override
+    public boolean mayMatch(RecipeRecordView record) {
+        if (matcher.isDisabled() || !matcher.isIdOnly()) {
+            return true;
         }
-        return false;
+        return matcher.matchesAnyId(record, RecipeRecordView.Slot.INPUT, false);
+    }
+
+    @Override
+    public BitSet selectCandidates(RecipeIndex index) {
+        return matcher.selectCandidates(index, RecipeRecordView.Slot.INPUT);
+    }
+
+    @Override
+    public boolean canSelectCandidates() {
+        return matcher.canSelectCandidates();
     }
 
     @Override
@@ -1,8 +1,8 @@
 package com.github.ae2patterngen.filter;
 
-import net.minecraft.item.ItemStack;
-
 import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.recipe.RecipeRecordView;
+import com.github.ae2patterngen.recipe.RecipeSummary;
 
 /**
  * 按 NC（不消耗）物品的统一显式筛选语法进行匹配。
@@ -27,19 +27,19 @@ public class NCItemFilter implements IRecipeFilter {
             return true;
         }
 
-        for (ItemStack item : recipe.specialItems) {
-            if (item != null && matcher.matches(item)) {
-                return true;
-            }
-        }
+        RecipeSummary summary = recipe.getSummary();
+        return matcher.matchesAny(recipe.specialItems, summary.specialItems, null)
+            || matcher.matchesAny(recipe.inputs, summary.inputItems, summary.ncInputs);
+    }
 
-        for (ItemStack item : recipe.inputs) {
-            if (item != null && item.stackSize == 0 && matcher.matches(item)) {
-                return true;
-            }
+    @Override
+    public boolean mayMatch(RecipeRecordView record) {
+        if (matcher.isDisabled() || !matcher.isIdOnly()) {
+            return true;
         }
 
-        return false;
+        return matcher.matchesAnyId(record, RecipeRecordView.Slot.SPECIAL, false)
+            || matcher.matchesAnyId(record, RecipeRecordView.Slot.INPUT, true);
     }
 
     @Override
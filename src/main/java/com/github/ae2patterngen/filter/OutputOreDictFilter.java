@@ -1,8 +1,10 @@
 package com.github.ae2patterngen.filter;
 
-import net.minecraft.item.ItemStack;
+import java.util.BitSet;
 
 import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.recipe.RecipeIndex;
+import com.github.ae2patterngen.recipe.RecipeRecordView;
 
 /**
  * 按输出物品的统一显式筛选语法进行匹配。
@@ -27,12 +29,25 @@ public class OutputOreDictFilter implements IRecipeFilter {
             return true;
         }
 
-        for (ItemStack output : recipe.outputs) {
-            if (output != null && matcher.matches(output)) {
-                return true;
-            }
+        return matcher.matchesAny(recipe.outputs, recipe.getSummary().outputItems, null);
+    }
+
+    @Override
+    public boolean mayMatch(RecipeRecordView record) {
+        if (matcher.isDisabled() || !matcher.isIdOnly()) {
+            return true;
         }
-        return false;
+        return matcher.matchesAnyId(record, RecipeRecordView.Slot.OUTPUT, false);
+    }
+
+    @Override
+    public BitSet selectCandidates(RecipeIndex index) {
+        return matcher.selectCandidates(index, RecipeRecordView.Slot.OUTPUT);
+    }
+
+    @Override
+    public boolean canSelectCandidates() {
+        return matcher.canSelectCandidates();
     }
 
     @Override
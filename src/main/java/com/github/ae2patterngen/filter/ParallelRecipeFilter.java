@@ -0,0 +1,160 @@
+package com.github.ae2patterngen.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.ae2patterngen.config.ForgeConfig;
+import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.util.CancellationToken;
+
+/**
+ * 大配方列表的并行过滤 — 按块拆分到独立的 fork/join 线程池求值，结果保持原有顺序。
+ * <p>
+ * 低于阈值或只有一个工作线程时退化为单线程循环。过滤器需线程安全: 物品匹配缓存为并发结构，
+ * {@link CompositeFilter} 的自适应统计使用原子计数。传入 {@link CancellationToken} 时每
+ * {@value #CANCEL_CHECK_INTERVAL} 条配方检查一次，取消后抛出 {@link CancellationToken.CancelledException}，out 不变。
+ */
+public final class ParallelRecipeFilter {
+
+    /** 每块最少配方数，避免任务拆分开销超过求值本身 */
+    private static final int MIN_CHUNK_SIZE = 512;
+    /** 取消检查间隔 (配方数) */
+    static final int CANCEL_CHECK_INTERVAL = 256;
+
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger(1);
+    private static volatile ForkJoinPool pool;
+
+    private ParallelRecipeFilter() {}
+
+    public static List<RecipeEntry> filter(List<RecipeEntry> recipes, IRecipeFilter filter) {
+        List<RecipeEntry> matched = new ArrayList<RecipeEntry>();
+        filterInto(recipes, filter, matched);
+        return matched;
+    }
+
+    /**
+     * 将满足过滤条件的配方按原顺序追加到 out。
+     */
+    public static void filterInto(List<RecipeEntry> recipes, IRecipeFilter filter, List<RecipeEntry> out) {
+        filterInto(recipes, filter, out, CancellationToken.NONE);
+    }
+
+    public static void filterInto(List<RecipeEntry> recipes, IRecipeFilter filter, List<RecipeEntry> out,
+        CancellationToken token) {
+        filterInto(recipes, filter, out, ForgeConfig.getParallelFilterThreshold(), token);
+    }
+
+    static void filterInto(List<RecipeEntry> recipes, IRecipeFilter filter, List<RecipeEntry> out, int threshold) {
+        filterInto(recipes, filter, out, threshold, CancellationToken.NONE);
+    }
+
+    static void filterInto(List<RecipeEntry> recipes, IRecipeFilter filter, List<RecipeEntry> out, int threshold,
+        CancellationToken token) {
+        boolean parallel = threshold > 0 && recipes.size() >= threshold;
+        filterInto(recipes, filter, out, parallel ? pool() : null, token);
+    }
+
+    static void filterInto(List<RecipeEntry> recipes, IRecipeFilter filter, List<RecipeEntry> out,
+        ForkJoinPool workers) {
+        filterInto(recipes, filter, out, workers, CancellationToken.NONE);
+    }
+
+    /**
+     * @param workers 并行线程池，为 null 时单线程过滤
+     */
+    static void filterInto(List<RecipeEntry> recipes, IRecipeFilter filter, List<RecipeEntry> out,
+        ForkJoinPool workers, CancellationToken token) {
+        int size = recipes.size();
+        boolean[] keep = new boolean[size];
+        if (workers == null) {
+            for (int i = 0; i < size; i++) {
+                if (i % CANCEL_CHECK_INTERVAL == 0) {
+                    token.throwIfCancelled();
+                }
+                keep[i] = filter.matches(recipes.get(i));
+            }
+        } else {
+            int chunkSize = Math.max(MIN_CHUNK_SIZE, size / (workers.getParallelism() * 4) + 1);
+            workers.invoke(new FilterChunk(recipes, filter, keep, 0, size, chunkSize, token));
+            // 被取消的块会提前返回，keep 不完整
+            token.throwIfCancelled();
+        }
+        for (int i = 0; i < size; i++) {
+            if (keep[i]) {
+                out.add(recipes.get(i));
+            }
+        }
+    }
+
+    /**
+     * @return 共享线程池；配置的线程数不足 2 时返回 null
+     */
+    private static ForkJoinPool pool() {
+        ForkJoinPool current = pool;
+        if (current != null) {
+            return current;
+        }
+        int threads = ForgeConfig.getParallelFilterThreads();
+        if (threads <= 0) {
+            threads = Runtime.getRuntime()
+                .availableProcessors() - 1;
+        }
+        if (threads < 2) {
+            return null;
+        }
+        synchronized (ParallelRecipeFilter.class) {
+            if (pool == null) {
+                pool = new ForkJoinPool(threads, p -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                    thread.setName("AE2PatternGen-Filter-" + THREAD_IDS.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }, null, false);
+            }
+            return pool;
+        }
+    }
+
+    private static final class FilterChunk extends RecursiveAction {
+
+        private final List<RecipeEntry> recipes;
+        private final IRecipeFilter filter;
+        private final boolean[] keep;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final CancellationToken token;
+
+        private FilterChunk(List<RecipeEntry> recipes, IRecipeFilter filter, boolean[] keep, int from, int to,
+            int chunkSize, CancellationToken token) {
+            this.recipes = recipes;
+            this.filter = filter;
+            this.keep = keep;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.token = token;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    if ((i - from) % CANCEL_CHECK_INTERVAL == 0 && token.isCancelled()) {
+                        return;
+                    }
+                    keep[i] = filter.matches(recipes.get(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(
+                new FilterChunk(recipes, filter, keep, from, mid, chunkSize, token),
+                new FilterChunk(recipes, filter, keep, mid, to, chunkSize, token));
+        }
+    }
+}
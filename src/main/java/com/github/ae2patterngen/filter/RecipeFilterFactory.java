@@ -1,5 +1,7 @@
 package com.github.ae2patterngen.filter;
 
+import com.github.ae2patterngen.config.ForgeConfig;
+
 /**
  * Builds the shared recipe filter pipeline used by GUI preview, commands, and network requests.
  */
@@ -40,6 +42,8 @@ public final class RecipeFilterFactory {
             filter.addFilter(new InputOreDictFilter(inputOreDict, stackMatchCache));
         }
 
+        // This is only the initial order; after sampling, filters are reordered by measured rejection rate and cost
+        filter.setAdaptiveSampleSize(ForgeConfig.getAdaptiveFilterSampleSize());
         return filter;
     }
 
@@ -1,6 +1,8 @@
 package com.github.ae2patterngen.filter;
 
 import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.recipe.RecipeRecordView;
+import com.github.ae2patterngen.recipe.RecipeSummary;
 
 /**
  * 电压等级过滤器
@@ -21,22 +23,16 @@ public class TierFilter implements IRecipeFilter {
         if (targetTier < 0) return true; // Any
 
         // 仅保留完全匹配所选电压等级的配方，避免重复生成低等级或无法处理高等级
-        return getTier(recipe.euPerTick) == targetTier;
+        return recipe.getSummary().tier == targetTier;
     }
 
     @Override
-    public String getDescription() {
-        return "Tier=" + targetTier;
+    public boolean mayMatch(RecipeRecordView record) {
+        return targetTier < 0 || RecipeSummary.tierOf(record.getEuPerTick()) == targetTier;
     }
 
-    private int getTier(long euPerTick) {
-        if (euPerTick <= 0) return -1;
-        long threshold = 8;
-        int tier = 0;
-        while (euPerTick > threshold) {
-            threshold *= 4;
-            tier++;
-        }
-        return tier;
+    @Override
+    public String getDescription() {
+        return "Tier=" + targetTier;
     }
 }
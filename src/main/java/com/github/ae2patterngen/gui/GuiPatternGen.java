@@ -9,6 +9,7 @@ import net.minecraft.util.EnumChatFormatting;
 import com.github.ae2patterngen.config.ForgeConfig;
 import com.github.ae2patterngen.item.ItemPatternGenerator;
 import com.github.ae2patterngen.network.NetworkHandler;
+import com.github.ae2patterngen.network.PacketCancelGeneration;
 import com.github.ae2patterngen.network.PacketCreateCache;
 import com.github.ae2patterngen.network.PacketGeneratePatterns;
 import com.github.ae2patterngen.network.PacketPreviewRecipeCount;
@@ -327,8 +328,17 @@ public class GuiPatternGen {
 
         TextWidget btnGenerateText = new TextWidget(I18nUtil.tr("ae2patterngen.gui.pattern_gen.button.generate"));
         btnGenerateText.setPos(btnGBX + 10, btnY + 6);
+        // The button turns into cancel while a server-side generate job runs (preview jobs don't count)
+        btnGenerateText.setStringSupplier(
+            () -> GuiPatternGenStatusBridge.isGenerateInProgress()
+                ? I18nUtil.tr("ae2patterngen.gui.pattern_gen.button.cancel_job")
+                : I18nUtil.tr("ae2patterngen.gui.pattern_gen.button.generate"));
 
         btnGenerate.setOnClick((cd, w) -> {
+            if (GuiPatternGenStatusBridge.isGenerateInProgress()) {
+                NetworkHandler.INSTANCE.sendToServer(new PacketCancelGeneration());
+                return;
+            }
             if (tfRecipeMap.getText()
                 .isEmpty()) {
                 GuiPatternGenStatusBridge
@@ -352,6 +362,12 @@ public class GuiPatternGen {
         builder.widget(btnGenerateText);
 
         buildContext.addCloseListener(saveFunction);
+        // Closing the screen discards the result, so the server can stop scanning
+        buildContext.addCloseListener(() -> {
+            if (GuiPatternGenStatusBridge.isJobInProgress()) {
+                NetworkHandler.INSTANCE.sendToServer(new PacketCancelGeneration());
+            }
+        });
 
         return builder.build();
     }
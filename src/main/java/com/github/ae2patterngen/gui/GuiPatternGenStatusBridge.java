@@ -8,6 +8,12 @@ import com.github.ae2patterngen.util.I18nUtil;
 public final class GuiPatternGenStatusBridge {
 
     private static volatile String statusText = "";
+    /** Id of the server-side background job, or 0 when none is in progress. */
+    private static volatile long activeJobId;
+    /** Whether the current job is waiting in the server-side queue. */
+    private static volatile boolean activeJobQueued;
+    /** Whether the current job is a generate job rather than a preview. */
+    private static volatile boolean activeJobGenerate;
 
     private GuiPatternGenStatusBridge() {}
 
@@ -15,6 +21,47 @@ public final class GuiPatternGenStatusBridge {
         statusText = status != null ? status : "";
     }
 
+    public static void jobQueued(long jobId, boolean generate) {
+        activeJobId = jobId;
+        activeJobQueued = true;
+        activeJobGenerate = generate;
+    }
+
+    /**
+     * @return whether the job was queued before
+     */
+    public static boolean jobStarted(long jobId, boolean generate) {
+        boolean wasQueued = activeJobId == jobId && activeJobQueued;
+        activeJobId = jobId;
+        activeJobQueued = false;
+        activeJobGenerate = generate;
+        return wasQueued;
+    }
+
+    /**
+     * @return whether the finished job was the current one (late notices for older jobs are ignored)
+     */
+    public static boolean jobEnded(long jobId) {
+        if (activeJobId != jobId) {
+            return false;
+        }
+        activeJobId = 0L;
+        activeJobQueued = false;
+        activeJobGenerate = false;
+        return true;
+    }
+
+    public static boolean isJobInProgress() {
+        return activeJobId != 0L;
+    }
+
+    /**
+     * @return whether a generate job is queued or running (preview jobs don't count)
+     */
+    public static boolean isGenerateInProgress() {
+        return activeJobId != 0L && activeJobGenerate;
+    }
+
     public static String getStatus() {
         if (statusText == null || statusText.isEmpty()) {
             return I18nUtil.tr("ae2patterngen.gui.pattern_gen.status.ready");
@@ -156,56 +156,51 @@ public class ItemPatternGenerator extends Item implements INetworkEncodable, IWi
 
         // 执行原有导出逻辑
         UUID uuid = player.getUniqueID();
-        if (PatternStorage.isEmpty(uuid)) {
+        PatternStorage.StorageSummary storageSummary = PatternStorage.peekSummary(uuid);
+        if (storageSummary.count == 0) {
             player.addChatMessage(msg(EnumChatFormatting.YELLOW, "ae2patterngen.msg.item.storage_empty_export"));
             return true;
         }
 
-        IInventory inv = insertTarget.inventory;
-        PatternStorage.StorageSummary storageSummary = PatternStorage.getSummary(uuid);
-        List<ItemStack> patterns = PatternStorage.load(uuid);
-        List<ItemStack> remainingPatterns = new ArrayList<>(patterns.size());
-        int transferred = 0;
-        List<InsertAttemptPlan> insertPlans = buildInsertPlans(inv, side, insertTarget.preferredSlots);
-
-        for (int i = 0; i < patterns.size(); i++) {
-            ItemStack pattern = patterns.get(i);
-            if (tryInsertPattern(inv, pattern, insertPlans)) {
-                transferred++;
-            } else {
-                remainingPatterns.add(pattern);
-                // No slot can accept this pattern now; keep all remaining entries untouched.
-                for (int j = i + 1; j < patterns.size(); j++) {
-                    remainingPatterns.add(patterns.get(j));
-                }
-                break;
-            }
-        }
-
-        // 更新存储
-        if (remainingPatterns.isEmpty()) {
-            PatternStorage.clear(uuid);
-        } else {
-            if (!PatternStorage.save(uuid, remainingPatterns, storageSummary.source)) {
+        // 仓储在后台线程加载，放入容器回到主线程执行，此时只剩内存操作
+        PatternStorage.onServerThread(PatternStorage.preloadAsync(uuid), (loaded, error) -> {
+            if (error != null) {
                 player.addChatMessage(msg(EnumChatFormatting.RED, "ae2patterngen.msg.item.storage_update_failed"));
-                return true;
+                return;
             }
+            // 加载期间方块可能已被破坏或替换
+            if (te.isInvalid() || world.getTileEntity(x, y, z) != te) {
+                return;
+            }
+            exportToInventory(player, uuid, insertTarget, side);
+        });
+
+        return true; // 消费事件
+    }
+
+    private static void exportToInventory(EntityPlayer player, UUID uuid, PatternInsertTarget insertTarget, int side) {
+        IInventory inv = insertTarget.inventory;
+        List<InsertAttemptPlan> insertPlans = buildInsertPlans(inv, side, insertTarget.preferredSlots);
+        // 只从头部取出实际放入的样板，遇到第一个放不下的样板即停止，其余样板不动
+        int transferred = PatternStorage.drainHead(uuid, pattern -> tryInsertPattern(inv, pattern, insertPlans));
+        if (transferred < 0) {
+            player.addChatMessage(msg(EnumChatFormatting.RED, "ae2patterngen.msg.item.storage_update_failed"));
+            return;
         }
 
         inv.markDirty();
 
-        if (!remainingPatterns.isEmpty()) {
+        int remaining = PatternStorage.peekSummary(uuid).count;
+        if (remaining > 0) {
             player.addChatMessage(
                 msg(
                     EnumChatFormatting.GREEN,
                     "ae2patterngen.msg.item.exported_with_remaining",
                     transferred,
-                    remainingPatterns.size()));
+                    remaining));
         } else {
             player.addChatMessage(msg(EnumChatFormatting.GREEN, "ae2patterngen.msg.item.exported", transferred));
         }
-
-        return true; // 消费事件
     }
 
     private static RecipeMap<?> resolveRecipeMap(IMetaTileEntity mte) {
@@ -0,0 +1,17 @@
+package com.github.ae2patterngen.network;
+
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.PlayerEvent;
+
+/**
+ * FML 事件: 玩家下线时取消其排队中或进行中的预览/生成任务，避免为已离开的玩家继续扫描配方。
+ */
+public class GenerationJobEvents {
+
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        if (event.player != null) {
+            PatternGenerationJobs.cancelSilently(event.player.getUniqueID());
+        }
+    }
+}
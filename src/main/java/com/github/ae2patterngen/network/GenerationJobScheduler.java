@@ -0,0 +1,165 @@
+package com.github.ae2patterngen.network;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+
+/**
+ * 后台任务准入 — 全局并发上限 + 有界 FIFO 等待队列。
+ * <p>
+ * 不依赖 Minecraft 类型；线程池与客户端通知由调用方提供。{@link Listener} 在内部锁内回调，保证同一任务的
+ * 排队/开始通知按发生顺序送出，因此实现必须快速且不阻塞 (例如只把数据包写入网络队列)。
+ */
+final class GenerationJobScheduler<T> {
+
+    enum Admission {
+        STARTED,
+        QUEUED,
+        REJECTED
+    }
+
+    interface Listener<T> {
+
+        /** 任务被派发到线程池 (即将开始执行) */
+        void started(T job);
+
+        /** 任务在队列中的位置 (从 1 开始)；入队及前方任务离开队列时回调 */
+        void queued(T job, int position);
+    }
+
+    private final Executor executor;
+    private final int maxRunning;
+    private final int maxQueued;
+    private final Listener<T> listener;
+    private final LongSupplier clock;
+    private final ArrayDeque<Pending<T>> queue = new ArrayDeque<Pending<T>>();
+
+    private int running;
+    private int peakQueued;
+    private long startedCount;
+    private long rejectedCount;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    GenerationJobScheduler(Executor executor, int maxRunning, int maxQueued, Listener<T> listener) {
+        this(executor, maxRunning, maxQueued, listener, System::nanoTime);
+    }
+
+    GenerationJobScheduler(Executor executor, int maxRunning, int maxQueued, Listener<T> listener,
+        LongSupplier clock) {
+        this.executor = executor;
+        this.maxRunning = Math.max(1, maxRunning);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.listener = listener;
+        this.clock = clock;
+    }
+
+    /**
+     * 有空闲名额时立即派发；否则排队，队列已满时拒绝。
+     */
+    Admission submit(T job, Runnable work) {
+        Pending<T> pending = new Pending<T>(job, work, clock.getAsLong());
+        synchronized (this) {
+            if (running < maxRunning) {
+                dispatch(pending);
+                return Admission.STARTED;
+            }
+            if (queue.size() >= maxQueued) {
+                rejectedCount++;
+                return Admission.REJECTED;
+            }
+            queue.addLast(pending);
+            peakQueued = Math.max(peakQueued, queue.size());
+            listener.queued(job, queue.size());
+            return Admission.QUEUED;
+        }
+    }
+
+    /**
+     * 移出尚在排队的任务 (已开始的任务不受影响)。
+     *
+     * @return 任务是否仍在队列中并被移除
+     */
+    synchronized boolean remove(T job) {
+        int position = 0;
+        Iterator<Pending<T>> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            position++;
+            if (iterator.next().job == job) {
+                iterator.remove();
+                notifyPositions(position);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized GenerationJobStats stats() {
+        return new GenerationJobStats(
+            running,
+            queue.size(),
+            peakQueued,
+            startedCount,
+            rejectedCount,
+            totalWaitNanos,
+            maxWaitNanos);
+    }
+
+    private void finished() {
+        synchronized (this) {
+            running--;
+            Pending<T> next = queue.pollFirst();
+            if (next != null) {
+                dispatch(next);
+                notifyPositions(1);
+            }
+        }
+    }
+
+    /** 调用方持有锁 */
+    private void dispatch(Pending<T> pending) {
+        running++;
+        startedCount++;
+        long waited = Math.max(0L, clock.getAsLong() - pending.enqueuedAt);
+        totalWaitNanos += waited;
+        maxWaitNanos = Math.max(maxWaitNanos, waited);
+        listener.started(pending.job);
+        try {
+            executor.execute(() -> {
+                try {
+                    pending.work.run();
+                } finally {
+                    finished();
+                }
+            });
+        } catch (RuntimeException e) {
+            running--;
+            throw e;
+        }
+    }
+
+    /** 通知队列中从 {@code fromPosition} 起 (含) 的任务新位置；调用方持有锁 */
+    private void notifyPositions(int fromPosition) {
+        int position = 0;
+        for (Pending<T> pending : queue) {
+            position++;
+            if (position >= fromPosition) {
+                listener.queued(pending.job, position);
+            }
+        }
+    }
+
+    private static final class Pending<T> {
+
+        private final T job;
+        private final Runnable work;
+        private final long enqueuedAt;
+
+        private Pending(T job, Runnable work, long enqueuedAt) {
+            this.job = job;
+            this.work = work;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
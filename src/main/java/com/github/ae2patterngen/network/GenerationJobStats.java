@@ -0,0 +1,40 @@
+package com.github.ae2patterngen.network;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the background preview/generate job scheduler.
+ * <p>
+ * Wait time is measured from submission to dispatch; jobs that start immediately count as zero.
+ */
+public final class GenerationJobStats {
+
+    public static final GenerationJobStats EMPTY = new GenerationJobStats(0, 0, 0, 0L, 0L, 0L, 0L);
+
+    public final int running;
+    public final int queued;
+    public final int peakQueued;
+    public final long started;
+    public final long rejected;
+    public final long totalWaitNanos;
+    public final long maxWaitNanos;
+
+    public GenerationJobStats(int running, int queued, int peakQueued, long started, long rejected,
+        long totalWaitNanos, long maxWaitNanos) {
+        this.running = running;
+        this.queued = queued;
+        this.peakQueued = peakQueued;
+        this.started = started;
+        this.rejected = rejected;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public long getAverageWaitMillis() {
+        return started == 0 ? 0L : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos / started);
+    }
+
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+    }
+}
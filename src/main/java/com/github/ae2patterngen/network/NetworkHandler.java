@@ -57,6 +57,16 @@ public class NetworkHandler {
             PacketResolveConflictsBatch.class,
             packetId++,
             Side.SERVER);
+        INSTANCE.registerMessage(
+            PacketCancelGeneration.Handler.class,
+            PacketCancelGeneration.class,
+            packetId++,
+            Side.SERVER);
+        INSTANCE.registerMessage(
+            PacketGenerationState.Handler.class,
+            PacketGenerationState.class,
+            packetId++,
+            Side.CLIENT);
     }
 
     public static void sendToServer(PacketGeneratePatterns packet) {
@@ -24,6 +24,8 @@ public class PacketCacheStatistics implements IMessage {
     private int totalRecipeMaps;
     private int totalModCount;
     private long directoryBytes;
+    private int rewrittenMaps;
+    private int skippedMaps;
 
     public PacketCacheStatistics() {}
 
@@ -32,6 +34,8 @@ public class PacketCacheStatistics implements IMessage {
         this.totalRecipeMaps = statistics.totalRecipeMaps;
         this.totalModCount = statistics.totalModCount;
         this.directoryBytes = statistics.directoryBytes;
+        this.rewrittenMaps = statistics.rewrittenMaps;
+        this.skippedMaps = statistics.skippedMaps;
     }
 
     @Override
@@ -40,6 +44,8 @@ public class PacketCacheStatistics implements IMessage {
         totalRecipeMaps = buf.readInt();
         totalModCount = buf.readInt();
         directoryBytes = buf.readLong();
+        rewrittenMaps = buf.readInt();
+        skippedMaps = buf.readInt();
     }
 
     @Override
@@ -48,6 +54,8 @@ public class PacketCacheStatistics implements IMessage {
         buf.writeInt(totalRecipeMaps);
         buf.writeInt(totalModCount);
         buf.writeLong(directoryBytes);
+        buf.writeInt(rewrittenMaps);
+        buf.writeInt(skippedMaps);
     }
 
     public static class Handler implements IMessageHandler<PacketCacheStatistics, IMessage> {
@@ -72,6 +80,14 @@ public class PacketCacheStatistics implements IMessage {
                                     message.totalRecipeCount,
                                     message.totalModCount,
                                     message.directoryBytes)));
+                        if (message.rewrittenMaps != CacheStatistics.NOT_REBUILT) {
+                            Minecraft.getMinecraft().thePlayer.addChatMessage(
+                                new ChatComponentText(
+                                    EnumChatFormatting.GRAY + I18nUtil.tr(
+                                        "ae2patterngen.msg.cache.refresh_summary",
+                                        message.rewrittenMaps,
+                                        message.skippedMaps)));
+                        }
                     }
                 });
             return null;
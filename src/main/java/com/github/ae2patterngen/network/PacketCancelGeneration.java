@@ -0,0 +1,30 @@
+package com.github.ae2patterngen.network;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Client -> Server: cancel the player's running preview/generate job.
+ */
+public class PacketCancelGeneration implements IMessage {
+
+    @Override
+    public void fromBytes(ByteBuf buf) {}
+
+    @Override
+    public void toBytes(ByteBuf buf) {}
+
+    public static class Handler implements IMessageHandler<PacketCancelGeneration, IMessage> {
+
+        @Override
+        public IMessage onMessage(PacketCancelGeneration message, MessageContext ctx) {
+            EntityPlayerMP player = ctx.getServerHandler().playerEntity;
+            PatternGenerationJobs.cancel(player);
+            return null;
+        }
+    }
+}
@@ -4,16 +4,19 @@ import java.util.List;
 import java.util.UUID;
 
 import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.item.ItemStack;
 import net.minecraft.util.ChatComponentText;
 import net.minecraft.util.EnumChatFormatting;
 
+import com.github.ae2patterngen.config.ForgeConfig;
 import com.github.ae2patterngen.encoder.OreDictReplacer;
-import com.github.ae2patterngen.filter.CompositeFilter;
+import com.github.ae2patterngen.encoder.PatternEncoder;
 import com.github.ae2patterngen.filter.RecipeFilterFactory;
 import com.github.ae2patterngen.recipe.RecipeEntry;
 import com.github.ae2patterngen.storage.CacheQueryResult;
 import com.github.ae2patterngen.storage.PatternStorage;
 import com.github.ae2patterngen.storage.RecipeCacheService;
+import com.github.ae2patterngen.util.CancellationToken;
 import com.github.ae2patterngen.util.I18nUtil;
 import com.github.ae2patterngen.util.ItemStackUtil;
 
@@ -79,47 +82,82 @@ public class PacketGeneratePatterns implements IMessage {
 
     public static class Handler implements IMessageHandler<PacketGeneratePatterns, IMessage> {
 
+        /** 替换与分组循环的取消检查间隔 (配方数) */
+        private static final int CANCEL_CHECK_INTERVAL = 256;
+
         @Override
         public IMessage onMessage(PacketGeneratePatterns message, MessageContext ctx) {
             EntityPlayerMP player = ctx.getServerHandler().playerEntity;
+            String requestFingerprint = PatternGenerationRequestGate.fingerprint(
+                message.recipeMapId,
+                message.outputOreDict,
+                message.inputOreDict,
+                message.ncItem,
+                message.blacklistInput,
+                message.blacklistOutput,
+                message.replacements,
+                message.targetTier);
+            if (!PatternGenerationRequestGate
+                .shouldProcess(player.getUniqueID(), requestFingerprint, System.currentTimeMillis())) {
+                return null;
+            }
+
+            PatternGenerationJobs
+                .submit(player, PatternGenerationJobs.Kind.GENERATE, job -> generate(player, message, job));
+            return null;
+        }
+
+        /**
+         * 在工作线程读取、过滤与分组；扣除空白样板、写入仓储与冲突会话回到服务器主线程执行。
+         */
+        private void generate(EntityPlayerMP player, PacketGeneratePatterns message, PatternGenerationJobs.Job job) {
             UUID uuid = player.getUniqueID();
             try {
-                String requestFingerprint = PatternGenerationRequestGate.fingerprint(
-                    message.recipeMapId,
-                    message.outputOreDict,
-                    message.inputOreDict,
-                    message.ncItem,
-                    message.blacklistInput,
-                    message.blacklistOutput,
-                    message.replacements,
-                    message.targetTier);
-                if (!PatternGenerationRequestGate.shouldProcess(uuid, requestFingerprint, System.currentTimeMillis())) {
-                    return null;
-                }
-
-                // 检查仓储是否有残留样板
-                if (!PatternStorage.isEmpty(uuid)) {
-                    PatternStorage.StorageSummary existing = PatternStorage.getSummary(uuid);
+                // 检查仓储是否有残留样板 (提前拒绝；写入时会在同一串行任务内再次检查)
+                PatternStorage.StorageSummary existing = PatternStorage.peekSummary(uuid);
+                if (existing.count > 0) {
                     send(
                         player,
                         EnumChatFormatting.RED,
                         "ae2patterngen.msg.generate.storage_not_empty",
                         existing.count,
                         existing.source);
-                    return null;
+                    return;
                 }
 
-                CompositeFilter filter = RecipeFilterFactory.build(
+                String queryFingerprint = PatternGenerationRequestGate.queryFingerprint(
+                    message.recipeMapId,
                     message.outputOreDict,
                     message.inputOreDict,
                     message.ncItem,
                     message.blacklistInput,
                     message.blacklistOutput,
                     message.targetTier);
-                CacheQueryResult queryResult = RecipeCacheService.loadAndFilterRecipes(message.recipeMapId, filter);
+                // 与预览参数相同时直接复用预览的过滤结果
+                CacheQueryResult queryResult = RecipeCacheService.loadAndFilterRecipes(
+                    message.recipeMapId,
+                    queryFingerprint,
+                    () -> RecipeFilterFactory.build(
+                        message.outputOreDict,
+                        message.inputOreDict,
+                        message.ncItem,
+                        message.blacklistInput,
+                        message.blacklistOutput,
+                        message.targetTier),
+                    job.token());
+                if (job.isCancelled()) {
+                    return;
+                }
+                if (queryResult.status == CacheQueryResult.Status.DEADLINE_EXCEEDED) {
+                    sendDeadlineExceeded(player);
+                    return;
+                }
+                if (queryResult.isAborted()) {
+                    return;
+                }
                 if (!queryResult.cacheValid) {
                     send(player, EnumChatFormatting.RED, "ae2patterngen.msg.cache.missing_or_invalid");
-                    return null;
+                    return;
                 }
 
                 // 1. 查找匹配的配方表
@@ -130,7 +168,7 @@ public class PacketGeneratePatterns implements IMessage {
                         EnumChatFormatting.RED,
                         "ae2patterngen.msg.generate.no_matching_map",
                         message.recipeMapId);
-                    return null;
+                    return;
                 }
 
                 send(
@@ -151,7 +189,7 @@ public class PacketGeneratePatterns implements IMessage {
 
                 if (filtered.isEmpty()) {
                     send(player, EnumChatFormatting.YELLOW, "ae2patterngen.msg.generate.no_match_after_filter");
-                    return null;
+                    return;
                 }
 
                 // 5. 应用矿辞替换 (从服务端配置读取)
@@ -160,6 +198,10 @@ public class PacketGeneratePatterns implements IMessage {
                 if (replacer.hasRules()) {
                     List<RecipeEntry> replaced = new java.util.ArrayList<>();
                     for (RecipeEntry recipe : filtered) {
+                        if (replaced.size() % CANCEL_CHECK_INTERVAL == 0) {
+                            job.token()
+                                .throwIfCancelled();
+                        }
                         replaced.add(
                             new RecipeEntry(
                                 recipe.sourceType,
@@ -179,7 +221,12 @@ public class PacketGeneratePatterns implements IMessage {
 
                 // [新增] 配方冲突检测与分组 (按产物显示名称)
                 java.util.Map<String, List<RecipeEntry>> groups = new java.util.LinkedHashMap<>();
+                int grouped = 0;
                 for (RecipeEntry re : filtered) {
+                    if (grouped++ % CANCEL_CHECK_INTERVAL == 0) {
+                        job.token()
+                            .throwIfCancelled();
+                    }
                     String key = I18nUtil.tr("ae2patterngen.msg.common.unknown_item");
                     if (re.outputs != null && re.outputs.length > 0 && re.outputs[0] != null) {
                         key = ItemStackUtil.getSafeDisplayName(re.outputs[0]);
@@ -211,35 +258,75 @@ public class PacketGeneratePatterns implements IMessage {
                             conflicts.size(),
                             ConflictSelectionPolicy.getMaxInteractiveFilteredRecipes(),
                             ConflictSelectionPolicy.getMaxInteractiveConflictGroups());
-                        return null;
+                        return;
                     }
 
                     // 开启冲突处理会话
-                    ConflictSession.start(uuid, message.recipeMapId, nonConflicts, conflicts);
-                    send(
-                        player,
-                        EnumChatFormatting.YELLOW,
-                        "ae2patterngen.msg.generate.conflicts_detected",
-                        conflicts.size());
-
-                    // 发送第一个冲突给客户端
-                    ConflictSession session = ConflictSession.get(uuid);
-                    ConflictResolutionService.sendCurrentBatch(player, session);
-                    return null;
+                    PatternGenerationJobs.runOnServerThread(() -> {
+                        if (job.isCancelled()) {
+                            return;
+                        }
+                        ConflictSession.start(uuid, message.recipeMapId, nonConflicts, conflicts);
+                        sendNow(
+                            player,
+                            EnumChatFormatting.YELLOW,
+                            "ae2patterngen.msg.generate.conflicts_detected",
+                            conflicts.size());
+
+                        // 发送第一个冲突给客户端
+                        ConflictSession session = ConflictSession.get(uuid);
+                        ConflictResolutionService.sendCurrentBatch(player, session);
+                    });
+                    return;
                 }
 
-                PatternGenerationService.generateAndStore(player, message.recipeMapId, filtered);
+                // 编码在工作线程完成，主线程只扣除空白样板并写入仓储
+                List<ItemStack> patterns = PatternEncoder.encodeBatch(filtered, job.token());
+                PatternGenerationJobs.runOnServerThread(() -> {
+                    if (job.isCancelled()) {
+                        return;
+                    }
+                    try {
+                        PatternGenerationService.storeEncoded(player, message.recipeMapId, patterns);
+                    } catch (RuntimeException e) {
+                        logFailure(player, e);
+                        sendNow(player, EnumChatFormatting.RED, "ae2patterngen.msg.generate.internal_error");
+                    }
+                });
+            } catch (CancellationToken.CancelledException e) {
+                // 玩家取消时静默结束；超时需要告知玩家
+                if (e.reason == CancellationToken.Reason.DEADLINE_EXCEEDED && !job.isCancelled()) {
+                    sendDeadlineExceeded(player);
+                }
             } catch (RuntimeException e) {
-                cpw.mods.fml.common.FMLLog.severe(
-                    "[AE2PatternGen] Generation request failed for player %s: %s",
-                    player != null ? player.getCommandSenderName() : "unknown",
-                    e.getMessage());
+                logFailure(player, e);
                 send(player, EnumChatFormatting.RED, "ae2patterngen.msg.generate.internal_error");
             }
-            return null;
         }
 
+        private void sendDeadlineExceeded(EntityPlayerMP player) {
+            send(
+                player,
+                EnumChatFormatting.RED,
+                "ae2patterngen.msg.generate.deadline_exceeded",
+                ForgeConfig.getGenerationDeadlineSeconds());
+        }
+
+        private void logFailure(EntityPlayerMP player, RuntimeException e) {
+            cpw.mods.fml.common.FMLLog.severe(
+                "[AE2PatternGen] Generation request failed for player %s: %s",
+                player != null ? player.getCommandSenderName() : "unknown",
+                e.getMessage());
+        }
+
+        /**
+         * 从工作线程发送聊天消息: 排入服务器主线程，保持与其他主线程步骤的先后顺序。
+         */
         private void send(EntityPlayerMP player, EnumChatFormatting color, String key, Object... args) {
+            PatternGenerationJobs.runOnServerThread(() -> sendNow(player, color, key, args));
+        }
+
+        private void sendNow(EntityPlayerMP player, EnumChatFormatting color, String key, Object... args) {
             player.addChatMessage(new ChatComponentText(color + I18nUtil.tr(key, args)));
         }
     }
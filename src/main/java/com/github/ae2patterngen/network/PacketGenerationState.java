@@ -0,0 +1,104 @@
+package com.github.ae2patterngen.network;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.util.EnumChatFormatting;
+
+import com.github.ae2patterngen.gui.GuiPatternGenStatusBridge;
+import com.github.ae2patterngen.util.I18nUtil;
+
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import cpw.mods.fml.relauncher.Side;
+import cpw.mods.fml.relauncher.SideOnly;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Server -> Client: lifecycle of a background preview/generate job, used to show the "in progress" state.
+ */
+public class PacketGenerationState implements IMessage {
+
+    public static final int STATE_RUNNING = 0;
+    public static final int STATE_FINISHED = 1;
+    public static final int STATE_CANCELLED = 2;
+    public static final int STATE_QUEUED = 3;
+    public static final int STATE_REJECTED = 4;
+
+    private long jobId;
+    private int state;
+    /** 排队位置 (从 1 开始)，仅 {@link #STATE_QUEUED} 使用 */
+    private int position;
+    /** 任务是否为生成 (否则为预览)，界面只在生成进行中把生成按钮切换为取消 */
+    private boolean generate;
+
+    public PacketGenerationState() {}
+
+    public PacketGenerationState(long jobId, int state) {
+        this(jobId, state, 0, false);
+    }
+
+    public PacketGenerationState(long jobId, int state, int position, boolean generate) {
+        this.jobId = jobId;
+        this.state = state;
+        this.position = position;
+        this.generate = generate;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf) {
+        jobId = buf.readLong();
+        state = buf.readByte();
+        position = buf.readInt();
+        generate = buf.readBoolean();
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf) {
+        buf.writeLong(jobId);
+        buf.writeByte(state);
+        buf.writeInt(position);
+        buf.writeBoolean(generate);
+    }
+
+    public static class Handler implements IMessageHandler<PacketGenerationState, IMessage> {
+
+        @Override
+        @SideOnly(Side.CLIENT)
+        public IMessage onMessage(PacketGenerationState message, MessageContext ctx) {
+            Minecraft.getMinecraft()
+                .func_152344_a(() -> {
+                    switch (message.state) {
+                        case STATE_QUEUED:
+                            GuiPatternGenStatusBridge.jobQueued(message.jobId, message.generate);
+                            GuiPatternGenStatusBridge.setStatus(
+                                EnumChatFormatting.GOLD
+                                    + I18nUtil.tr("ae2patterngen.gui.pattern_gen.status.job_queued", message.position));
+                            break;
+                        case STATE_RUNNING:
+                            if (GuiPatternGenStatusBridge.jobStarted(message.jobId, message.generate)) {
+                                GuiPatternGenStatusBridge
+                                    .setStatus(I18nUtil.tr("ae2patterngen.gui.pattern_gen.status.job_running"));
+                            }
+                            break;
+                        case STATE_REJECTED:
+                            GuiPatternGenStatusBridge.jobEnded(message.jobId);
+                            GuiPatternGenStatusBridge.setStatus(
+                                EnumChatFormatting.RED
+                                    + I18nUtil.tr("ae2patterngen.gui.pattern_gen.status.job_rejected"));
+                            break;
+                        case STATE_CANCELLED:
+                            if (GuiPatternGenStatusBridge.jobEnded(message.jobId)) {
+                                GuiPatternGenStatusBridge.setStatus(
+                                    EnumChatFormatting.YELLOW
+                                        + I18nUtil.tr("ae2patterngen.gui.pattern_gen.status.job_cancelled"));
+                            }
+                            break;
+                        default:
+                            GuiPatternGenStatusBridge.jobEnded(message.jobId);
+                            break;
+                    }
+                });
+            return null;
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package com.github.ae2patterngen.network;
 
 import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.util.ChatComponentText;
+import net.minecraft.util.EnumChatFormatting;
 
-import com.github.ae2patterngen.filter.CompositeFilter;
+import com.github.ae2patterngen.config.ForgeConfig;
 import com.github.ae2patterngen.filter.RecipeFilterFactory;
 import com.github.ae2patterngen.storage.CacheQueryResult;
 import com.github.ae2patterngen.storage.RecipeCacheService;
+import com.github.ae2patterngen.util.I18nUtil;
 
 import cpw.mods.fml.common.network.ByteBufUtils;
 import cpw.mods.fml.common.network.simpleimpl.IMessage;
@@ -66,22 +69,48 @@ public class PacketPreviewRecipeCount implements IMessage {
         @Override
         public IMessage onMessage(PacketPreviewRecipeCount message, MessageContext ctx) {
             EntityPlayerMP player = ctx.getServerHandler().playerEntity;
-            CompositeFilter filter = RecipeFilterFactory.build(
+            String queryFingerprint = PatternGenerationRequestGate.queryFingerprint(
+                message.recipeMapId,
                 message.outputOreDict,
                 message.inputOreDict,
                 message.ncItem,
                 message.blacklistInput,
                 message.blacklistOutput,
                 message.targetTier);
-            CacheQueryResult result = RecipeCacheService.loadAndFilterRecipes(message.recipeMapId, filter);
-            NetworkHandler.INSTANCE.sendTo(
-                new PacketPreviewRecipeCountResult(
-                    result.cacheValid,
+            PatternGenerationJobs.submit(player, PatternGenerationJobs.Kind.PREVIEW, job -> {
+                CacheQueryResult result = RecipeCacheService.loadAndFilterRecipes(
                     message.recipeMapId,
-                    result.matchedMapIds.size(),
-                    result.totalLoadedCount,
-                    result.totalFilteredCount),
-                player);
+                    queryFingerprint,
+                    () -> RecipeFilterFactory.build(
+                        message.outputOreDict,
+                        message.inputOreDict,
+                        message.ncItem,
+                        message.blacklistInput,
+                        message.blacklistOutput,
+                        message.targetTier),
+                    job.token());
+                // Don't reply once a newer request superseded this one; a stale result must not overwrite the screen
+                if (job.isCancelled() || result.status == CacheQueryResult.Status.CANCELLED) {
+                    return;
+                }
+                if (result.status == CacheQueryResult.Status.DEADLINE_EXCEEDED) {
+                    PatternGenerationJobs.runOnServerThread(
+                        () -> player.addChatMessage(
+                            new ChatComponentText(
+                                EnumChatFormatting.RED + I18nUtil.tr(
+                                    "ae2patterngen.msg.generate.deadline_exceeded",
+                                    ForgeConfig.getGenerationDeadlineSeconds()))));
+                    return;
+                }
+                NetworkHandler.INSTANCE.sendTo(
+                    new PacketPreviewRecipeCountResult(
+                        result.cacheValid,
+                        message.recipeMapId,
+                        result.matchedMapIds.size(),
+                        result.totalLoadedCount,
+                        result.totalFilteredCount),
+                    player);
+            });
             return null;
         }
     }
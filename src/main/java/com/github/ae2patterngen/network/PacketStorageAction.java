@@ -1,5 +1,6 @@
 package com.github.ae2patterngen.network;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -11,6 +12,7 @@ import net.minecraft.util.EnumChatFormatting;
 import com.github.ae2patterngen.storage.PatternStorage;
 import com.github.ae2patterngen.util.I18nUtil;
 
+import cpw.mods.fml.common.FMLLog;
 import cpw.mods.fml.common.network.simpleimpl.IMessage;
 import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
 import cpw.mods.fml.common.network.simpleimpl.MessageContext;
@@ -18,6 +20,8 @@ import io.netty.buffer.ByteBuf;
 
 /**
  * 客户端 -> 服务端: 仓储操作 (取出到背包 / 清空 / 删除单条)
+ * <p>
+ * 仓储读写在后台 I/O 线程执行，放入背包与回复消息回到服务器主线程。
  */
 public class PacketStorageAction implements IMessage {
 
@@ -78,68 +82,123 @@ public class PacketStorageAction implements IMessage {
                 return;
             }
 
-            // 计算背包可用空间
-            int freeSlots = 0;
-            for (int i = 0; i < player.inventory.mainInventory.length; i++) {
-                if (player.inventory.mainInventory[i] == null) {
-                    freeSlots++;
-                }
-            }
+            // 计算背包可用空间 (放入时在主线程重新计算)
+            int freeSlots = countFreeSlots(player);
 
             if (freeSlots == 0) {
                 send(player, EnumChatFormatting.RED, "ae2patterngen.msg.storage.inventory_full");
                 return;
             }
 
-            List<ItemStack> extracted = PatternStorage.extract(uuid, freeSlots);
-            int added = 0;
-            for (ItemStack stack : extracted) {
-                if (player.inventory.addItemStackToInventory(stack)) {
-                    added++;
+            PatternStorage.onServerThread(PatternStorage.extractAsync(uuid, freeSlots), (extracted, error) -> {
+                if (error != null) {
+                    sendFailure(player, error);
+                    return;
                 }
-            }
+                // 取出与放入之间玩家可能已下线或捡起了物品: 不在线时全部放回，放不下的同样放回
+                if (player.playerNetServerHandler == null || player.isDead) {
+                    restore(player, uuid, extracted);
+                    return;
+                }
+                List<ItemStack> leftover = new ArrayList<>();
+                int free = countFreeSlots(player);
+                int added = 0;
+                for (ItemStack stack : extracted) {
+                    if (added < free && player.inventory.addItemStackToInventory(stack)) {
+                        added++;
+                    } else {
+                        leftover.add(stack);
+                    }
+                }
+                restore(player, uuid, leftover);
+
+                player.inventoryContainer.detectAndSendChanges();
+                player.sendContainerToPlayer(player.inventoryContainer);
+
+                PatternStorage.StorageSummary remaining = PatternStorage.peekSummary(uuid);
+                int remainingCount = remaining.count + leftover.size();
+                if (remainingCount > 0) {
+                    send(
+                        player,
+                        EnumChatFormatting.GREEN,
+                        "ae2patterngen.msg.storage.extracted_with_remaining",
+                        added,
+                        remainingCount);
+                } else {
+                    send(player, EnumChatFormatting.GREEN, "ae2patterngen.msg.storage.extracted", added);
+                }
+            });
+        }
 
-            player.inventoryContainer.detectAndSendChanges();
-            player.sendContainerToPlayer(player.inventoryContainer);
+        private static int countFreeSlots(EntityPlayerMP player) {
+            int freeSlots = 0;
+            for (int i = 0; i < player.inventory.mainInventory.length; i++) {
+                if (player.inventory.mainInventory[i] == null) {
+                    freeSlots++;
+                }
+            }
+            return freeSlots;
+        }
 
-            PatternStorage.StorageSummary remaining = PatternStorage.getSummary(uuid);
-            if (remaining.count > 0) {
-                send(
-                    player,
-                    EnumChatFormatting.GREEN,
-                    "ae2patterngen.msg.storage.extracted_with_remaining",
-                    added,
-                    remaining.count);
-            } else {
-                send(player, EnumChatFormatting.GREEN, "ae2patterngen.msg.storage.extracted", added);
+        private void restore(EntityPlayerMP player, UUID uuid, List<ItemStack> patterns) {
+            if (patterns.isEmpty()) {
+                return;
             }
+            PatternStorage.restoreAsync(uuid, patterns)
+                .whenComplete((restored, error) -> {
+                    if (error != null) {
+                        FMLLog.severe(
+                            "[AE2PatternGen] Failed to return %s extracted pattern(s) to storage of player %s: %s",
+                            patterns.size(),
+                            player.getCommandSenderName(),
+                            error.getMessage());
+                    }
+                });
         }
 
         private void handleClear(EntityPlayerMP player, UUID uuid) {
-            PatternStorage.StorageSummary summary = PatternStorage.getSummary(uuid);
+            PatternStorage.StorageSummary summary = PatternStorage.peekSummary(uuid);
             if (summary.count == 0) {
                 send(player, EnumChatFormatting.YELLOW, "ae2patterngen.msg.storage.already_empty");
                 return;
             }
 
-            PatternStorage.clear(uuid);
-            send(player, EnumChatFormatting.GREEN, "ae2patterngen.msg.storage.cleared", summary.count);
+            PatternStorage.onServerThread(PatternStorage.clearAsync(uuid), (cleared, error) -> {
+                if (error != null) {
+                    sendFailure(player, error);
+                    return;
+                }
+                send(player, EnumChatFormatting.GREEN, "ae2patterngen.msg.storage.cleared", cleared);
+            });
         }
 
         private void handleDelete(EntityPlayerMP player, UUID uuid, int index) {
-            ItemStack removed = PatternStorage.delete(uuid, index);
-            if (removed == null) {
-                send(player, EnumChatFormatting.RED, "ae2patterngen.msg.storage.delete_invalid");
-                return;
-            }
+            PatternStorage.onServerThread(PatternStorage.deleteAsync(uuid, index), (removed, error) -> {
+                if (error != null) {
+                    sendFailure(player, error);
+                    return;
+                }
+                if (removed == null) {
+                    send(player, EnumChatFormatting.RED, "ae2patterngen.msg.storage.delete_invalid");
+                    return;
+                }
+
+                PatternStorage.StorageSummary remaining = PatternStorage.peekSummary(uuid);
+                send(
+                    player,
+                    EnumChatFormatting.GREEN,
+                    "ae2patterngen.msg.storage.deleted",
+                    removed.getDisplayName(),
+                    remaining.count);
+            });
+        }
 
-            PatternStorage.StorageSummary remaining = PatternStorage.getSummary(uuid);
-            send(
-                player,
-                EnumChatFormatting.GREEN,
-                "ae2patterngen.msg.storage.deleted",
-                removed.getDisplayName(),
-                remaining.count);
+        private void sendFailure(EntityPlayerMP player, Throwable error) {
+            FMLLog.warning(
+                "[AE2PatternGen] Pattern storage operation failed for player %s: %s",
+                player.getCommandSenderName(),
+                error.getMessage());
+            send(player, EnumChatFormatting.RED, "ae2patterngen.msg.storage.io_failed");
         }
 
         private void send(EntityPlayerMP player, EnumChatFormatting color, String key, Object... args) {
@@ -0,0 +1,241 @@
+package com.github.ae2patterngen.network;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.util.ChatComponentText;
+import net.minecraft.util.EnumChatFormatting;
+
+import com.github.ae2patterngen.config.ForgeConfig;
+import com.github.ae2patterngen.util.CancellationToken;
+import com.github.ae2patterngen.util.I18nUtil;
+import com.github.ae2patterngen.util.ServerThreadUtil;
+
+import cpw.mods.fml.common.FMLLog;
+
+/**
+ * 预览/生成请求的后台执行 — 读盘、解码、过滤与分组在工作线程完成，只有触及玩家/世界状态的步骤回到服务器主线程。
+ * <p>
+ * 每名玩家同时最多一个任务: 被接纳的新请求会取消该玩家尚未完成的旧任务 (并通知客户端旧任务已取消)，
+ * 但预览不会取代进行中的生成，而是直接拒绝。全体玩家同时运行的任务数受
+ * {@link ForgeConfig#getGenerationWorkers()} 限制，其余按 FIFO 排队 (队列长度受
+ * {@link ForgeConfig#getGenerationMaxQueuedJobs()} 限制，溢出时拒绝)。取消为协作式: 任务开始时获得一个带截止时间
+ * ({@link ForgeConfig#getGenerationDeadlineSeconds()}) 的 {@link CancellationToken}，扫描与编码在分块边界检查它；
+ * 玩家取消、被新请求取代或下线时令牌随之取消。任务排队、开始、结束、取消与拒绝通过 {@link PacketGenerationState}
+ * 通知客户端 GUI。
+ */
+public final class PatternGenerationJobs {
+
+    enum Kind {
+        PREVIEW,
+        GENERATE
+    }
+
+    interface Task {
+
+        void run(Job job);
+    }
+
+    private static final Map<UUID, Job> ACTIVE = new ConcurrentHashMap<UUID, Job>();
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger(1);
+    private static final AtomicLong JOB_IDS = new AtomicLong();
+    private static final GenerationJobScheduler.Listener<Job> NOTIFIER = new GenerationJobScheduler.Listener<Job>() {
+
+        @Override
+        public void started(Job job) {
+            sendState(job, PacketGenerationState.STATE_RUNNING, 0);
+        }
+
+        @Override
+        public void queued(Job job, int position) {
+            sendState(job, PacketGenerationState.STATE_QUEUED, position);
+        }
+    };
+    private static volatile GenerationJobScheduler<Job> scheduler;
+
+    private PatternGenerationJobs() {}
+
+    /**
+     * 提交任务；新任务被接纳后，同一玩家已有的任务才会被取消。
+     *
+     * @return 任务；队列已满被拒绝、或生成进行中提交预览时返回 null (原有任务不受影响)
+     */
+    static Job submit(EntityPlayerMP player, Kind kind, Task task) {
+        final UUID playerUUID = player.getUniqueID();
+        final Job job = new Job(JOB_IDS.incrementAndGet(), player, kind);
+        Job current = ACTIVE.get(playerUUID);
+        if (kind == Kind.PREVIEW && current != null && current.kind == Kind.GENERATE && !current.isCancelled()) {
+            player.addChatMessage(
+                new ChatComponentText(
+                    EnumChatFormatting.YELLOW + I18nUtil.tr("ae2patterngen.msg.generate.preview_during_generate")));
+            return null;
+        }
+
+        GenerationJobScheduler.Admission admission;
+        Job previous = null;
+        // 接纳与登记在同一把锁内完成: 新任务即使立即开始并结束，其 finally 中的移除也排在登记之后
+        synchronized (ACTIVE) {
+            admission = scheduler().submit(job, () -> {
+                try {
+                    job.start(TimeUnit.SECONDS.toMillis(ForgeConfig.getGenerationDeadlineSeconds()));
+                    if (!job.isCancelled()) {
+                        task.run(job);
+                    }
+                } catch (RuntimeException e) {
+                    FMLLog.severe(
+                        "[AE2PatternGen] %s job failed for player %s: %s",
+                        kind,
+                        player.getCommandSenderName(),
+                        e.getMessage());
+                } finally {
+                    synchronized (ACTIVE) {
+                        ACTIVE.remove(playerUUID, job);
+                    }
+                    // 排在任务提交的主线程步骤之后，保证客户端先收到结果再看到结束状态
+                    if (!job.isCancelled()) {
+                        runOnServerThread(() -> sendState(job, PacketGenerationState.STATE_FINISHED, 0));
+                    }
+                }
+            });
+            if (admission != GenerationJobScheduler.Admission.REJECTED) {
+                previous = ACTIVE.put(playerUUID, job);
+            }
+        }
+        if (admission == GenerationJobScheduler.Admission.REJECTED) {
+            sendState(job, PacketGenerationState.STATE_REJECTED, 0);
+            return null;
+        }
+        if (previous != null) {
+            previous.cancel();
+            scheduler().remove(previous);
+            sendState(previous, PacketGenerationState.STATE_CANCELLED, 0);
+        }
+        return job;
+    }
+
+    /**
+     * @return 是否取消了一个排队中或正在进行的任务
+     */
+    static boolean cancel(EntityPlayerMP player) {
+        Job job = ACTIVE.remove(player.getUniqueID());
+        if (job == null) {
+            return false;
+        }
+        job.cancel();
+        scheduler().remove(job);
+        sendState(job, PacketGenerationState.STATE_CANCELLED, 0);
+        return true;
+    }
+
+    static boolean isRunning(UUID playerUUID) {
+        return ACTIVE.containsKey(playerUUID);
+    }
+
+    /**
+     * 玩家下线时取消其任务，不再发送任何状态包。
+     */
+    static void cancelSilently(UUID playerUUID) {
+        Job job = ACTIVE.remove(playerUUID);
+        if (job != null) {
+            job.cancel();
+            scheduler().remove(job);
+        }
+    }
+
+    /**
+     * 取消所有排队中与进行中的任务 (服务器关闭时调用)，不发送状态包。
+     */
+    public static void cancelAll() {
+        for (UUID playerUUID : ACTIVE.keySet()) {
+            cancelSilently(playerUUID);
+        }
+    }
+
+    /**
+     * @return 调度器状态快照 (运行数、队列深度、等待时间等)
+     */
+    public static GenerationJobStats getStats() {
+        GenerationJobScheduler<Job> current = scheduler;
+        return current != null ? current.stats() : GenerationJobStats.EMPTY;
+    }
+
+    /**
+     * 在服务器主线程执行 (按提交顺序)；服务器未运行时直接在当前线程执行。
+     */
+    static void runOnServerThread(Runnable action) {
+        ServerThreadUtil.execute(action);
+    }
+
+    private static void sendState(Job job, int state, int position) {
+        NetworkHandler.INSTANCE
+            .sendTo(new PacketGenerationState(job.id, state, position, job.kind == Kind.GENERATE), job.player);
+    }
+
+    private static GenerationJobScheduler<Job> scheduler() {
+        GenerationJobScheduler<Job> current = scheduler;
+        if (current != null) {
+            return current;
+        }
+        synchronized (PatternGenerationJobs.class) {
+            if (scheduler == null) {
+                int workers = ForgeConfig.getGenerationWorkers();
+                // 线程数与并发上限一致，线程池自身的队列不会积压任务
+                scheduler = new GenerationJobScheduler<Job>(Executors.newFixedThreadPool(workers, runnable -> {
+                    Thread thread = new Thread(runnable, "AE2PatternGen-Generation-" + THREAD_IDS.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }), workers, ForgeConfig.getGenerationMaxQueuedJobs(), NOTIFIER);
+            }
+            return scheduler;
+        }
+    }
+
+    static final class Job {
+
+        final long id;
+        final UUID playerUUID;
+        final Kind kind;
+        private final EntityPlayerMP player;
+        private volatile boolean cancelled;
+        /** 任务开始执行时创建，截止时间从此刻起算 (排队时间不计入) */
+        private volatile CancellationToken token = CancellationToken.NONE;
+
+        private Job(long id, EntityPlayerMP player, Kind kind) {
+            this.id = id;
+            this.playerUUID = player.getUniqueID();
+            this.player = player;
+            this.kind = kind;
+        }
+
+        /**
+         * @return 是否被玩家取消或被新请求取代 (超时不算在内，超时由 {@link #token()} 报告)
+         */
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        CancellationToken token() {
+            return token;
+        }
+
+        private void start(long deadlineMillis) {
+            CancellationToken started = CancellationToken.withTimeout(deadlineMillis);
+            token = started;
+            // 与 cancel() 竞争时两边都能看到对方的写入
+            if (cancelled) {
+                started.cancel();
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            token.cancel();
+        }
+    }
+}
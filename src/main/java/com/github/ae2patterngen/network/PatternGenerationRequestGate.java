@@ -48,6 +48,23 @@ final class PatternGenerationRequestGate {
             + targetTier;
     }
 
+    /**
+     * Covers only the parameters that affect the filtered result (not the server-side replacement rules), so preview
+     * and generate requests share the query result cache.
+     */
+    static String queryFingerprint(String recipeMapId, String outputOreDict, String inputOreDict, String ncItem,
+        String blacklistInput, String blacklistOutput, int targetTier) {
+        return fingerprint(
+            recipeMapId,
+            outputOreDict,
+            inputOreDict,
+            ncItem,
+            blacklistInput,
+            blacklistOutput,
+            null,
+            targetTier);
+    }
+
     static synchronized void reset() {
         RECENT_REQUESTS.clear();
     }
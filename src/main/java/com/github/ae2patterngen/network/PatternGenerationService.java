@@ -27,7 +27,21 @@ public final class PatternGenerationService {
             return false;
         }
 
-        List<ItemStack> patterns = PatternEncoder.encodeBatch(recipes);
+        return storeEncoded(player, source, PatternEncoder.encodeBatch(recipes));
+    }
+
+    /**
+     * 已编码样板的后半段: 扣除空白样板 -> 写入虚拟仓储。需在服务器主线程调用。
+     * <p>
+     * 仓储写入在后台 I/O 线程完成，结果消息随后在主线程发送。写入时仓储已非空 (例如另一次生成的样板先写入) 或写入失败时，
+     * 退还已扣除的空白样板。
+     *
+     * @return 空白样板已扣除、写入已提交时返回 true
+     */
+    public static boolean storeEncoded(EntityPlayerMP player, String source, List<ItemStack> patterns) {
+        if (player == null || patterns == null) {
+            return false;
+        }
         if (patterns.isEmpty()) {
             send(player, EnumChatFormatting.YELLOW, "ae2patterngen.msg.pattern.no_valid_after_encode");
             return false;
@@ -40,12 +54,25 @@ public final class PatternGenerationService {
         }
 
         UUID uuid = player.getUniqueID();
-        if (!PatternStorage.save(uuid, patterns, source)) {
-            send(player, EnumChatFormatting.RED, "ae2patterngen.msg.pattern.storage_write_failed");
-            return false;
-        }
-        send(player, EnumChatFormatting.GREEN, "ae2patterngen.msg.pattern.generated_and_consumed", requiredCount);
-        send(player, EnumChatFormatting.GRAY, "ae2patterngen.msg.pattern.stored_hint");
+        PatternStorage.onServerThread(PatternStorage.saveIfEmptyAsync(uuid, patterns, source), (existing, error) -> {
+            if (error != null) {
+                send(player, EnumChatFormatting.RED, "ae2patterngen.msg.pattern.storage_write_failed");
+                refundBlankPatterns(player, requiredCount, blankPattern);
+                return;
+            }
+            if (existing != null) {
+                send(
+                    player,
+                    EnumChatFormatting.RED,
+                    "ae2patterngen.msg.generate.storage_not_empty",
+                    existing.count,
+                    existing.source);
+                refundBlankPatterns(player, requiredCount, blankPattern);
+                return;
+            }
+            send(player, EnumChatFormatting.GREEN, "ae2patterngen.msg.pattern.generated_and_consumed", requiredCount);
+            send(player, EnumChatFormatting.GRAY, "ae2patterngen.msg.pattern.stored_hint");
+        });
         return true;
     }
 
@@ -69,6 +96,11 @@ public final class PatternGenerationService {
         return true;
     }
 
+    private static void refundBlankPatterns(EntityPlayerMP player, int count, ItemStack blankPattern) {
+        InventoryUtil.giveItem(player, blankPattern, count);
+        send(player, EnumChatFormatting.YELLOW, "ae2patterngen.msg.pattern.blank_refunded", count);
+    }
+
     private static void send(EntityPlayerMP player, EnumChatFormatting color, String key, Object... args) {
         player.addChatMessage(new ChatComponentText(color + I18nUtil.tr(key, args)));
     }
@@ -6,7 +6,9 @@ import net.minecraft.entity.player.EntityPlayer;
 
 import com.github.ae2patterngen.config.ForgeConfig;
 import com.github.ae2patterngen.item.ModItems;
+import com.github.ae2patterngen.network.GenerationJobEvents;
 import com.github.ae2patterngen.network.NetworkHandler;
+import com.github.ae2patterngen.storage.PatternStorageEvents;
 
 import cpw.mods.fml.common.event.FMLInitializationEvent;
 import cpw.mods.fml.common.event.FMLPreInitializationEvent;
@@ -22,6 +24,12 @@ public class CommonProxy {
     public void init(FMLInitializationEvent event, Object modInstance) {
         cpw.mods.fml.common.network.NetworkRegistry.INSTANCE
             .registerGuiHandler(modInstance, new com.github.ae2patterngen.gui.GuiHandler());
+        cpw.mods.fml.common.FMLCommonHandler.instance()
+            .bus()
+            .register(new GenerationJobEvents());
+        cpw.mods.fml.common.FMLCommonHandler.instance()
+            .bus()
+            .register(new PatternStorageEvents());
 
         // 注册 AE2 无线处理器 (用于安全终端绑定)
         try {
@@ -0,0 +1,49 @@
+package com.github.ae2patterngen.recipe;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compute count and timings of one cached recipe collection key.
+ */
+public final class ComputeStats {
+
+    private int computeCount;
+    private long lastNanos;
+    private long totalNanos;
+
+    ComputeStats() {}
+
+    void record(long nanos) {
+        computeCount++;
+        lastNanos = nanos;
+        totalNanos += nanos;
+    }
+
+    ComputeStats copy() {
+        ComputeStats copy = new ComputeStats();
+        copy.computeCount = computeCount;
+        copy.lastNanos = lastNanos;
+        copy.totalNanos = totalNanos;
+        return copy;
+    }
+
+    public int getComputeCount() {
+        return computeCount;
+    }
+
+    public long getLastNanos() {
+        return lastNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getLastMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastNanos);
+    }
+
+    public long getAverageMillis() {
+        return computeCount == 0 ? 0L : TimeUnit.NANOSECONDS.toMillis(totalNanos / computeCount);
+    }
+}
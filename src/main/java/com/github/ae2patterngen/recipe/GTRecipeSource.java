@@ -25,6 +25,7 @@ import gregtech.api.util.GTRecipe;
 public class GTRecipeSource {
 
     private static final RecipeCollectionCache<String, List<RecipeEntry>> COLLECTED_RECIPE_CACHE = new RecipeCollectionCache<String, List<RecipeEntry>>();
+    private static final String COLLECTION_KEY_SEPARATOR = "\u001F";
 
     /**
      * 获取所有已注册的 GT 配方表名称
@@ -117,9 +118,40 @@ public class GTRecipeSource {
             .getOrCompute(cacheKey, () -> Collections.unmodifiableList(collectRecipesForMatchedMaps(matchedMaps)));
     }
 
+    public static int getCollectionCacheSize() {
+        return COLLECTED_RECIPE_CACHE.size();
+    }
+
+    public static long getCollectionCacheHits() {
+        return COLLECTED_RECIPE_CACHE.getHits();
+    }
+
+    public static long getCollectionCacheMisses() {
+        return COLLECTED_RECIPE_CACHE.getMisses();
+    }
+
+    public static long getCollectionCacheEvictions() {
+        return COLLECTED_RECIPE_CACHE.getEvictions();
+    }
+
+    /**
+     * 配方收集缓存中各 key 的计算次数与耗时快照，key 为逗号分隔的配方表 ID
+     */
+    public static Map<String, ComputeStats> getCollectionComputeStats() {
+        Map<String, ComputeStats> result = new LinkedHashMap<>();
+        for (Map.Entry<String, ComputeStats> entry : COLLECTED_RECIPE_CACHE.getComputeStats()
+            .entrySet()) {
+            result.put(
+                entry.getKey()
+                    .replace(COLLECTION_KEY_SEPARATOR, ", "),
+                entry.getValue());
+        }
+        return result;
+    }
+
     private static List<RecipeEntry> collectRecipesForMatchedMaps(List<String> matchedMaps) {
         List<RecipeEntry> entries = new ArrayList<>();
-        Set<String> processedKeys = new java.util.HashSet<>();
+        Set<RecipeIdentityKey> processedKeys = new java.util.HashSet<>();
 
         for (String mapId : matchedMaps) {
             RecipeMap<?> targetMap = RecipeMap.ALL_RECIPE_MAPS.get(mapId);
@@ -131,8 +163,7 @@ public class GTRecipeSource {
                     if (recipe == null || !recipe.mEnabled) continue;
 
                     // 生成配方唯一性 Key (基于输入、输出、时长、EU)
-                    String recipeKey = generateRecipeKey(recipe);
-                    if (!processedKeys.add(recipeKey)) continue;
+                    if (!processedKeys.add(RecipeIdentityKey.of(recipe))) continue;
 
                     ItemStack[] normalInputs = recipe.mInputs;
                     ItemStack[] specialItems = new ItemStack[0];
@@ -164,11 +195,111 @@ public class GTRecipeSource {
         return entries;
     }
 
+    /**
+     * 计算配方表的结构指纹 (配方数量 + 与顺序无关的逐配方散列)，直接读取 GTRecipe 字段，不构造 RecipeEntry。
+     * <p>
+     * furnace / microwave 这类动态配方表无法廉价枚举，返回 null 表示必须重新收集。
+     *
+     * @return 指纹字符串; 配方表不存在或为动态配方表时返回 null
+     */
+    public static String fingerprintRecipeMap(String mapId) {
+        if ("gt.recipe.furnace".equals(mapId) || "gt.recipe.microwave".equals(mapId)) {
+            return null;
+        }
+        RecipeMap<?> targetMap = RecipeMap.ALL_RECIPE_MAPS.get(mapId);
+        if (targetMap == null) {
+            return null;
+        }
+
+        int count = 0;
+        long sum = 0L;
+        long xor = 0L;
+        Collection<GTRecipe> recipes = targetMap.getAllRecipes();
+        if (recipes != null) {
+            for (GTRecipe recipe : recipes) {
+                if (recipe == null || !recipe.mEnabled) continue;
+                long hash = fingerprintRecipe(recipe);
+                count++;
+                sum += hash;
+                xor ^= Long.rotateLeft(hash, 29);
+            }
+        }
+        return count + ":" + Long.toHexString(sum) + ":" + Long.toHexString(xor);
+    }
+
+    private static long fingerprintRecipe(GTRecipe recipe) {
+        long hash = mix(0x9E3779B97F4A7C15L, recipe.mDuration);
+        hash = mix(hash, recipe.mEUt);
+        hash = mixStacks(hash, recipe.mInputs);
+        hash = mixStacks(mix(hash, 0x11), recipe.mOutputs);
+        if (recipe.mSpecialItems instanceof ItemStack) {
+            hash = mixStack(mix(hash, 0x22), (ItemStack) recipe.mSpecialItems);
+        } else if (recipe.mSpecialItems instanceof ItemStack[]) {
+            hash = mixStacks(mix(hash, 0x22), (ItemStack[]) recipe.mSpecialItems);
+        }
+        hash = mixFluids(mix(hash, 0x33), recipe.mFluidInputs);
+        hash = mixFluids(mix(hash, 0x44), recipe.mFluidOutputs);
+        return finish(hash);
+    }
+
+    private static long mixStacks(long hash, ItemStack[] stacks) {
+        if (stacks == null) {
+            return mix(hash, -1);
+        }
+        hash = mix(hash, stacks.length);
+        for (ItemStack stack : stacks) {
+            hash = mixStack(hash, stack);
+        }
+        return hash;
+    }
+
+    private static long mixStack(long hash, ItemStack stack) {
+        if (stack == null || stack.getItem() == null) {
+            return mix(hash, 0);
+        }
+        hash = mix(hash, String.valueOf(Item.itemRegistry.getNameForObject(stack.getItem())).hashCode());
+        hash = mix(hash, stack.getItemDamage());
+        hash = mix(hash, stack.stackSize);
+        return mix(hash, stack.stackTagCompound != null ? stack.stackTagCompound.hashCode() : 0);
+    }
+
+    private static long mixFluids(long hash, net.minecraftforge.fluids.FluidStack[] fluids) {
+        if (fluids == null) {
+            return mix(hash, -1);
+        }
+        hash = mix(hash, fluids.length);
+        for (net.minecraftforge.fluids.FluidStack fluid : fluids) {
+            if (fluid == null || fluid.getFluid() == null) {
+                hash = mix(hash, 0);
+                continue;
+            }
+            hash = mix(
+                hash,
+                fluid.getFluid()
+                    .getName()
+                    .hashCode());
+            hash = mix(hash, fluid.amount);
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        return (hash ^ (value & 0xFFFFFFFFL)) * 0x100000001B3L + 0x632BE59BD9B4E019L;
+    }
+
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
     private static String buildCollectionCacheKey(List<String> matchedMaps) {
         if (matchedMaps == null || matchedMaps.isEmpty()) {
             return "";
         }
-        return String.join("\u001F", matchedMaps);
+        return String.join(COLLECTION_KEY_SEPARATOR, matchedMaps);
     }
 
     /**
@@ -176,7 +307,7 @@ public class GTRecipeSource {
      * 因此这里回退到原版 FurnaceRecipes 枚举并构造 RecipeEntry。
      */
     private static void collectDynamicSmeltingRecipesIfNeeded(String mapId, RecipeMap<?> targetMap,
-        List<RecipeEntry> entries, Set<String> processedKeys) {
+        List<RecipeEntry> entries, Set<RecipeIdentityKey> processedKeys) {
         if (targetMap == null || (!"gt.recipe.furnace".equals(mapId) && !"gt.recipe.microwave".equals(mapId))) {
             return;
         }
@@ -224,8 +355,7 @@ public class GTRecipeSource {
                 specialItems = new ItemStack[] { (ItemStack) dynamic.mSpecialItems };
             }
 
-            String dynamicKey = generateRecipeKey(dynamic) + "|MAP:" + mapId;
-            if (!processedKeys.add(dynamicKey)) {
+            if (!processedKeys.add(RecipeIdentityKey.of(dynamic, mapId))) {
                 continue;
             }
 
@@ -252,8 +382,7 @@ public class GTRecipeSource {
             if (bookRecipe != null && bookRecipe.mEnabled
                 && bookRecipe.mOutputs != null
                 && bookRecipe.mOutputs.length > 0) {
-                String bookKey = generateRecipeKey(bookRecipe) + "|MAP:" + mapId;
-                if (processedKeys.add(bookKey)) {
+                if (processedKeys.add(RecipeIdentityKey.of(bookRecipe, mapId))) {
                     entries.add(
                         new RecipeEntry(
                             "gt",
@@ -280,83 +409,6 @@ public class GTRecipeSource {
         return String.valueOf(name) + "@" + stack.getItemDamage() + "@" + stack.stackSize;
     }
 
-    private static String generateRecipeKey(GTRecipe recipe) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(recipe.mDuration)
-            .append(":")
-            .append(recipe.mEUt)
-            .append("|");
-        if (recipe.mInputs != null) {
-            for (ItemStack is : recipe.mInputs) {
-                if (is != null && is.getItem() != null)
-                    sb.append(net.minecraft.item.Item.itemRegistry.getNameForObject(is.getItem()))
-                        .append("@")
-                        .append(is.getItemDamage())
-                        .append("@")
-                        .append(is.stackSize)
-                        .append(",");
-                else sb.append("NULL,");
-            }
-        }
-        sb.append("|");
-        if (recipe.mOutputs != null) {
-            for (ItemStack is : recipe.mOutputs) {
-                if (is != null && is.getItem() != null)
-                    sb.append(net.minecraft.item.Item.itemRegistry.getNameForObject(is.getItem()))
-                        .append("@")
-                        .append(is.getItemDamage())
-                        .append("@")
-                        .append(is.stackSize)
-                        .append(",");
-                else sb.append("NULL,");
-            }
-        }
-        sb.append("|SP:");
-        if (recipe.mSpecialItems instanceof ItemStack) {
-            ItemStack is = (ItemStack) recipe.mSpecialItems;
-            if (is.getItem() != null) {
-                sb.append(net.minecraft.item.Item.itemRegistry.getNameForObject(is.getItem()))
-                    .append("@")
-                    .append(is.getItemDamage());
-            }
-        } else if (recipe.mSpecialItems instanceof ItemStack[]) {
-            for (ItemStack is : (ItemStack[]) recipe.mSpecialItems) {
-                if (is != null && is.getItem() != null)
-                    sb.append(net.minecraft.item.Item.itemRegistry.getNameForObject(is.getItem()))
-                        .append("@")
-                        .append(is.getItemDamage())
-                        .append(",");
-            }
-        }
-        sb.append("|FI:");
-        if (recipe.mFluidInputs != null) {
-            for (net.minecraftforge.fluids.FluidStack fs : recipe.mFluidInputs) {
-                if (fs != null && fs.getFluid() != null) {
-                    sb.append(
-                        fs.getFluid()
-                            .getName())
-                        .append("@")
-                        .append(fs.amount)
-                        .append(",");
-                }
-            }
-        }
-        sb.append("|FO:");
-        if (recipe.mFluidOutputs != null) {
-            for (net.minecraftforge.fluids.FluidStack fs : recipe.mFluidOutputs) {
-                if (fs != null && fs.getFluid() != null) {
-                    sb.append(
-                        fs.getFluid()
-                            .getName())
-                        .append("@")
-                        .append(fs.amount)
-                        .append(",");
-                }
-            }
-        }
-        return sb.toString();
-    }
-
     /**
      * 收集所有配方表的所有配方
      */
@@ -1,27 +1,236 @@
 package com.github.ae2patterngen.recipe;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 /**
- * Small synchronized cache for recipe collection results.
+ * Single-flight memoization for recipe collection and filter results.
+ * <p>
+ * Each key owns a future: the first caller computes outside the lock, duplicate callers for the same key wait on
+ * that future, and different keys compute concurrently. Completed entries are kept in an LRU bounded by their total
+ * weight and may expire after a TTL; failed computations and {@code null} results are not cached.
  */
 final class RecipeCollectionCache<K, V> {
 
-    private final Map<K, V> cache = new HashMap<K, V>();
+    static final int DEFAULT_MAX_ENTRIES = 16;
 
-    synchronized V getOrCompute(K key, Supplier<V> supplier) {
-        if (cache.containsKey(key)) {
-            return cache.get(key);
+    private final LinkedHashMap<K, Entry<V>> cache = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+    private final Map<K, ComputeStats> computeStats = new HashMap<K, ComputeStats>();
+    private final LongSupplier maxWeight;
+    private final ToIntFunction<V> weigher;
+    private final LongSupplier ttlNanos;
+    private final LongSupplier clock;
+    private long totalWeight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    RecipeCollectionCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Bounds the cache by entry count, without expiry.
+     */
+    RecipeCollectionCache(int maxEntries) {
+        this(() -> Math.max(1, maxEntries), value -> 1, () -> 0L, System::nanoTime);
+    }
+
+    /**
+     * @param maxWeight upper bound for the summed weight of completed entries, read on every insert
+     * @param weigher   weight of a completed value; values weigh at least 1
+     * @param ttlNanos  entry lifetime, read on every lookup; values {@code <= 0} disable expiry
+     * @param clock     nanosecond clock used for expiry and compute timings
+     */
+    RecipeCollectionCache(LongSupplier maxWeight, ToIntFunction<V> weigher, LongSupplier ttlNanos,
+        LongSupplier clock) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+    }
+
+    V getOrCompute(K key, Supplier<V> supplier) {
+        long now = clock.getAsLong();
+        Entry<V> entry;
+        boolean owner = false;
+        synchronized (this) {
+            entry = cache.get(key);
+            if (entry != null && entry.isExpired(now, ttlNanos.getAsLong())) {
+                removeEntry(key);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry<V>(now);
+                cache.put(key, entry);
+                owner = true;
+                misses++;
+            } else {
+                hits++;
+            }
+        }
+
+        if (!owner) {
+            return await(entry.future);
         }
 
-        V value = supplier.get();
-        cache.put(key, value);
+        V value;
+        try {
+            value = supplier.get();
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                if (cache.get(key) == entry) {
+                    cache.remove(key);
+                }
+            }
+            entry.future.completeExceptionally(e);
+            throw e;
+        }
+        long elapsed = clock.getAsLong() - now;
+
+        entry.future.complete(value);
+        synchronized (this) {
+            // A computation that finishes after clear() is returned but not stored
+            if (cache.get(key) == entry) {
+                if (value == null) {
+                    cache.remove(key);
+                } else {
+                    entry.weight = Math.max(1, weigher.applyAsInt(value));
+                    totalWeight += entry.weight;
+                    ComputeStats stats = computeStats.get(key);
+                    if (stats == null) {
+                        stats = new ComputeStats();
+                        computeStats.put(key, stats);
+                    }
+                    stats.record(elapsed);
+                    evictOverflow();
+                }
+            }
+        }
         return value;
     }
 
+    /**
+     * Drops all entries and compute timings. Computations that are still running complete for their callers but are
+     * not stored.
+     */
     synchronized void clear() {
         cache.clear();
+        computeStats.clear();
+        totalWeight = 0L;
+    }
+
+    /**
+     * Same as {@link #clear()}, and also resets the hit, miss and eviction counters.
+     */
+    synchronized void reset() {
+        clear();
+        hits = 0L;
+        misses = 0L;
+        evictions = 0L;
+    }
+
+    synchronized int size() {
+        return cache.size();
+    }
+
+    synchronized long getTotalWeight() {
+        return totalWeight;
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return hit rate between 0 and 1, or 0 before any request
+     */
+    synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0D : (double) hits / total;
+    }
+
+    /**
+     * @return snapshot of the compute count and timings of every cached key
+     */
+    synchronized Map<K, ComputeStats> getComputeStats() {
+        Map<K, ComputeStats> snapshot = new LinkedHashMap<K, ComputeStats>();
+        for (Map.Entry<K, ComputeStats> entry : computeStats.entrySet()) {
+            snapshot.put(
+                entry.getKey(),
+                entry.getValue()
+                    .copy());
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    private void evictOverflow() {
+        long bound = maxWeight.getAsLong();
+        Iterator<Map.Entry<K, Entry<V>>> iterator = cache.entrySet()
+            .iterator();
+        while (totalWeight > bound && iterator.hasNext()) {
+            Map.Entry<K, Entry<V>> entry = iterator.next();
+            if (!entry.getValue().future.isDone()) {
+                continue;
+            }
+            totalWeight -= entry.getValue().weight;
+            iterator.remove();
+            computeStats.remove(entry.getKey());
+            evictions++;
+        }
+    }
+
+    private void removeEntry(K key) {
+        Entry<V> removed = cache.remove(key);
+        if (removed != null) {
+            totalWeight -= removed.weight;
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entry<V> {
+
+        private final CompletableFuture<V> future = new CompletableFuture<V>();
+        private final long createdAt;
+        /** Zero until the computation completes, so pending entries add no weight. */
+        private int weight;
+
+        private Entry(long createdAt) {
+            this.createdAt = createdAt;
+        }
+
+        private boolean isExpired(long now, long ttlNanos) {
+            return ttlNanos > 0 && future.isDone() && now - createdAt >= ttlNanos;
+        }
     }
 }
@@ -38,6 +38,8 @@ public class RecipeEntry {
     /** EU/t */
     public final int euPerTick;
 
+    private volatile RecipeSummary summary;
+
     public RecipeEntry(String sourceType, String recipeMapId, String machineDisplayName, ItemStack[] inputs,
         ItemStack[] outputs, FluidStack[] fluidInputs, FluidStack[] fluidOutputs, ItemStack[] specialItems,
         int duration, int euPerTick) {
@@ -52,4 +54,16 @@ public class RecipeEntry {
         this.duration = duration;
         this.euPerTick = euPerTick;
     }
+
+    /**
+     * 原始类型摘要，首次访问时计算并缓存 (并发首访可能重复计算，结果相同)。
+     */
+    public RecipeSummary getSummary() {
+        RecipeSummary current = summary;
+        if (current == null) {
+            current = RecipeSummary.of(this);
+            summary = current;
+        }
+        return current;
+    }
 }
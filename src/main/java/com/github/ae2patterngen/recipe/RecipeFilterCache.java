@@ -1,24 +1,39 @@
 package com.github.ae2patterngen.recipe;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
+import com.github.ae2patterngen.config.ForgeConfig;
+
 /**
  * Cache for filtered recipe results.
  * <p>
  * This cache stores filtered recipe lists based on recipe map key and filter key combination,
  * avoiding repeated expensive filtering operations when the same filtering criteria are used.
+ * <p>
+ * Entries are kept in an LRU bounded by the total number of cached recipes and expire after a TTL. Concurrent
+ * requests for the same key share a single computation. The recipe cache service clears this cache whenever the
+ * persisted recipe cache is rebuilt or cleared.
  */
 public final class RecipeFilterCache {
 
-    private static final Map<String, List<RecipeEntry>> CACHE = new HashMap<>();
+    private static volatile LongSupplier clock = System::nanoTime;
+    private static final RecipeCollectionCache<Key, List<RecipeEntry>> CACHE = new RecipeCollectionCache<Key, List<RecipeEntry>>(
+        ForgeConfig::getFilterCacheMaxRecipes,
+        List::size,
+        RecipeFilterCache::ttlNanos,
+        () -> clock.getAsLong());
 
     private RecipeFilterCache() {}
 
     /**
      * Get filtered recipes from cache or compute them using the provided supplier.
+     * <p>
+     * The returned list is unmodifiable. A {@code null} result is returned as-is and not cached.
      *
      * @param recipeMapKey The recipe map identifier (e.g., "gt.recipe.assembler")
      * @param filterKey    The combined filter key representing all filter conditions
@@ -27,29 +42,93 @@ public final class RecipeFilterCache {
      */
     public static List<RecipeEntry> getOrCompute(String recipeMapKey, String filterKey,
         Supplier<List<RecipeEntry>> supplier) {
-        String cacheKey = buildCacheKey(recipeMapKey, filterKey);
-
-        List<RecipeEntry> result = CACHE.get(cacheKey);
-        if (result == null) {
-            result = supplier.get();
-            CACHE.put(cacheKey, result);
-        }
-        return result;
+        return CACHE.getOrCompute(new Key(recipeMapKey, filterKey), () -> {
+            List<RecipeEntry> computed = supplier.get();
+            return computed != null ? Collections.unmodifiableList(computed) : null;
+        });
     }
 
     /**
      * Clear all cached filter results.
      * <p>
-     * Call this when recipe maps are reloaded or when cached results may become stale.
+     * Call this when recipe maps are reloaded or when cached results may become stale. Computations that are still
+     * running complete for their callers but are not stored.
      */
-    public static synchronized void clear() {
+    public static void clear() {
         CACHE.clear();
     }
 
+    public static int size() {
+        return CACHE.size();
+    }
+
+    /**
+     * Total number of recipes currently held by cached results.
+     */
+    public static long getTotalWeight() {
+        return CACHE.getTotalWeight();
+    }
+
+    public static long getHits() {
+        return CACHE.getHits();
+    }
+
+    public static long getMisses() {
+        return CACHE.getMisses();
+    }
+
+    public static long getEvictions() {
+        return CACHE.getEvictions();
+    }
+
     /**
-     * Build a unique cache key from recipe map key and filter key.
+     * @return hit rate between 0 and 1, or 0 before any request
      */
-    private static String buildCacheKey(String recipeMapKey, String filterKey) {
-        return recipeMapKey + "||" + filterKey;
+    public static double getHitRate() {
+        return CACHE.getHitRate();
+    }
+
+    static void setClock(LongSupplier testClock) {
+        clock = testClock != null ? testClock : clock;
+    }
+
+    static void resetTestHooks() {
+        clock = System::nanoTime;
+        CACHE.reset();
+    }
+
+    private static long ttlNanos() {
+        return TimeUnit.SECONDS.toNanos(ForgeConfig.getFilterCacheTtlSeconds());
+    }
+
+    private static final class Key {
+
+        private final String recipeMapKey;
+        private final String filterKey;
+        private final int hash;
+
+        private Key(String recipeMapKey, String filterKey) {
+            this.recipeMapKey = recipeMapKey;
+            this.filterKey = filterKey;
+            this.hash = 31 * Objects.hashCode(recipeMapKey) + Objects.hashCode(filterKey);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && Objects.equals(recipeMapKey, key.recipeMapKey)
+                && Objects.equals(filterKey, key.filterKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 }
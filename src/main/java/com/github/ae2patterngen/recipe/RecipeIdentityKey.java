@@ -0,0 +1,209 @@
+package com.github.ae2patterngen.recipe;
+
+import java.util.Arrays;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.fluids.FluidStack;
+
+import gregtech.api.util.GTRecipe;
+
+/**
+ * 配方去重用的结构化 Key — 以原始 int 数组保存 时长/EU、物品 id/meta/数量、流体 id/数量，物品 NBT 按出现顺序另存，
+ * 并预先计算 hash。
+ * <p>
+ * 输入/输出中的空槽计入 Key，特殊物品只比较 id/meta/NBT，空流体与空特殊物品忽略。
+ */
+final class RecipeIdentityKey {
+
+    private static final int NULL_SLOT = -1;
+    private static final NBTTagCompound[] NO_TAGS = new NBTTagCompound[0];
+
+    private final int[] data;
+    /** 带 NBT 的物品在 data 中记 1，其 NBT 按出现顺序存于此 */
+    private final NBTTagCompound[] tags;
+    private final String scope;
+    private final int hash;
+
+    private RecipeIdentityKey(int[] data, NBTTagCompound[] tags, String scope) {
+        this.data = data;
+        this.tags = tags;
+        this.scope = scope;
+        this.hash = 31 * (31 * Arrays.hashCode(data) + Arrays.hashCode(tags)) + (scope != null ? scope.hashCode() : 0);
+    }
+
+    static RecipeIdentityKey of(GTRecipe recipe) {
+        return of(recipe, null);
+    }
+
+    /**
+     * @param scope 额外的区分维度 (如动态配方所属的 mapId)，为 null 时跨配方表去重
+     */
+    static RecipeIdentityKey of(GTRecipe recipe, String scope) {
+        ItemStack[] specials = null;
+        if (recipe.mSpecialItems instanceof ItemStack[]) {
+            specials = (ItemStack[]) recipe.mSpecialItems;
+        } else if (recipe.mSpecialItems instanceof ItemStack) {
+            specials = new ItemStack[] { (ItemStack) recipe.mSpecialItems };
+        }
+
+        int size = 2 + itemSlots(recipe.mInputs) + itemSlots(recipe.mOutputs)
+            + 1
+            + 3 * countPresent(specials)
+            + 1
+            + 2 * countPresent(recipe.mFluidInputs)
+            + 1
+            + 2 * countPresent(recipe.mFluidOutputs);
+        int[] data = new int[size];
+        int pos = 0;
+        data[pos++] = recipe.mDuration;
+        data[pos++] = recipe.mEUt;
+        pos = writeItems(data, pos, recipe.mInputs);
+        pos = writeItems(data, pos, recipe.mOutputs);
+        pos = writeSpecials(data, pos, specials);
+        pos = writeFluids(data, pos, recipe.mFluidInputs);
+        writeFluids(data, pos, recipe.mFluidOutputs);
+        return new RecipeIdentityKey(data, collectTags(recipe.mInputs, recipe.mOutputs, specials), scope);
+    }
+
+    private static int itemSlots(ItemStack[] stacks) {
+        if (stacks == null) {
+            return 1;
+        }
+        int slots = 1;
+        for (ItemStack stack : stacks) {
+            slots += stack != null && stack.getItem() != null ? 4 : 1;
+        }
+        return slots;
+    }
+
+    private static int countPresent(ItemStack[] stacks) {
+        int count = 0;
+        if (stacks != null) {
+            for (ItemStack stack : stacks) {
+                if (stack != null && stack.getItem() != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int countPresent(FluidStack[] stacks) {
+        int count = 0;
+        if (stacks != null) {
+            for (FluidStack stack : stacks) {
+                if (stack != null && stack.getFluid() != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int writeItems(int[] data, int pos, ItemStack[] stacks) {
+        data[pos++] = stacks != null ? stacks.length : 0;
+        if (stacks == null) {
+            return pos;
+        }
+        for (ItemStack stack : stacks) {
+            if (stack == null || stack.getItem() == null) {
+                data[pos++] = NULL_SLOT;
+                continue;
+            }
+            data[pos++] = Item.getIdFromItem(stack.getItem());
+            data[pos++] = stack.getItemDamage();
+            data[pos++] = stack.stackSize;
+            data[pos++] = stack.hasTagCompound() ? 1 : 0;
+        }
+        return pos;
+    }
+
+    private static int writeSpecials(int[] data, int pos, ItemStack[] stacks) {
+        int countPos = pos++;
+        int count = 0;
+        if (stacks != null) {
+            for (ItemStack stack : stacks) {
+                if (stack != null && stack.getItem() != null) {
+                    data[pos++] = Item.getIdFromItem(stack.getItem());
+                    data[pos++] = stack.getItemDamage();
+                    data[pos++] = stack.hasTagCompound() ? 1 : 0;
+                    count++;
+                }
+            }
+        }
+        data[countPos] = count;
+        return pos;
+    }
+
+    private static int writeFluids(int[] data, int pos, FluidStack[] stacks) {
+        int countPos = pos++;
+        int count = 0;
+        if (stacks != null) {
+            for (FluidStack stack : stacks) {
+                if (stack != null && stack.getFluid() != null) {
+                    data[pos++] = stack.getFluidID();
+                    data[pos++] = stack.amount;
+                    count++;
+                }
+            }
+        }
+        data[countPos] = count;
+        return pos;
+    }
+
+    private static NBTTagCompound[] collectTags(ItemStack[]... groups) {
+        int count = 0;
+        for (ItemStack[] stacks : groups) {
+            count += countTagged(stacks);
+        }
+        if (count == 0) {
+            return NO_TAGS;
+        }
+        NBTTagCompound[] tags = new NBTTagCompound[count];
+        int pos = 0;
+        for (ItemStack[] stacks : groups) {
+            if (stacks == null) {
+                continue;
+            }
+            for (ItemStack stack : stacks) {
+                if (stack != null && stack.getItem() != null && stack.hasTagCompound()) {
+                    tags[pos++] = stack.getTagCompound();
+                }
+            }
+        }
+        return tags;
+    }
+
+    private static int countTagged(ItemStack[] stacks) {
+        int count = 0;
+        if (stacks != null) {
+            for (ItemStack stack : stacks) {
+                if (stack != null && stack.getItem() != null && stack.hasTagCompound()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof RecipeIdentityKey)) {
+            return false;
+        }
+        RecipeIdentityKey key = (RecipeIdentityKey) other;
+        return hash == key.hash && Arrays.equals(data, key.data)
+            && Arrays.equals(tags, key.tags)
+            && (scope != null ? scope.equals(key.scope) : key.scope == null);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
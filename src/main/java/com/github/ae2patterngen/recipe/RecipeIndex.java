@@ -0,0 +1,224 @@
+package com.github.ae2patterngen.recipe;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import com.github.ae2patterngen.util.OreDictUtil;
+
+/**
+ * 单个配方表的倒排索引 — 物品 id+meta / 矿辞名 -> 配方序号 (按输入、输出分别建立)。
+ * <p>
+ * 序号即配方在配方表列表中的下标；倒排表为升序 int 数组。只索引 {@link RecipeRecordView.Slot#INPUT} 与
+ * {@link RecipeRecordView.Slot#OUTPUT}，其余槽位返回 null 表示未建立索引。
+ */
+public final class RecipeIndex {
+
+    private static final int[] NO_POSTINGS = new int[0];
+
+    private final int size;
+    private final SlotIndex inputs;
+    private final SlotIndex outputs;
+
+    private RecipeIndex(int size, SlotIndex inputs, SlotIndex outputs) {
+        this.size = size;
+        this.inputs = inputs;
+        this.outputs = outputs;
+    }
+
+    public static RecipeIndex build(List<RecipeEntry> recipes) {
+        return build(recipes, OreDictUtil::getOreNamesSafe);
+    }
+
+    public static RecipeIndex build(List<RecipeEntry> recipes, Function<ItemStack, String[]> oreNameLookup) {
+        SlotIndex.Builder inputs = new SlotIndex.Builder();
+        SlotIndex.Builder outputs = new SlotIndex.Builder();
+        for (int ordinal = 0; ordinal < recipes.size(); ordinal++) {
+            RecipeEntry recipe = recipes.get(ordinal);
+            if (recipe == null) {
+                continue;
+            }
+            inputs.add(ordinal, recipe.inputs, oreNameLookup);
+            outputs.add(ordinal, recipe.outputs, oreNameLookup);
+        }
+        return new RecipeIndex(recipes.size(), inputs.build(), outputs.build());
+    }
+
+    /**
+     * 配方表中的配方数量 (序号上界)。
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isIndexed(RecipeRecordView.Slot slot) {
+        return slotIndex(slot) != null;
+    }
+
+    /**
+     * @return 含有指定 id+meta 物品的配方序号；槽位未索引时返回 null
+     */
+    public int[] itemPostings(RecipeRecordView.Slot slot, int itemId, int meta) {
+        SlotIndex index = slotIndex(slot);
+        if (index == null) {
+            return null;
+        }
+        int[] postings = index.items.get(Long.valueOf(itemKey(itemId, meta)));
+        return postings != null ? postings : NO_POSTINGS;
+    }
+
+    /**
+     * @return 含有指定 id (任意 meta) 物品的配方序号；槽位未索引时返回 null
+     */
+    public int[] itemPostings(RecipeRecordView.Slot slot, int itemId) {
+        SlotIndex index = slotIndex(slot);
+        if (index == null) {
+            return null;
+        }
+        int[] postings = index.itemsAnyMeta.get(Integer.valueOf(itemId));
+        return postings != null ? postings : NO_POSTINGS;
+    }
+
+    /**
+     * 该槽位中出现过的所有矿辞名，供正则规则一次性解析。
+     */
+    public Set<String> getOreNames(RecipeRecordView.Slot slot) {
+        SlotIndex index = slotIndex(slot);
+        return index != null ? Collections.unmodifiableSet(index.ores.keySet()) : Collections.<String>emptySet();
+    }
+
+    public int[] orePostings(RecipeRecordView.Slot slot, String oreName) {
+        SlotIndex index = slotIndex(slot);
+        if (index == null) {
+            return null;
+        }
+        int[] postings = index.ores.get(oreName);
+        return postings != null ? postings : NO_POSTINGS;
+    }
+
+    /**
+     * 将倒排表并入候选集合。
+     */
+    public static void union(BitSet target, int[] postings) {
+        if (postings == null) {
+            return;
+        }
+        for (int ordinal : postings) {
+            target.set(ordinal);
+        }
+    }
+
+    private SlotIndex slotIndex(RecipeRecordView.Slot slot) {
+        switch (slot) {
+            case INPUT:
+                return inputs;
+            case OUTPUT:
+                return outputs;
+            default:
+                return null;
+        }
+    }
+
+    private static long itemKey(int itemId, int meta) {
+        return ((long) itemId << 32) | (meta & 0xFFFFFFFFL);
+    }
+
+    private static final class SlotIndex {
+
+        private final Map<Long, int[]> items;
+        private final Map<Integer, int[]> itemsAnyMeta;
+        private final Map<String, int[]> ores;
+
+        private SlotIndex(Map<Long, int[]> items, Map<Integer, int[]> itemsAnyMeta, Map<String, int[]> ores) {
+            this.items = items;
+            this.itemsAnyMeta = itemsAnyMeta;
+            this.ores = ores;
+        }
+
+        private static final class Builder {
+
+            private final Map<Long, PostingList> items = new HashMap<Long, PostingList>();
+            private final Map<Integer, PostingList> itemsAnyMeta = new HashMap<Integer, PostingList>();
+            private final Map<String, PostingList> ores = new HashMap<String, PostingList>();
+
+            private void add(int ordinal, ItemStack[] stacks, Function<ItemStack, String[]> oreNameLookup) {
+                if (stacks == null) {
+                    return;
+                }
+                for (ItemStack stack : stacks) {
+                    if (stack == null || stack.getItem() == null) {
+                        continue;
+                    }
+                    int itemId = Item.getIdFromItem(stack.getItem());
+                    posting(items, Long.valueOf(itemKey(itemId, stack.getItemDamage()))).add(ordinal);
+                    posting(itemsAnyMeta, Integer.valueOf(itemId)).add(ordinal);
+
+                    String[] oreNames = oreNameLookup.apply(stack);
+                    if (oreNames == null) {
+                        continue;
+                    }
+                    for (String oreName : oreNames) {
+                        if (oreName != null && !oreName.isEmpty()) {
+                            posting(ores, oreName).add(ordinal);
+                        }
+                    }
+                }
+            }
+
+            private SlotIndex build() {
+                return new SlotIndex(freeze(items), freeze(itemsAnyMeta), freeze(ores));
+            }
+
+            private static <K> PostingList posting(Map<K, PostingList> postings, K key) {
+                PostingList list = postings.get(key);
+                if (list == null) {
+                    list = new PostingList();
+                    postings.put(key, list);
+                }
+                return list;
+            }
+
+            private static <K> Map<K, int[]> freeze(Map<K, PostingList> postings) {
+                Map<K, int[]> frozen = new HashMap<K, int[]>(Math.max(16, postings.size() * 4 / 3 + 1));
+                for (Map.Entry<K, PostingList> entry : postings.entrySet()) {
+                    frozen.put(
+                        entry.getKey(),
+                        entry.getValue()
+                            .toArray());
+                }
+                return frozen;
+            }
+        }
+    }
+
+    /**
+     * 升序追加、自动去重的 int 列表。
+     */
+    private static final class PostingList {
+
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int ordinal) {
+            if (size > 0 && values[size - 1] == ordinal) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = ordinal;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
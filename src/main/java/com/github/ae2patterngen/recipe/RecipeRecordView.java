@@ -0,0 +1,27 @@
+package com.github.ae2patterngen.recipe;
+
+/**
+ * 未解码配方记录的只读视图 — 在构建 {@link RecipeEntry} 之前即可读取电压与物品 ID。
+ * <p>
+ * 视图只在游标停留于当前记录期间有效，不应被保存。无法解析的物品 ID 为 -1。
+ */
+public interface RecipeRecordView {
+
+    enum Slot {
+        INPUT,
+        OUTPUT,
+        SPECIAL
+    }
+
+    int getEuPerTick();
+
+    int getDuration();
+
+    int getItemCount(Slot slot);
+
+    int getItemId(Slot slot, int index);
+
+    int getItemMeta(Slot slot, int index);
+
+    int getStackSize(Slot slot, int index);
+}
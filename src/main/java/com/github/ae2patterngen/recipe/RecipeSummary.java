@@ -0,0 +1,92 @@
+package com.github.ae2patterngen.recipe;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fluids.FluidStack;
+
+/**
+ * 配方的原始类型摘要 — 电压等级、打包的物品 id+meta、NC 标记与流体 id。
+ * <p>
+ * 数组下标与 {@link RecipeEntry} 中对应的物品/流体数组一一对应，空槽位记为 {@link #ABSENT_ITEM} /
+ * {@link #ABSENT_FLUID}。过滤器在热路径上只读这些数组，无需再访问 ItemStack 或调用 {@link Item#getIdFromItem}。
+ */
+public final class RecipeSummary {
+
+    public static final long ABSENT_ITEM = Long.MIN_VALUE;
+    public static final int ABSENT_FLUID = -1;
+
+    /** 电压等级，EU/t &lt;= 0 时为 -1 */
+    public final int tier;
+
+    public final long[] inputItems;
+    public final long[] outputItems;
+    public final long[] specialItems;
+
+    /** 数量为 0 的输入 (不消耗，视为 NC 物品) */
+    public final boolean[] ncInputs;
+
+    public final int[] fluidInputIds;
+    public final int[] fluidOutputIds;
+
+    private RecipeSummary(RecipeEntry recipe) {
+        this.tier = tierOf(recipe.euPerTick);
+        this.inputItems = packItems(recipe.inputs);
+        this.outputItems = packItems(recipe.outputs);
+        this.specialItems = packItems(recipe.specialItems);
+        this.ncInputs = new boolean[recipe.inputs.length];
+        for (int i = 0; i < recipe.inputs.length; i++) {
+            ncInputs[i] = inputItems[i] != ABSENT_ITEM && recipe.inputs[i].stackSize == 0;
+        }
+        this.fluidInputIds = fluidIds(recipe.fluidInputs);
+        this.fluidOutputIds = fluidIds(recipe.fluidOutputs);
+    }
+
+    static RecipeSummary of(RecipeEntry recipe) {
+        return new RecipeSummary(recipe);
+    }
+
+    /**
+     * 按 GT 电压阶梯 (8, 32, 128 ...) 计算 EU/t 所属等级。
+     */
+    public static int tierOf(long euPerTick) {
+        if (euPerTick <= 0) return -1;
+        long threshold = 8;
+        int tier = 0;
+        while (euPerTick > threshold) {
+            threshold *= 4;
+            tier++;
+        }
+        return tier;
+    }
+
+    public static long packItem(int itemId, int meta) {
+        return ((long) itemId << 32) | (meta & 0xFFFFFFFFL);
+    }
+
+    public static int itemId(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    public static int meta(long packed) {
+        return (int) packed;
+    }
+
+    private static long[] packItems(ItemStack[] stacks) {
+        long[] packed = new long[stacks.length];
+        for (int i = 0; i < stacks.length; i++) {
+            ItemStack stack = stacks[i];
+            Item item = stack != null ? stack.getItem() : null;
+            packed[i] = item != null ? packItem(Item.getIdFromItem(item), stack.getItemDamage()) : ABSENT_ITEM;
+        }
+        return packed;
+    }
+
+    private static int[] fluidIds(FluidStack[] stacks) {
+        int[] ids = new int[stacks.length];
+        for (int i = 0; i < stacks.length; i++) {
+            FluidStack stack = stacks[i];
+            ids[i] = stack != null && stack.getFluid() != null ? stack.getFluidID() : ABSENT_FLUID;
+        }
+        return ids;
+    }
+}
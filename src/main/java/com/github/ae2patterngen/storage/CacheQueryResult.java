@@ -4,14 +4,27 @@ import java.util.Collections;
 import java.util.List;
 
 import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.util.CancellationToken;
 
 /**
  * Query result returned by the recipe cache service.
  */
 public class CacheQueryResult {
 
+    /**
+     * Outcome of the query. Only {@link #OK} results carry recipes; aborted queries are never cached.
+     */
+    public enum Status {
+        OK,
+        INVALID_CACHE,
+        CANCELLED,
+        DEADLINE_EXCEEDED
+    }
+
     public static final String SOURCE_DISK = "DISK";
+    public static final String SOURCE_QUERY_CACHE = "QUERY_CACHE";
 
+    public final Status status;
     public final boolean cacheValid;
     public final String failureReason;
     public final List<String> matchedMapIds;
@@ -21,10 +34,11 @@ public class CacheQueryResult {
     public final String cacheSource;
     public final List<String> warnings;
 
-    private CacheQueryResult(boolean cacheValid, String failureReason, List<String> matchedMapIds,
+    private CacheQueryResult(Status status, String failureReason, List<String> matchedMapIds,
         List<RecipeEntry> recipes, int totalLoadedCount, int totalFilteredCount, String cacheSource,
         List<String> warnings) {
-        this.cacheValid = cacheValid;
+        this.status = status;
+        this.cacheValid = status != Status.INVALID_CACHE;
         this.failureReason = failureReason;
         this.matchedMapIds = matchedMapIds;
         this.recipes = recipes;
@@ -36,7 +50,7 @@ public class CacheQueryResult {
 
     public static CacheQueryResult invalid(String failureReason) {
         return new CacheQueryResult(
-            false,
+            Status.INVALID_CACHE,
             failureReason,
             Collections.<String>emptyList(),
             Collections.<RecipeEntry>emptyList(),
@@ -48,14 +62,59 @@ public class CacheQueryResult {
 
     public static CacheQueryResult valid(List<String> matchedMapIds, List<RecipeEntry> recipes, int totalLoadedCount,
         int totalFilteredCount) {
+        return valid(matchedMapIds, recipes, totalLoadedCount, totalFilteredCount, Collections.<String>emptyList());
+    }
+
+    /**
+     * A successful result that may be incomplete, e.g. when a matched map could not be read. Results with warnings
+     * are not kept in the query result cache.
+     */
+    public static CacheQueryResult valid(List<String> matchedMapIds, List<RecipeEntry> recipes, int totalLoadedCount,
+        int totalFilteredCount, List<String> warnings) {
         return new CacheQueryResult(
-            true,
+            Status.OK,
             "",
             matchedMapIds,
             recipes,
             totalLoadedCount,
             totalFilteredCount,
             SOURCE_DISK,
+            warnings);
+    }
+
+    /**
+     * Result of a scan that was cancelled or ran past its deadline. It carries no recipes.
+     */
+    public static CacheQueryResult aborted(List<String> matchedMapIds, CancellationToken.Reason reason) {
+        Status status = reason == CancellationToken.Reason.DEADLINE_EXCEEDED ? Status.DEADLINE_EXCEEDED
+            : Status.CANCELLED;
+        return new CacheQueryResult(
+            status,
+            status == Status.DEADLINE_EXCEEDED ? "deadline_exceeded" : "cancelled",
+            matchedMapIds,
+            Collections.<RecipeEntry>emptyList(),
+            0,
+            0,
+            SOURCE_DISK,
             Collections.<String>emptyList());
     }
+
+    public boolean isAborted() {
+        return status == Status.CANCELLED || status == Status.DEADLINE_EXCEEDED;
+    }
+
+    /**
+     * Read-only copy shared through the query result cache.
+     */
+    CacheQueryResult sharedCopy(String source) {
+        return new CacheQueryResult(
+            status,
+            failureReason,
+            Collections.unmodifiableList(matchedMapIds),
+            Collections.unmodifiableList(recipes),
+            totalLoadedCount,
+            totalFilteredCount,
+            source,
+            warnings);
+    }
 }
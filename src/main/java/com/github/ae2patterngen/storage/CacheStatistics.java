@@ -7,6 +7,9 @@ public class CacheStatistics {
 
     public static final CacheStatistics EMPTY = new CacheStatistics(false, 0, 0, 0, 0L, 0L, 0L);
 
+    /** Marker for {@link #rewrittenMaps} / {@link #skippedMaps} when the statistics do not come from a rebuild. */
+    public static final int NOT_REBUILT = -1;
+
     public final boolean available;
     public final int totalRecipeCount;
     public final int totalRecipeMaps;
@@ -14,9 +17,37 @@ public class CacheStatistics {
     public final long directoryBytes;
     public final long createdAt;
     public final long lastUpdated;
+    public final long memoryCacheHits;
+    public final long memoryCacheMisses;
+    public final long memoryCacheEvictions;
+    public final int memoryCachedMaps;
+    public final long memoryCachedRecipes;
+    public final int rewrittenMaps;
+    public final int skippedMaps;
 
     public CacheStatistics(boolean available, int totalRecipeCount, int totalRecipeMaps, int totalModCount,
         long directoryBytes, long createdAt, long lastUpdated) {
+        this(
+            available,
+            totalRecipeCount,
+            totalRecipeMaps,
+            totalModCount,
+            directoryBytes,
+            createdAt,
+            lastUpdated,
+            0L,
+            0L,
+            0L,
+            0,
+            0L,
+            NOT_REBUILT,
+            NOT_REBUILT);
+    }
+
+    public CacheStatistics(boolean available, int totalRecipeCount, int totalRecipeMaps, int totalModCount,
+        long directoryBytes, long createdAt, long lastUpdated, long memoryCacheHits, long memoryCacheMisses,
+        long memoryCacheEvictions, int memoryCachedMaps, long memoryCachedRecipes, int rewrittenMaps,
+        int skippedMaps) {
         this.available = available;
         this.totalRecipeCount = totalRecipeCount;
         this.totalRecipeMaps = totalRecipeMaps;
@@ -24,5 +55,12 @@ public class CacheStatistics {
         this.directoryBytes = directoryBytes;
         this.createdAt = createdAt;
         this.lastUpdated = lastUpdated;
+        this.memoryCacheHits = memoryCacheHits;
+        this.memoryCacheMisses = memoryCacheMisses;
+        this.memoryCacheEvictions = memoryCacheEvictions;
+        this.memoryCachedMaps = memoryCachedMaps;
+        this.memoryCachedRecipes = memoryCachedRecipes;
+        this.rewrittenMaps = rewrittenMaps;
+        this.skippedMaps = skippedMaps;
     }
 }
@@ -0,0 +1,178 @@
+package com.github.ae2patterngen.storage;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.recipe.RecipeIndex;
+
+/**
+ * In-memory LRU of decoded recipe maps, weighted by recipe count.
+ * <p>
+ * Entries are keyed by map id and tagged with the {@link RecipeCacheMetadata.RecipeMapInfo#contentHash} they were
+ * decoded from, so a rebuilt map is never served from a stale decode. Each entry can also carry a
+ * {@link RecipeIndex}, built on first use and dropped together with the decode.
+ */
+final class DecodedRecipeMapCache {
+
+    private final IntSupplier maxWeightSupplier;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long totalWeight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    DecodedRecipeMapCache(IntSupplier maxWeightSupplier) {
+        this.maxWeightSupplier = maxWeightSupplier;
+    }
+
+    /**
+     * @return the cached recipes, or {@code null} on a miss or when the cached decode has a different content hash
+     */
+    synchronized List<RecipeEntry> get(String mapId, String contentHash) {
+        Entry entry = entries.get(mapId);
+        if (entry != null && entry.contentHash.equals(contentHash)) {
+            hits++;
+            return entry.recipes;
+        }
+
+        if (entry != null) {
+            removeEntry(mapId);
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Returns the inverted index of a cached decode, building it on first request.
+     *
+     * @return {@code null} when the map is not cached under {@code contentHash}
+     */
+    RecipeIndex getIndex(String mapId, String contentHash) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(mapId);
+        }
+        if (entry == null || !entry.contentHash.equals(contentHash)) {
+            return null;
+        }
+        return entry.index();
+    }
+
+    /**
+     * Whether a map of the given size could be held at all under the current budget.
+     */
+    boolean accepts(int recipeCount) {
+        return weightOf(recipeCount) <= maxWeightSupplier.getAsInt();
+    }
+
+    synchronized List<RecipeEntry> put(String mapId, String contentHash, List<RecipeEntry> recipes) {
+        List<RecipeEntry> shared = Collections.unmodifiableList(recipes);
+        int weight = weightOf(recipes.size());
+        int maxWeight = maxWeightSupplier.getAsInt();
+        if (weight > maxWeight) {
+            return shared;
+        }
+
+        removeEntry(mapId);
+        entries.put(mapId, new Entry(contentHash, shared, weight));
+        totalWeight += weight;
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet()
+            .iterator();
+        while (totalWeight > maxWeight && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            if (eldest.getKey()
+                .equals(mapId)) {
+                continue;
+            }
+            totalWeight -= eldest.getValue().weight;
+            iterator.remove();
+            evictions++;
+        }
+        return shared;
+    }
+
+    /**
+     * Drops entries whose map disappeared or whose content hash no longer matches the metadata.
+     */
+    synchronized void retainCurrent(Map<String, RecipeCacheMetadata.RecipeMapInfo> recipeMaps) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet()
+            .iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            RecipeCacheMetadata.RecipeMapInfo info = recipeMaps.get(entry.getKey());
+            if (info == null || !entry.getValue().contentHash.equals(info.contentHash)) {
+                totalWeight -= entry.getValue().weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        totalWeight = 0L;
+    }
+
+    synchronized void resetCounters() {
+        hits = 0L;
+        misses = 0L;
+        evictions = 0L;
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    synchronized long getTotalWeight() {
+        return totalWeight;
+    }
+
+    private void removeEntry(String mapId) {
+        Entry removed = entries.remove(mapId);
+        if (removed != null) {
+            totalWeight -= removed.weight;
+        }
+    }
+
+    private static int weightOf(int recipeCount) {
+        return Math.max(1, recipeCount);
+    }
+
+    private static final class Entry {
+
+        private final String contentHash;
+        private final List<RecipeEntry> recipes;
+        private final int weight;
+        private RecipeIndex index;
+
+        private Entry(String contentHash, List<RecipeEntry> recipes, int weight) {
+            this.contentHash = contentHash;
+            this.recipes = recipes;
+            this.weight = weight;
+        }
+
+        private synchronized RecipeIndex index() {
+            if (index == null) {
+                index = RecipeIndex.build(recipes);
+            }
+            return index;
+        }
+    }
+}
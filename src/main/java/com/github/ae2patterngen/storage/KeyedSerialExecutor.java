@@ -0,0 +1,105 @@
+package com.github.ae2patterngen.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按键串行的任务队列 — 同一键的任务严格按提交顺序逐个执行，不同键的任务在底层线程池上并行。
+ * <p>
+ * 每个键只保留队尾任务的 future；队列排空后移除该键，不持有已完成的任务。
+ */
+final class KeyedSerialExecutor<K> {
+
+    private final Executor executor;
+    private final Map<K, CompletableFuture<Void>> tails = new HashMap<>();
+
+    KeyedSerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 在同一键之前提交的任务全部结束后执行 {@code task}。前一个任务失败不影响后续任务。
+     *
+     * @return 任务结果；任务抛出异常或线程池拒绝时以异常完成
+     */
+    <R> CompletableFuture<R> submit(K key, Callable<R> task) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        // 队尾标记先于结果完成，调用方看到结果时该任务已不再计入队列
+        CompletableFuture<Void> tail = new CompletableFuture<>();
+        Runnable step = () -> {
+            try {
+                R value = task.call();
+                finish(key, tail);
+                result.complete(value);
+            } catch (Throwable t) {
+                finish(key, tail);
+                result.completeExceptionally(t);
+            }
+        };
+        CompletableFuture<Void> previous;
+        synchronized (tails) {
+            previous = tails.put(key, tail);
+        }
+        if (previous == null) {
+            dispatch(key, tail, step, result);
+        } else {
+            previous.whenComplete((ignored, error) -> dispatch(key, tail, step, result));
+        }
+        return result;
+    }
+
+    /**
+     * @return 仍有未完成任务的键数
+     */
+    int pendingKeys() {
+        synchronized (tails) {
+            return tails.size();
+        }
+    }
+
+    private void dispatch(K key, CompletableFuture<Void> tail, Runnable step, CompletableFuture<?> result) {
+        try {
+            executor.execute(step);
+        } catch (RejectedExecutionException e) {
+            finish(key, tail);
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void finish(K key, CompletableFuture<Void> tail) {
+        synchronized (tails) {
+            tails.remove(key, tail);
+        }
+        tail.complete(null);
+    }
+
+    /**
+     * 等待调用时已提交的全部任务结束 (服务器关闭时调用)。
+     *
+     * @return 超时前全部结束时返回 true
+     */
+    boolean awaitIdle(long timeoutMillis) {
+        List<CompletableFuture<Void>> pending;
+        synchronized (tails) {
+            pending = new ArrayList<>(tails.values());
+        }
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]))
+                .get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import cpw.mods.fml.common.ModContainer;
 public final class ModVersionHelper {
 
     private static final String MISSING_HASH = "MISSING";
+    private static final long NULL_MARKER = 0x8000000000000001L;
 
     private static volatile LoadedModVersionsProvider loadedModVersionsProvider = new LoadedModVersionsProvider() {
 
@@ -85,6 +86,33 @@ public final class ModVersionHelper {
         return hashes;
     }
 
+    /**
+     * Cheap change signal for the tracked config files (path, size, mtime) — used to decide whether
+     * {@link #calculateConfigHashes()} needs to be recomputed at all.
+     */
+    public static String calculateConfigStamp() {
+        StringBuilder stamp = new StringBuilder();
+        for (File file : configFilesProvider.get()) {
+            if (file != null) {
+                appendFileStamp(stamp, file);
+            }
+        }
+        return stamp.toString();
+    }
+
+    static void appendFileStamp(StringBuilder stamp, File file) {
+        stamp.append(file.getPath())
+            .append(':');
+        if (file.isFile()) {
+            stamp.append(file.length())
+                .append(':')
+                .append(file.lastModified());
+        } else {
+            stamp.append(MISSING_HASH);
+        }
+        stamp.append(';');
+    }
+
     public static String calculateConfigHash(File file) {
         if (file == null || !file.exists() || !file.isFile()) {
             return MISSING_HASH;
@@ -103,23 +131,36 @@ public final class ModVersionHelper {
         }
     }
 
+    /**
+     * Order-independent content hash of a recipe map.
+     * <p>
+     * Each recipe is streamed field by field into a 128-bit hash and the per-recipe hashes are summed lane-wise, so
+     * memory stays constant regardless of map size and the result does not depend on recipe order. Only registry
+     * names, characters and primitives are fed in, which keeps the value stable across runs.
+     */
     public static String calculateRecipeMapHash(String mapId, List<RecipeEntry> recipes) {
-        List<String> descriptors = new ArrayList<String>();
+        RecipeHasher hasher = new RecipeHasher();
+        long sumLow = 0L;
+        long sumHigh = 0L;
+        int count = 0;
         if (recipes != null) {
             for (RecipeEntry recipe : recipes) {
-                descriptors.add(describeRecipe(recipe));
+                hasher.reset();
+                hashRecipe(hasher, recipe);
+                hasher.finish();
+                sumLow += hasher.low;
+                sumHigh += hasher.high;
+                count++;
             }
         }
-        Collections.sort(descriptors);
 
-        StringBuilder payload = new StringBuilder();
-        payload.append(mapId != null ? mapId : "")
-            .append('\n');
-        for (String descriptor : descriptors) {
-            payload.append(descriptor)
-                .append('\n');
-        }
-        return sha256(payload.toString());
+        hasher.reset();
+        hasher.putString(mapId != null ? mapId : "");
+        hasher.putLong(count);
+        hasher.putLong(sumLow);
+        hasher.putLong(sumHigh);
+        hasher.finish();
+        return toHex(hasher.high) + toHex(hasher.low);
     }
 
     public static boolean isModVersionChanged(RecipeCacheMetadata metadata, Map<String, String> currentVersions) {
@@ -225,79 +266,66 @@ public final class ModVersionHelper {
         }
     }
 
-    private static String describeRecipe(RecipeEntry recipe) {
+    private static void hashRecipe(RecipeHasher hasher, RecipeEntry recipe) {
         if (recipe == null) {
-            return "null";
+            hasher.putLong(NULL_MARKER);
+            return;
         }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append(recipe.sourceType)
-            .append('|')
-            .append(recipe.recipeMapId)
-            .append('|')
-            .append(recipe.machineDisplayName)
-            .append('|')
-            .append(recipe.duration)
-            .append('|')
-            .append(recipe.euPerTick)
-            .append('|');
-        appendItemStacks(sb, recipe.inputs);
-        sb.append('|');
-        appendItemStacks(sb, recipe.outputs);
-        sb.append('|');
-        appendFluidStacks(sb, recipe.fluidInputs);
-        sb.append('|');
-        appendFluidStacks(sb, recipe.fluidOutputs);
-        sb.append('|');
-        appendItemStacks(sb, recipe.specialItems);
-        return sb.toString();
+        hasher.putString(recipe.sourceType);
+        hasher.putString(recipe.recipeMapId);
+        hasher.putString(recipe.machineDisplayName);
+        hasher.putLong(recipe.duration);
+        hasher.putLong(recipe.euPerTick);
+        hashItemStacks(hasher, recipe.inputs);
+        hashItemStacks(hasher, recipe.outputs);
+        hashFluidStacks(hasher, recipe.fluidInputs);
+        hashFluidStacks(hasher, recipe.fluidOutputs);
+        hashItemStacks(hasher, recipe.specialItems);
     }
 
-    private static void appendItemStacks(StringBuilder sb, ItemStack[] stacks) {
+    private static void hashItemStacks(RecipeHasher hasher, ItemStack[] stacks) {
         if (stacks == null) {
+            hasher.putLong(NULL_MARKER);
             return;
         }
+        hasher.putLong(stacks.length);
         for (ItemStack stack : stacks) {
             if (stack == null || stack.getItem() == null) {
-                sb.append("null,");
+                hasher.putLong(NULL_MARKER);
                 continue;
             }
 
             Object registryName = Item.itemRegistry.getNameForObject(stack.getItem());
-            sb.append(registryName != null ? registryName : Item.getIdFromItem(stack.getItem()))
-                .append('@')
-                .append(stack.getItemDamage())
-                .append('@')
-                .append(stack.stackSize);
-            if (stack.hasTagCompound()) {
-                sb.append('@')
-                    .append(
-                        stack.getTagCompound()
-                            .toString());
+            if (registryName != null) {
+                hasher.putString(registryName.toString());
+            } else {
+                hasher.putLong(Item.getIdFromItem(stack.getItem()));
             }
-            sb.append(',');
+            hasher.putLong(stack.getItemDamage());
+            hasher.putLong(stack.stackSize);
+            hasher.putString(
+                stack.hasTagCompound() ? stack.getTagCompound()
+                    .toString() : null);
         }
     }
 
-    private static void appendFluidStacks(StringBuilder sb, FluidStack[] stacks) {
+    private static void hashFluidStacks(RecipeHasher hasher, FluidStack[] stacks) {
         if (stacks == null) {
+            hasher.putLong(NULL_MARKER);
             return;
         }
+        hasher.putLong(stacks.length);
         for (FluidStack stack : stacks) {
             if (stack == null || stack.getFluid() == null) {
-                sb.append("null,");
+                hasher.putLong(NULL_MARKER);
                 continue;
             }
-            sb.append(
+            hasher.putString(
                 stack.getFluid()
-                    .getName())
-                .append('@')
-                .append(stack.amount);
-            if (stack.tag != null) {
-                sb.append('@')
-                    .append(stack.tag.toString());
-            }
-            sb.append(',');
+                    .getName());
+            hasher.putLong(stack.amount);
+            hasher.putString(stack.tag != null ? stack.tag.toString() : null);
         }
     }
 
@@ -310,6 +338,11 @@ public final class ModVersionHelper {
         }
     }
 
+    private static String toHex(long value) {
+        String hex = Long.toHexString(value);
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+
     private static String toHex(byte[] bytes) {
         StringBuilder sb = new StringBuilder(bytes.length * 2);
         for (byte value : bytes) {
@@ -318,6 +351,73 @@ public final class ModVersionHelper {
         return sb.toString();
     }
 
+    /**
+     * Streaming 128-bit hash (MurmurHash3 x64 mixing) fed with longs; strings are packed four chars per long.
+     */
+    private static final class RecipeHasher {
+
+        private static final long C1 = 0x87C37B91114253D5L;
+        private static final long C2 = 0x4CF5AD432745937FL;
+
+        private long low;
+        private long high;
+        private long length;
+
+        private void reset() {
+            low = 0x9368E53C2F6AF274L;
+            high = 0x586DCD208F7CD3FDL;
+            length = 0L;
+        }
+
+        private void putString(String value) {
+            if (value == null) {
+                putLong(NULL_MARKER);
+                return;
+            }
+            int size = value.length();
+            putLong(size);
+            for (int i = 0; i < size; i += 4) {
+                long packed = 0L;
+                for (int j = i; j < Math.min(size, i + 4); j++) {
+                    packed = (packed << 16) | value.charAt(j);
+                }
+                putLong(packed);
+            }
+        }
+
+        private void putLong(long value) {
+            long k1 = Long.rotateLeft(value * C1, 31) * C2;
+            low ^= k1;
+            low = Long.rotateLeft(low, 27) + high;
+            low = low * 5 + 0x52DCE729L;
+
+            long k2 = Long.rotateLeft(value * C2, 33) * C1;
+            high ^= k2;
+            high = Long.rotateLeft(high, 31) + low;
+            high = high * 5 + 0x38495AB5L;
+            length++;
+        }
+
+        private void finish() {
+            low ^= length;
+            high ^= length;
+            low += high;
+            high += low;
+            low = fmix(low);
+            high = fmix(high);
+            low += high;
+            high += low;
+        }
+
+        private static long fmix(long value) {
+            value ^= value >>> 33;
+            value *= 0xFF51AFD7ED558CCDL;
+            value ^= value >>> 33;
+            value *= 0xC4CEB9FE1A85EC53L;
+            return value ^ (value >>> 33);
+        }
+    }
+
     interface LoadedModVersionsProvider {
 
         Map<String, String> get();
@@ -0,0 +1,521 @@
+package com.github.ae2patterngen.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTSizeTracker;
+import net.minecraft.nbt.NBTTagCompound;
+
+/**
+ * 单个玩家样板仓储的分段文件布局 — 只追加的样板段 + 定长槽位索引 + 墓碑标记。
+ * <p>
+ * {@code <name>.idx}: 头部 (魔数、版本、段代号、读取游标、时间戳、来源) 后接定长槽位 (段内偏移、长度、存活标记)，
+ * 槽位顺序即样板顺序，游标之前的槽位一律视为已删除。
+ * {@code <name>.<代号>.seg}: 逐条 GZip 压缩的样板 NBT，写入后不再原地修改。
+ * {@code <name>.hdr}: 可选的摘要头部 (数量、来源、时间与前几条预览)，读取时不必打开索引槽位表或解压样板。
+ * 头部按索引代号校验；原地修改索引 (墓碑、游标) 不改变代号，因此修改前先删除头部，由调用方随后重写。
+ * <p>
+ * 删除只把对应槽位标记为墓碑 (单字节写入)，从头部取出只前移游标 (四字节写入)，读取只解压请求的槽位。整体替换与压缩写出新代号的段和索引，
+ * 以原子替换索引文件为提交点，崩溃后看到的要么是旧数据要么是新数据。非线程安全，由调用方按玩家加锁。
+ */
+final class PatternSegmentStore {
+
+    static final int MAGIC = 0x41504753; // "APGS"
+    static final int HEADER_MAGIC = 0x41504748; // "APGH"
+    /** 版本 2 起索引头部带读取游标；版本 1 的索引仍可读取 */
+    static final int VERSION = 2;
+    static final int HEADER_VERSION = 1;
+    /** 槽位: 段内偏移 (long) + 记录长度 (int) + 存活标记 (byte) */
+    static final int SLOT_SIZE = 13;
+    /** 墓碑数至少达到该值且不少于存活数时才值得压缩 */
+    static final int COMPACT_MIN_TOMBSTONES = 256;
+
+    private static final int SLOT_FLAG_OFFSET = 12;
+    /** 索引中读取游标 (int) 的位置: 魔数、版本、代号之后 */
+    private static final int HEAD_OFFSET = 16;
+    private static final int LEGACY_VERSION = 1;
+    private static final byte SLOT_LIVE = 1;
+    private static final byte SLOT_TOMBSTONE = 0;
+
+    private final File dir;
+    private final String name;
+
+    private long generation;
+    private int version = VERSION;
+    private int head;
+    private long timestamp;
+    private String source = "";
+    private long slotsStart;
+    private int slotCount;
+    private long[] offsets = new long[0];
+    private int[] lengths = new int[0];
+    private boolean[] alive = new boolean[0];
+    private int liveCount;
+
+    private PatternSegmentStore(File dir, String name) {
+        this.dir = dir;
+        this.name = name;
+    }
+
+    /**
+     * 读取索引 (只读槽位表，不解压任何样板)；索引不存在时返回空仓储。
+     */
+    static PatternSegmentStore open(File dir, String name) throws IOException {
+        PatternSegmentStore store = new PatternSegmentStore(dir, name);
+        store.readIndex();
+        return store;
+    }
+
+    static boolean exists(File dir, String name) {
+        return new File(dir, name + ".idx").exists();
+    }
+
+    /**
+     * 只读头部文件与索引开头的代号，不读槽位表、不解压样板。
+     *
+     * @return 头部；不存在、已损坏或与索引代号不一致 (写回中途崩溃) 时返回 null，调用方应回退到完整加载
+     */
+    static Header readHeader(File dir, String name) {
+        File headerFile = new File(dir, name + ".hdr");
+        File index = new File(dir, name + ".idx");
+        if (!headerFile.exists() || !index.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(headerFile)));
+            DataInputStream indexIn = new DataInputStream(new FileInputStream(index))) {
+            if (in.readInt() != HEADER_MAGIC || in.readInt() != HEADER_VERSION
+                || indexIn.readInt() != MAGIC
+                || !isSupportedVersion(indexIn.readInt())) {
+                return null;
+            }
+            long generation = in.readLong();
+            if (generation != indexIn.readLong()) {
+                return null;
+            }
+            int count = in.readInt();
+            long timestamp = in.readLong();
+            String source = in.readUTF();
+            int previewCount = in.readInt();
+            List<String> previews = new ArrayList<>();
+            for (int i = 0; i < previewCount; i++) {
+                previews.add(in.readUTF());
+            }
+            return new Header(count, source, timestamp, previews);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    int size() {
+        return liveCount;
+    }
+
+    String getSource() {
+        return source;
+    }
+
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    int getTombstoneCount() {
+        return slotCount - liveCount;
+    }
+
+    boolean needsCompaction() {
+        int tombstones = getTombstoneCount();
+        return tombstones >= COMPACT_MIN_TOMBSTONES && tombstones >= liveCount;
+    }
+
+    /**
+     * @return 存活槽位编号，按样板顺序
+     */
+    int[] liveSlots() {
+        int[] slots = new int[liveCount];
+        int next = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (alive[slot]) {
+                slots[next++] = slot;
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * 按给定顺序读取槽位中的样板。
+     */
+    List<NBTTagCompound> readSlots(int[] slots) throws IOException {
+        List<NBTTagCompound> records = new ArrayList<>(slots.length);
+        if (slots.length == 0) {
+            return records;
+        }
+        try (RandomAccessFile segment = new RandomAccessFile(segmentFile(generation), "r")) {
+            for (int slot : slots) {
+                records.add(decode(readPayload(segment, slot)));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 用新列表整体替换仓储内容。
+     */
+    void replaceAll(List<NBTTagCompound> records, String newSource, long newTimestamp) throws IOException {
+        List<byte[]> payloads = new ArrayList<>(records.size());
+        for (NBTTagCompound record : records) {
+            payloads.add(CompressedStreamTools.compress(record));
+        }
+        writeGeneration(payloads, newSource != null ? newSource : "", newTimestamp);
+    }
+
+    /**
+     * 把给定槽位标记为墓碑 (每个槽位一次单字节写入)，已是墓碑的槽位忽略。
+     */
+    void markTombstones(int[] slots) throws IOException {
+        if (slots.length == 0) {
+            return;
+        }
+        boolean headerDropped = false;
+        try (RandomAccessFile index = new RandomAccessFile(indexFile(), "rw")) {
+            for (int slot : slots) {
+                if (slot < 0 || slot >= slotCount || !alive[slot]) {
+                    continue;
+                }
+                if (!headerDropped) {
+                    dropHeader();
+                    headerDropped = true;
+                }
+                index.seek(slotsStart + (long) slot * SLOT_SIZE + SLOT_FLAG_OFFSET);
+                index.writeByte(SLOT_TOMBSTONE);
+                alive[slot] = false;
+                liveCount--;
+            }
+        }
+    }
+
+    /**
+     * 把读取游标前移到 {@code slot}，其前的槽位全部视为已删除。只写入索引头部的四个字节，不触碰槽位表与段文件；
+     * 不超过当前游标的值被忽略。
+     *
+     * @param slot 新游标，即第一个仍可能存活的槽位，最大为槽位总数
+     */
+    void advanceHead(int slot) throws IOException {
+        int newHead = Math.min(slot, slotCount);
+        if (newHead <= head) {
+            return;
+        }
+        if (version == LEGACY_VERSION) {
+            // 旧索引没有游标字段，退回逐槽位墓碑；下次整体写出时升级
+            int[] slots = new int[newHead - head];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = head + i;
+            }
+            markTombstones(slots);
+            head = newHead;
+            return;
+        }
+        dropHeader();
+        try (RandomAccessFile index = new RandomAccessFile(indexFile(), "rw")) {
+            index.seek(HEAD_OFFSET);
+            index.writeInt(newHead);
+        }
+        for (int i = head; i < newHead; i++) {
+            if (alive[i]) {
+                alive[i] = false;
+                liveCount--;
+            }
+        }
+        head = newHead;
+    }
+
+    /**
+     * 丢弃墓碑，把存活记录原样 (不重新解压/压缩) 复制到新代号的段中。
+     *
+     * @return 旧槽位到新槽位的映射，墓碑对应 -1
+     */
+    int[] compact() throws IOException {
+        int[] remap = new int[slotCount];
+        int[] slots = liveSlots();
+        List<byte[]> payloads = new ArrayList<>(slots.length);
+        Arrays.fill(remap, -1);
+        if (slots.length > 0) {
+            try (RandomAccessFile segment = new RandomAccessFile(segmentFile(generation), "r")) {
+                for (int i = 0; i < slots.length; i++) {
+                    payloads.add(readPayload(segment, slots[i]));
+                    remap[slots[i]] = i;
+                }
+            }
+        }
+        writeGeneration(payloads, source, timestamp);
+        deleteOrphanSegments();
+        return remap;
+    }
+
+    /**
+     * 按当前索引状态写出头部文件 (整体替换)。失败时删除旧头部，避免读到过期摘要。
+     *
+     * @param previews 前几条样板的预览文本
+     */
+    void writeHeader(List<String> previews) throws IOException {
+        File tmp = new File(dir, name + ".hdr.tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(HEADER_MAGIC);
+                out.writeInt(HEADER_VERSION);
+                out.writeLong(generation);
+                out.writeInt(liveCount);
+                out.writeLong(timestamp);
+                out.writeUTF(source);
+                out.writeInt(previews.size());
+                for (String preview : previews) {
+                    out.writeUTF(preview);
+                }
+            }
+            moveReplacing(tmp, headerFile());
+        } catch (IOException | RuntimeException e) {
+            tmp.delete();
+            headerFile().delete();
+            throw e;
+        }
+    }
+
+    /**
+     * 删除索引、段与头部文件。
+     */
+    void delete() {
+        File segment = segmentFile(generation);
+        headerFile().delete();
+        indexFile().delete();
+        if (segment.exists()) {
+            segment.delete();
+        }
+        generation = 0L;
+        version = VERSION;
+        head = 0;
+        timestamp = 0L;
+        source = "";
+        slotsStart = 0L;
+        slotCount = 0;
+        offsets = new long[0];
+        lengths = new int[0];
+        alive = new boolean[0];
+        liveCount = 0;
+    }
+
+    private void readIndex() throws IOException {
+        File index = indexFile();
+        if (!index.exists()) {
+            return;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(index, "r")) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a pattern storage index: " + index.getName());
+            }
+            int indexVersion = in.readInt();
+            if (!isSupportedVersion(indexVersion)) {
+                throw new IOException(
+                    "Unsupported pattern storage index version " + indexVersion + ": " + index.getName());
+            }
+            long indexGeneration = in.readLong();
+            int indexHead = indexVersion == LEGACY_VERSION ? 0 : in.readInt();
+            long indexTimestamp = in.readLong();
+            String indexSource = in.readUTF();
+            long start = in.getFilePointer();
+            long slotBytes = in.length() - start;
+            if (slotBytes % SLOT_SIZE != 0 || slotBytes / SLOT_SIZE > Integer.MAX_VALUE) {
+                throw new IOException("Truncated pattern storage index: " + index.getName());
+            }
+
+            byte[] data = new byte[(int) slotBytes];
+            in.readFully(data);
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            int count = (int) (slotBytes / SLOT_SIZE);
+            if (indexHead < 0 || indexHead > count) {
+                throw new IOException("Corrupt pattern storage index head " + indexHead + ": " + index.getName());
+            }
+            long[] slotOffsets = new long[count];
+            int[] slotLengths = new int[count];
+            boolean[] slotAlive = new boolean[count];
+            int liveSlots = 0;
+            for (int slot = 0; slot < count; slot++) {
+                slotOffsets[slot] = buffer.getLong();
+                slotLengths[slot] = buffer.getInt();
+                slotAlive[slot] = buffer.get() == SLOT_LIVE && slot >= indexHead;
+                if (slotAlive[slot]) {
+                    liveSlots++;
+                }
+            }
+
+            generation = indexGeneration;
+            version = indexVersion;
+            head = indexHead;
+            timestamp = indexTimestamp;
+            source = indexSource;
+            slotsStart = start;
+            slotCount = count;
+            offsets = slotOffsets;
+            lengths = slotLengths;
+            alive = slotAlive;
+            liveCount = liveSlots;
+        }
+    }
+
+    private void writeGeneration(List<byte[]> payloads, String newSource, long newTimestamp) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Failed to create pattern storage directory: " + dir.getAbsolutePath());
+        }
+        long nextGeneration = generation + 1;
+        File segment = segmentFile(nextGeneration);
+        File tmpIndex = new File(dir, name + ".idx.tmp");
+        int count = payloads.size();
+        long[] newOffsets = new long[count];
+        int[] newLengths = new int[count];
+        long start;
+        try {
+            try (FileOutputStream out = new FileOutputStream(segment);
+                BufferedOutputStream buffered = new BufferedOutputStream(out)) {
+                long offset = 0L;
+                for (int i = 0; i < count; i++) {
+                    byte[] payload = payloads.get(i);
+                    buffered.write(payload);
+                    newOffsets[i] = offset;
+                    newLengths[i] = payload.length;
+                    offset += payload.length;
+                }
+            }
+
+            try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmpIndex)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(nextGeneration);
+                out.writeInt(0);
+                out.writeLong(newTimestamp);
+                out.writeUTF(newSource);
+                start = out.size();
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(newOffsets[i]);
+                    out.writeInt(newLengths[i]);
+                    out.writeByte(SLOT_LIVE);
+                }
+            }
+            moveReplacing(tmpIndex, indexFile());
+        } catch (IOException | RuntimeException e) {
+            tmpIndex.delete();
+            segment.delete();
+            throw e;
+        }
+
+        File previous = segmentFile(generation);
+        generation = nextGeneration;
+        version = VERSION;
+        head = 0;
+        timestamp = newTimestamp;
+        source = newSource;
+        slotsStart = start;
+        slotCount = count;
+        offsets = newOffsets;
+        lengths = newLengths;
+        alive = new boolean[count];
+        Arrays.fill(alive, true);
+        liveCount = count;
+        if (previous.exists()) {
+            previous.delete();
+        }
+    }
+
+    private byte[] readPayload(RandomAccessFile segment, int slot) throws IOException {
+        byte[] payload = new byte[lengths[slot]];
+        segment.seek(offsets[slot]);
+        segment.readFully(payload);
+        return payload;
+    }
+
+    /**
+     * 原地修改索引前删除头部: 修改后、头部重写前崩溃时读取方回退到完整加载，而不是信任过期的数量与预览。
+     */
+    private void dropHeader() throws IOException {
+        File header = headerFile();
+        if (header.exists() && !header.delete()) {
+            throw new IOException("Failed to invalidate pattern storage header: " + header.getName());
+        }
+    }
+
+    private void deleteOrphanSegments() {
+        final String prefix = name + ".";
+        final String current = segmentFile(generation).getName();
+        File[] orphans = dir.listFiles(
+            file -> file.getName()
+                .startsWith(prefix)
+                && file.getName()
+                    .endsWith(".seg")
+                && !file.getName()
+                    .equals(current));
+        if (orphans != null) {
+            for (File orphan : orphans) {
+                orphan.delete();
+            }
+        }
+    }
+
+    private File headerFile() {
+        return new File(dir, name + ".hdr");
+    }
+
+    private File indexFile() {
+        return new File(dir, name + ".idx");
+    }
+
+    private File segmentFile(long segmentGeneration) {
+        return new File(dir, name + "." + segmentGeneration + ".seg");
+    }
+
+    private static boolean isSupportedVersion(int indexVersion) {
+        return indexVersion == VERSION || indexVersion == LEGACY_VERSION;
+    }
+
+    private static NBTTagCompound decode(byte[] payload) throws IOException {
+        return CompressedStreamTools.func_152457_a(payload, NBTSizeTracker.field_152451_a);
+    }
+
+    private static void moveReplacing(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 摘要头部。
+     */
+    static final class Header {
+
+        final int count;
+        final String source;
+        final long timestamp;
+        final List<String> previews;
+
+        Header(int count, String source, long timestamp, List<String> previews) {
+            this.count = count;
+            this.source = source;
+            this.timestamp = timestamp;
+            this.previews = previews;
+        }
+    }
+}
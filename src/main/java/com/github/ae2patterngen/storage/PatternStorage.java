@@ -2,13 +2,17 @@ package com.github.ae2patterngen.storage;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.nio.file.AtomicMoveNotSupportedException;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompressedStreamTools;
@@ -17,146 +21,130 @@ import net.minecraft.nbt.NBTTagList;
 import net.minecraftforge.common.DimensionManager;
 
 import com.github.ae2patterngen.config.ForgeConfig;
+import com.github.ae2patterngen.util.ServerThreadUtil;
 
 /**
  * 样板虚拟仓储 — 基于本地文件的持久化存储
  * <p>
- * 存储路径: {@code <世界存档>/<配置目录名>/<玩家UUID>.dat}
+ * 存储路径: {@code <世界存档>/<配置目录名>/<玩家UUID>.idx} 与 {@code <玩家UUID>.<代号>.seg}，布局见
+ * {@link PatternSegmentStore}。旧版整文件格式 ({@code <玩家UUID>.dat}，GZip 压缩的 NBT) 在首次访问时迁移。
  * <p>
- * 文件格式: GZip 压缩的 NBT，包含样板列表和元数据。
+ * 读写都经过按玩家的内存缓存 ({@link PatternStorageCache})；变更立即对后续读取可见，磁盘写入在后台合并延迟执行。
+ * 只关心数量/来源时用 {@link #peekSummary(UUID)}，未缓存的玩家只读摘要头部，不解压样板。
+ * <p>
+ * 服务器主线程与网络线程应使用 {@code *Async} 方法: 首次加载 (解压整个仓储) 等耗时操作在后台 I/O 线程执行，
+ * 同一玩家的异步操作严格按提交顺序执行；需要改动背包等游戏状态的后续步骤用 {@link #onServerThread} 切回主线程。
  */
 public class PatternStorage {
 
-    // NBT 键名
+    // 旧版 NBT 键名
     private static final String KEY_PATTERNS = "Patterns";
-    private static final String KEY_COUNT = "Count";
     private static final String KEY_SOURCE = "Source";
     private static final String KEY_TIMESTAMP = "Timestamp";
 
+    private static final long IDLE_SWEEP_SECONDS = 60L;
+    /** 服务器关闭时等待未完成异步操作的上限 */
+    private static final long CLOSE_TIMEOUT_MILLIS = 30000L;
+    private static final AtomicInteger IO_THREAD_IDS = new AtomicInteger(1);
+
+    private static final ScheduledExecutorService IO_EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AE2PatternGen-PatternStorage");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final PatternStorageCache CACHE = new PatternStorageCache(
+        IO_EXECUTOR,
+        PatternStorage::openStore,
+        tag -> extractOutputSummary(toStack(tag)));
+    private static final KeyedSerialExecutor<UUID> IO_QUEUE = new KeyedSerialExecutor<>(
+        Executors.newFixedThreadPool(ForgeConfig.getStorageIoThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "AE2PatternGen-PatternStorage-IO-" + IO_THREAD_IDS.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }));
+
+    static {
+        IO_EXECUTOR.scheduleWithFixedDelay(
+            () -> CACHE.evictIdle(TimeUnit.SECONDS.toMillis(ForgeConfig.getStorageCacheIdleSeconds())),
+            IDLE_SWEEP_SECONDS,
+            IDLE_SWEEP_SECONDS,
+            TimeUnit.SECONDS);
+    }
+
     /**
-     * 保存样板列表到文件
+     * 保存样板列表 (整体替换)；磁盘写入在后台完成
+     * <p>
+     * 返回 true 只表示变更已进入缓存。写盘失败不会反映到返回值: 后台每隔几秒重试并记录日志，
+     * 失败次数见 {@link #getStats()} ({@code /patterngen storage})。
      */
     public static boolean save(UUID playerUUID, List<ItemStack> patterns, String source) {
-        File tmpFile = null;
-        try {
-            File file = getStorageFile(playerUUID);
-            File parent = file.getParentFile();
-            if (parent != null && !parent.exists() && !parent.mkdirs()) {
-                System.err
-                    .println("[AE2PatternGen] Failed to create pattern storage directory: " + parent.getAbsolutePath());
-                return false;
-            }
-
-            NBTTagCompound root = new NBTTagCompound();
-            NBTTagList list = new NBTTagList();
-
-            for (ItemStack stack : patterns) {
-                if (stack == null) continue;
-                NBTTagCompound tag = new NBTTagCompound();
-                stack.writeToNBT(tag);
-                list.appendTag(tag);
-            }
-
-            root.setTag(KEY_PATTERNS, list);
-            root.setInteger(KEY_COUNT, list.tagCount());
-            root.setString(KEY_SOURCE, source != null ? source : "");
-            root.setLong(KEY_TIMESTAMP, System.currentTimeMillis());
-
-            tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
-            try (FileOutputStream fos = new FileOutputStream(tmpFile)) {
-                CompressedStreamTools.writeCompressed(root, fos);
-            }
+        return saveRecords(playerUUID, toRecords(patterns), source);
+    }
 
-            try {
-                Files.move(
-                    tmpFile.toPath(),
-                    file.toPath(),
-                    StandardCopyOption.REPLACE_EXISTING,
-                    StandardCopyOption.ATOMIC_MOVE);
-            } catch (AtomicMoveNotSupportedException e) {
-                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            }
-            return true;
+    private static boolean saveRecords(UUID playerUUID, List<NBTTagCompound> records, String source) {
+        try {
+            return CACHE.access(getStorageDirectory(), playerUUID, entry -> {
+                entry.replaceAll(records, source, System.currentTimeMillis());
+                return true;
+            });
         } catch (Exception e) {
             System.err.println("[AE2PatternGen] Failed to save pattern storage: " + e.getMessage());
-            if (tmpFile != null && tmpFile.exists()) {
-                tmpFile.delete();
-            }
             return false;
         }
     }
 
     /**
-     * 从文件加载全部样板
+     * 加载全部样板
      */
     public static List<ItemStack> load(UUID playerUUID) {
-        List<ItemStack> patterns = new ArrayList<>();
         try {
-            File file = getStorageFile(playerUUID);
-            if (!file.exists()) return patterns;
-
-            NBTTagCompound root;
-            try (FileInputStream fis = new FileInputStream(file)) {
-                root = CompressedStreamTools.readCompressed(fis);
-            }
-            String source = root.getString(KEY_SOURCE);
-            NBTTagList list = root.getTagList(KEY_PATTERNS, 10); // 10 = NBTTagCompound
-            boolean repaired = false;
-
-            for (int i = 0; i < list.tagCount(); i++) {
-                ItemStack stack = ItemStack.loadItemStackFromNBT(list.getCompoundTagAt(i));
-                if (stack != null) {
-                    if (stack.stackSize <= 0) {
-                        stack.stackSize = 1;
-                        repaired = true;
-                    }
-                    if (normalizePatternCounts(stack)) {
-                        repaired = true;
-                    }
-                    patterns.add(stack);
-                }
-            }
-
-            // 自动修复历史坏样板（负数/1L/Cnt-Count 不一致）并回写
-            if (repaired) {
-                save(playerUUID, patterns, source);
-            }
+            return CACHE.access(getStorageDirectory(), playerUUID, entry -> toStacks(entry.records()));
         } catch (Exception e) {
             System.err.println("[AE2PatternGen] Failed to load pattern storage: " + e.getMessage());
+            return new ArrayList<>();
         }
-        return patterns;
     }
 
     /**
-     * 获取存储摘要 (不加载全部数据)
+     * 获取存储摘要 (数量、来源、时间与全部样板的产物名)
      */
     public static StorageSummary getSummary(UUID playerUUID) {
         try {
-            File file = getStorageFile(playerUUID);
-            if (!file.exists()) return StorageSummary.EMPTY;
+            return CACHE.access(getStorageDirectory(), playerUUID, entry -> {
+                if (entry.size() == 0) return StorageSummary.EMPTY;
+                return new StorageSummary(
+                    entry.size(),
+                    entry.getSource(),
+                    entry.getTimestamp(),
+                    entry.previews(0, entry.size()));
+            });
+        } catch (Exception e) {
+            System.err.println("[AE2PatternGen] Failed to read storage summary: " + e.getMessage());
+            return StorageSummary.EMPTY;
+        }
+    }
 
-            NBTTagCompound root;
-            try (FileInputStream fis = new FileInputStream(file)) {
-                root = CompressedStreamTools.readCompressed(fis);
-            }
-            int count = root.getInteger(KEY_COUNT);
-            String source = root.getString(KEY_SOURCE);
-            long timestamp = root.getLong(KEY_TIMESTAMP);
-
-            if (count == 0) return StorageSummary.EMPTY;
-
-            // 加载前几条作为预览 (解析产物名)
-            List<String> previews = new ArrayList<>();
-            NBTTagList list = root.getTagList(KEY_PATTERNS, 10);
-            int previewCount = list.tagCount();
-            for (int i = 0; i < previewCount; i++) {
-                ItemStack stack = ItemStack.loadItemStackFromNBT(list.getCompoundTagAt(i));
-                if (stack != null) {
-                    previews.add(extractOutputSummary(stack));
-                }
-            }
+    /**
+     * 获取存储摘要头部 (数量、来源、时间与前几条产物名)；玩家未缓存时只读头部文件，不解压样板
+     */
+    public static StorageSummary peekSummary(UUID playerUUID) {
+        StorageSummary cached = CACHE.peek(playerUUID, PatternStorage::headerOf);
+        if (cached != null) return cached;
+
+        File dir = getStorageDirectory();
+        String name = playerUUID.toString();
+        PatternSegmentStore.Header header = PatternSegmentStore.readHeader(dir, name);
+        if (header != null) {
+            if (header.count == 0) return StorageSummary.EMPTY;
+            return new StorageSummary(header.count, header.source, header.timestamp, header.previews);
+        }
+        if (!PatternSegmentStore.exists(dir, name) && !getLegacyFile(dir, playerUUID).exists()) {
+            return StorageSummary.EMPTY;
+        }
 
-            return new StorageSummary(count, source, timestamp, previews);
+        // 旧版文件或头部缺失: 完整加载一次，加载时会补写头部
+        try {
+            return CACHE.access(dir, playerUUID, PatternStorage::headerOf);
         } catch (Exception e) {
             System.err.println("[AE2PatternGen] Failed to read storage summary: " + e.getMessage());
             return StorageSummary.EMPTY;
@@ -164,48 +152,82 @@ public class PatternStorage {
     }
 
     /**
-     * 检查存储是否为空
+     * 检查存储是否为空 (只读摘要头部)
      */
     public static boolean isEmpty(UUID playerUUID) {
-        File file = getStorageFile(playerUUID);
-        return !file.exists() || file.length() == 0 || getSummary(playerUUID).count == 0;
+        return peekSummary(playerUUID).count == 0;
     }
 
     /**
      * 清空存储
      */
     public static void clear(UUID playerUUID) {
-        File file = getStorageFile(playerUUID);
-        if (file.exists()) {
-            file.delete();
+        clearAndCount(playerUUID);
+    }
+
+    /**
+     * @return 清空前的样板数量
+     */
+    private static int clearAndCount(UUID playerUUID) {
+        try {
+            return CACHE.access(getStorageDirectory(), playerUUID, entry -> {
+                int count = entry.size();
+                entry.clear();
+                return count;
+            });
+        } catch (Exception e) {
+            System.err.println("[AE2PatternGen] Failed to clear pattern storage: " + e.getMessage());
+            return 0;
         }
     }
 
     /**
-     * 从存储中取出指定数量的样板，更新文件
+     * 从存储头部取出指定数量的样板
      *
      * @return 实际取出的样板列表
      */
     public static List<ItemStack> extract(UUID playerUUID, int maxCount) {
-        List<ItemStack> all = load(playerUUID);
-        List<ItemStack> extracted = new ArrayList<>();
-
-        int toExtract = Math.min(maxCount, all.size());
-        for (int i = 0; i < toExtract; i++) {
-            extracted.add(all.remove(0));
+        try {
+            return CACHE.access(getStorageDirectory(), playerUUID, entry -> toStacks(entry.removeHead(maxCount)));
+        } catch (Exception e) {
+            System.err.println("[AE2PatternGen] Failed to extract from pattern storage: " + e.getMessage());
+            return new ArrayList<>();
         }
+    }
 
-        if (all.isEmpty()) {
-            clear(playerUUID);
-        } else {
-            // 重新保存剩余的
-            StorageSummary summary = getSummary(playerUUID);
-            if (!save(playerUUID, all, summary.source)) {
-                System.err.println("[AE2PatternGen] Failed to persist remaining patterns after extract.");
-            }
+    /**
+     * 从存储头部依次把样板交给 {@code sink}，直到它拒收或存储取空；只有被接收的样板 (及无法解码的损坏记录) 被取出，
+     * 其余样板原样保留。只前移读取游标，不解码、不重写未触及的样板。
+     *
+     * @param sink 接收样板，返回 false 表示放不下，该样板及之后的样板保留在存储中
+     * @return 被接收的样板数量；存储无法读取时返回 -1
+     */
+    public static int drainHead(UUID playerUUID, Predicate<ItemStack> sink) {
+        try {
+            return CACHE.access(getStorageDirectory(), playerUUID, entry -> {
+                int consumed = 0;
+                int accepted = 0;
+                try {
+                    while (consumed < entry.size()) {
+                        ItemStack stack = toStack(entry.get(consumed).tag);
+                        if (stack != null) {
+                            if (!sink.test(stack)) {
+                                break;
+                            }
+                            accepted++;
+                        }
+                        consumed++;
+                    }
+                } finally {
+                    // sink 抛出异常时也要取出已交付的样板，避免重复
+                    entry.removeHead(consumed);
+                }
+                return accepted;
+            });
+        } catch (Exception e) {
+            System.err.println("[AE2PatternGen] Failed to drain pattern storage: " + e.getMessage());
+            return -1;
         }
-
-        return extracted;
     }
 
     /**
@@ -214,21 +236,15 @@ public class PatternStorage {
      * @return 被删除的样板，或 null（索引越界）
      */
     public static ItemStack delete(UUID playerUUID, int index) {
-        List<ItemStack> all = load(playerUUID);
-        if (index < 0 || index >= all.size()) return null;
-
-        ItemStack removed = all.remove(index);
-
-        if (all.isEmpty()) {
-            clear(playerUUID);
-        } else {
-            StorageSummary summary = getSummary(playerUUID);
-            if (!save(playerUUID, all, summary.source)) {
-                System.err.println("[AE2PatternGen] Failed to persist remaining patterns after delete.");
-            }
+        try {
+            return CACHE.access(getStorageDirectory(), playerUUID, entry -> {
+                PatternStorageCache.Record removed = entry.remove(index);
+                return removed != null ? toStack(removed.tag) : null;
+            });
+        } catch (Exception e) {
+            System.err.println("[AE2PatternGen] Failed to delete from pattern storage: " + e.getMessage());
+            return null;
         }
-
-        return removed;
     }
 
     /**
@@ -240,46 +256,149 @@ public class PatternStorage {
      */
     public static StorageSummary getPage(UUID playerUUID, int page, int pageSize) {
         try {
-            File file = getStorageFile(playerUUID);
-            if (!file.exists()) return StorageSummary.EMPTY;
+            return CACHE.access(getStorageDirectory(), playerUUID, entry -> {
+                if (entry.size() == 0) return StorageSummary.EMPTY;
+                int start = Math.min(Math.max(0, page * pageSize), entry.size());
+                int end = Math.min(start + Math.max(0, pageSize), entry.size());
+                return new StorageSummary(
+                    entry.size(),
+                    entry.getSource(),
+                    entry.getTimestamp(),
+                    entry.previews(start, end));
+            });
+        } catch (Exception e) {
+            System.err.println("[AE2PatternGen] Failed to read storage page: " + e.getMessage());
+            return StorageSummary.EMPTY;
+        }
+    }
 
-            NBTTagCompound root;
-            try (FileInputStream fis = new FileInputStream(file)) {
-                root = CompressedStreamTools.readCompressed(fis);
-            }
-            int count = root.getInteger(KEY_COUNT);
-            String source = root.getString(KEY_SOURCE);
-            long timestamp = root.getLong(KEY_TIMESTAMP);
+    /**
+     * @return 内存缓存与后台写回的状态快照
+     */
+    public static PatternStorageStats getStats() {
+        return CACHE.stats();
+    }
 
-            if (count == 0) return StorageSummary.EMPTY;
+    /**
+     * 玩家下线: 写回其未落盘的变更并移出缓存
+     */
+    public static void release(UUID playerUUID) {
+        CACHE.release(playerUUID);
+    }
 
-            NBTTagList list = root.getTagList(KEY_PATTERNS, 10);
-            int start = page * pageSize;
-            int end = Math.min(start + pageSize, list.tagCount());
+    /**
+     * 等待已提交的异步操作结束，再同步写回全部玩家的变更并清空缓存 (服务器关闭时调用)
+     */
+    public static void closeAll() {
+        if (!IO_QUEUE.awaitIdle(CLOSE_TIMEOUT_MILLIS)) {
+            System.err.println("[AE2PatternGen] Timed out waiting for pending pattern storage operations");
+        }
+        int retained = CACHE.closeAll();
+        if (retained > 0) {
+            System.err.println(
+                "[AE2PatternGen] " + retained
+                    + " player pattern storage(s) could not be written to disk and are still retried in memory;"
+                    + " changes will be lost if the process exits");
+        }
+    }
 
-            List<String> previews = new ArrayList<>();
-            for (int i = start; i < end; i++) {
-                ItemStack stack = ItemStack.loadItemStackFromNBT(list.getCompoundTagAt(i));
-                if (stack != null) {
-                    previews.add(extractOutputSummary(stack));
-                }
+    // ========== 异步接口: 在后台 I/O 线程执行，同一玩家按提交顺序 ==========
+
+    /**
+     * 异步版 {@link #save}。样板在调用线程序列化，之后调用方可以自由修改传入的列表与物品。
+     */
+    public static CompletableFuture<Boolean> saveAsync(UUID playerUUID, List<ItemStack> patterns, String source) {
+        List<NBTTagCompound> records = toRecords(patterns);
+        return IO_QUEUE.submit(playerUUID, () -> saveRecords(playerUUID, records, source));
+    }
+
+    /**
+     * 仓储为空时写入样板。检查与写入在同一个按玩家串行的任务中完成，不会覆盖在此之前排队写入的样板。
+     *
+     * @return 写入成功时为 null；仓储非空时为现有内容的摘要，样板未写入。仓储无法读取时以异常完成
+     */
+    public static CompletableFuture<StorageSummary> saveIfEmptyAsync(UUID playerUUID, List<ItemStack> patterns,
+        String source) {
+        List<NBTTagCompound> records = toRecords(patterns);
+        return IO_QUEUE.submit(playerUUID, () -> CACHE.access(getStorageDirectory(), playerUUID, entry -> {
+            if (entry.size() > 0) {
+                return headerOf(entry);
             }
+            entry.replaceAll(records, source, System.currentTimeMillis());
+            return null;
+        }));
+    }
 
-            return new StorageSummary(count, source, timestamp, previews);
-        } catch (Exception e) {
-            System.err.println("[AE2PatternGen] Failed to read storage page: " + e.getMessage());
-            return StorageSummary.EMPTY;
-        }
+    /**
+     * 异步版 {@link #extract}
+     */
+    public static CompletableFuture<List<ItemStack>> extractAsync(UUID playerUUID, int maxCount) {
+        return IO_QUEUE.submit(playerUUID, () -> extract(playerUUID, maxCount));
+    }
+
+    /**
+     * 把取出后未能交付的样板按原顺序放回存储头部，排在该玩家之前提交的异步操作之后执行。
+     */
+    public static CompletableFuture<Boolean> restoreAsync(UUID playerUUID, List<ItemStack> patterns) {
+        List<NBTTagCompound> records = toRecords(patterns);
+        return IO_QUEUE.submit(playerUUID, () -> CACHE.access(getStorageDirectory(), playerUUID, entry -> {
+            entry.restoreHead(records);
+            return true;
+        }));
+    }
+
+    /**
+     * 异步版 {@link #delete}
+     */
+    public static CompletableFuture<ItemStack> deleteAsync(UUID playerUUID, int index) {
+        return IO_QUEUE.submit(playerUUID, () -> delete(playerUUID, index));
+    }
+
+    /**
+     * 异步版 {@link #clear}
+     *
+     * @return 清空前的样板数量
+     */
+    public static CompletableFuture<Integer> clearAsync(UUID playerUUID) {
+        return IO_QUEUE.submit(playerUUID, () -> clearAndCount(playerUUID));
+    }
+
+    /**
+     * 在后台把玩家仓储加载进缓存，之后的同步调用 (如 {@link #drainHead}) 只做内存操作。
+     *
+     * @return 加载后的摘要头部；仓储无法读取时以异常完成
+     */
+    public static CompletableFuture<StorageSummary> preloadAsync(UUID playerUUID) {
+        return IO_QUEUE
+            .submit(playerUUID, () -> CACHE.access(getStorageDirectory(), playerUUID, PatternStorage::headerOf));
+    }
+
+    /**
+     * 异步操作完成后在服务器主线程执行 {@code callback}；放入背包、发送消息等操作应放在这里。
+     *
+     * @param callback 参数为结果与异常；异常非 null 时结果为 null
+     */
+    public static <R> void onServerThread(CompletableFuture<R> future,
+        BiConsumer<? super R, ? super Throwable> callback) {
+        future.whenComplete((result, error) -> ServerThreadUtil.execute(() -> callback.accept(result, error)));
     }
 
     /**
      * 获取指定索引的样板详情 (输入/输出物品名列表)
      */
     public static PatternDetail getPatternDetail(UUID playerUUID, int index) {
-        List<ItemStack> all = load(playerUUID);
-        if (index < 0 || index >= all.size()) return null;
+        ItemStack pattern;
+        try {
+            pattern = CACHE.access(getStorageDirectory(), playerUUID, entry -> {
+                PatternStorageCache.Record record = entry.get(index);
+                return record != null ? toStack(record.tag) : null;
+            });
+        } catch (Exception e) {
+            System.err.println("[AE2PatternGen] Failed to read pattern detail: " + e.getMessage());
+            return null;
+        }
+        if (pattern == null) return null;
 
-        ItemStack pattern = all.get(index);
         List<String> inputs = new ArrayList<>();
         List<String> outputs = new ArrayList<>();
 
@@ -404,11 +523,90 @@ public class PatternStorage {
         return value > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) value;
     }
 
-    private static File getStorageFile(UUID playerUUID) {
+    /**
+     * 打开玩家仓储；只有旧版 .dat 文件时先迁移为分段布局。由缓存在加载条目时调用。
+     */
+    private static PatternSegmentStore openStore(File dir, UUID playerUUID) throws IOException {
+        String name = playerUUID.toString();
+        File legacy = getLegacyFile(dir, playerUUID);
+        if (!PatternSegmentStore.exists(dir, name) && legacy.exists()) {
+            NBTTagCompound root;
+            try (FileInputStream fis = new FileInputStream(legacy)) {
+                root = CompressedStreamTools.readCompressed(fis);
+            }
+            NBTTagList list = root.getTagList(KEY_PATTERNS, 10); // 10 = NBTTagCompound
+            List<NBTTagCompound> records = new ArrayList<>(list.tagCount());
+            for (int i = 0; i < list.tagCount(); i++) {
+                ItemStack stack = toStack(list.getCompoundTagAt(i));
+                if (stack != null) {
+                    // 迁移时一并写回修复后的计数
+                    NBTTagCompound tag = new NBTTagCompound();
+                    stack.writeToNBT(tag);
+                    records.add(tag);
+                }
+            }
+            PatternSegmentStore store = PatternSegmentStore.open(dir, name);
+            store.replaceAll(records, root.getString(KEY_SOURCE), root.getLong(KEY_TIMESTAMP));
+            legacy.delete();
+            return store;
+        }
+        return PatternSegmentStore.open(dir, name);
+    }
+
+    private static List<NBTTagCompound> toRecords(List<ItemStack> patterns) {
+        List<NBTTagCompound> records = new ArrayList<>(patterns.size());
+        for (ItemStack stack : patterns) {
+            if (stack == null) continue;
+            NBTTagCompound tag = new NBTTagCompound();
+            stack.writeToNBT(tag);
+            records.add(tag);
+        }
+        return records;
+    }
+
+    private static List<ItemStack> toStacks(List<PatternStorageCache.Record> records) {
+        List<ItemStack> stacks = new ArrayList<>(records.size());
+        for (PatternStorageCache.Record record : records) {
+            ItemStack stack = toStack(record.tag);
+            if (stack != null) {
+                stacks.add(stack);
+            }
+        }
+        return stacks;
+    }
+
+    /** 调用方持有条目锁 */
+    private static StorageSummary headerOf(PatternStorageCache.Entry entry) {
+        if (entry.size() == 0) return StorageSummary.EMPTY;
+        return new StorageSummary(
+            entry.size(),
+            entry.getSource(),
+            entry.getTimestamp(),
+            entry.previews(0, PatternStorageCache.HEADER_PREVIEW_COUNT));
+    }
+
+    /**
+     * 解码单条样板，并修复历史坏样板（负数/1L/Cnt-Count 不一致）。从副本解码，返回的物品不与缓存共享 NBT。
+     */
+    private static ItemStack toStack(NBTTagCompound record) {
+        ItemStack stack = ItemStack.loadItemStackFromNBT((NBTTagCompound) record.copy());
+        if (stack != null) {
+            if (stack.stackSize <= 0) {
+                stack.stackSize = 1;
+            }
+            normalizePatternCounts(stack);
+        }
+        return stack;
+    }
+
+    private static File getStorageDirectory() {
         File worldDir = DimensionManager.getCurrentSaveRootDirectory();
         String dirName = ForgeConfig.getStorageDirectoryName();
-        File storageDir = new File(worldDir, dirName);
-        return new File(storageDir, playerUUID.toString() + ".dat");
+        return new File(worldDir, dirName);
+    }
+
+    private static File getLegacyFile(File dir, UUID playerUUID) {
+        return new File(dir, playerUUID.toString() + ".dat");
     }
 
     /**
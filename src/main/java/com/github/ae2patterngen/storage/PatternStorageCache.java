@@ -0,0 +1,639 @@
+package com.github.ae2patterngen.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+import com.github.ae2patterngen.config.ForgeConfig;
+
+/**
+ * 样板仓储的按玩家内存缓存 — 首次访问时解压整个仓储，之后的查询只读内存；变更先作用于内存，合并后由后台线程写回。
+ * <p>
+ * 写回选择最小的磁盘操作: 只有删除/取出时只写墓碑 (墓碑过多时顺带压缩)，整体替换时写出新代号，取空时删除文件。
+ * 每名玩家的磁盘操作由 {@link Entry#ioLock} 串行化，先取 ioLock 再取条目锁。写回失败时退化为下次整体重写并重新排期。
+ * 玩家下线或空闲超时、且没有未写回的变更时移出缓存。
+ * <p>
+ * 每次写回 (以及加载时发现头部缺失或过期) 都会重写摘要头部，未缓存的玩家可只读头部回答数量/来源类查询。
+ */
+final class PatternStorageCache {
+
+    /** 写回失败后的重试间隔 */
+    static final long RETRY_DELAY_MILLIS = 5000L;
+    /** 摘要头部中保存的预览条数 */
+    static final int HEADER_PREVIEW_COUNT = 5;
+    /** 读取游标之前的空位达到该值且不少于剩余记录时才收缩内存列表 */
+    static final int TRIM_MIN_HEAD = 1024;
+
+    interface Loader {
+
+        PatternSegmentStore open(File dir, UUID playerUUID) throws IOException;
+    }
+
+    interface Action<R> {
+
+        R apply(Entry entry);
+    }
+
+    interface Previewer {
+
+        String preview(NBTTagCompound tag);
+    }
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final Loader loader;
+    private final Previewer previewer;
+    private final LongSupplier clock;
+
+    private long flushes;
+    private long failedFlushes;
+    private long totalFlushNanos;
+    private long maxFlushNanos;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    PatternStorageCache(ScheduledExecutorService flusher, Loader loader, Previewer previewer) {
+        this(flusher, loader, previewer, System::nanoTime);
+    }
+
+    PatternStorageCache(ScheduledExecutorService flusher, Loader loader, Previewer previewer, LongSupplier clock) {
+        this.flusher = flusher;
+        this.loader = loader;
+        this.previewer = previewer;
+        this.clock = clock;
+    }
+
+    /**
+     * 在玩家条目的锁内执行操作，条目不在缓存中时先从磁盘加载。操作产生变更时安排延迟写回，窗口内的后续变更合并写出。
+     */
+    <R> R access(File dir, UUID playerUUID, Action<R> action) throws IOException {
+        while (true) {
+            Entry entry = entries.computeIfAbsent(playerUUID, uuid -> new Entry(uuid, dir, previewer, clock));
+            entry.ensureLoaded(loader);
+            synchronized (entry) {
+                if (entry.evicted) {
+                    continue;
+                }
+                entry.lastAccessNanos = clock.getAsLong();
+                R result = action.apply(entry);
+                if (entry.isDirty()) {
+                    scheduleFlush(entry, ForgeConfig.getStorageFlushDelayMillis());
+                }
+                return result;
+            }
+        }
+    }
+
+    /**
+     * 玩家条目已加载时在其锁内执行操作；否则返回 null，不触发加载。
+     */
+    <R> R peek(UUID playerUUID, Action<R> action) {
+        Entry entry = entries.get(playerUUID);
+        if (entry == null || !entry.loaded) {
+            return null;
+        }
+        synchronized (entry) {
+            if (entry.evicted) {
+                return null;
+            }
+            entry.lastAccessNanos = clock.getAsLong();
+            return action.apply(entry);
+        }
+    }
+
+    /**
+     * 把条目中尚未写回的变更写入磁盘 (调用线程同步执行)。
+     */
+    void flush(Entry entry) {
+        synchronized (entry.ioLock) {
+            if (entry.store == null) {
+                return;
+            }
+            FlushPlan plan;
+            synchronized (entry) {
+                entry.flushScheduled = false;
+                if (!entry.isDirty()) {
+                    return;
+                }
+                plan = entry.beginFlush();
+            }
+
+            long started = clock.getAsLong();
+            try {
+                int[] remap = plan.apply(entry.store);
+                if (plan.headerPreviews != null) {
+                    writeHeader(entry.store, plan.headerPreviews);
+                }
+                long finished = clock.getAsLong();
+                synchronized (entry) {
+                    entry.endFlush(remap);
+                }
+                recordFlush(finished - started, finished - plan.dirtySinceNanos);
+            } catch (IOException | RuntimeException e) {
+                synchronized (entry) {
+                    entry.failFlush(plan);
+                    scheduleFlush(entry, RETRY_DELAY_MILLIS);
+                }
+                synchronized (this) {
+                    failedFlushes++;
+                }
+                System.err.println(
+                    "[AE2PatternGen] Failed to flush pattern storage of player " + entry.playerUUID
+                        + ", changes are kept in memory and retried in "
+                        + RETRY_DELAY_MILLIS
+                        + " ms: "
+                        + e.getMessage());
+            }
+        }
+    }
+
+    void flushAll() {
+        for (Entry entry : entries.values()) {
+            flush(entry);
+        }
+    }
+
+    /**
+     * 玩家下线: 在写回线程上写回并移出缓存；写回失败时保留条目等待重试。
+     */
+    void release(UUID playerUUID) {
+        Entry entry = entries.get(playerUUID);
+        if (entry == null) {
+            return;
+        }
+        flusher.execute(() -> {
+            flush(entry);
+            synchronized (entry) {
+                if (entry.isEvictable()) {
+                    evict(entry);
+                }
+            }
+        });
+    }
+
+    /**
+     * 移出空闲超过 {@code idleMillis} 且没有未写回变更的条目。
+     *
+     * @return 移出的条目数
+     */
+    int evictIdle(long idleMillis) {
+        long now = clock.getAsLong();
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        int evicted = 0;
+        for (Entry entry : entries.values()) {
+            synchronized (entry) {
+                if (entry.isEvictable() && now - entry.lastAccessNanos >= idleNanos) {
+                    evict(entry);
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * 同步写回全部条目并清空缓存 (服务器关闭时调用，之后的访问从磁盘重新加载)。
+     * <p>
+     * 写回失败的条目保留在缓存中继续重试: 移出后再次访问会从磁盘加载旧数据，而旧条目仍在向同一文件重试写入。
+     *
+     * @return 因写回失败而保留的条目数
+     */
+    int closeAll() {
+        int retained = 0;
+        for (Entry entry : entries.values()) {
+            flush(entry);
+            synchronized (entry) {
+                if (entry.isDirty()) {
+                    retained++;
+                } else {
+                    evict(entry);
+                }
+            }
+        }
+        return retained;
+    }
+
+    PatternStorageStats stats() {
+        int cached = 0;
+        int dirty = 0;
+        int pending = 0;
+        for (Entry entry : entries.values()) {
+            synchronized (entry) {
+                cached++;
+                if (entry.isDirty()) {
+                    dirty++;
+                    pending += entry.pendingMutations;
+                }
+            }
+        }
+        synchronized (this) {
+            return new PatternStorageStats(
+                cached,
+                dirty,
+                pending,
+                flushes,
+                failedFlushes,
+                totalFlushNanos,
+                maxFlushNanos,
+                totalLatencyNanos,
+                maxLatencyNanos);
+        }
+    }
+
+    /** 头部只是摘要，写入失败不影响写回结果 (旧头部已被删除，读取方回退到完整加载) */
+    private static void writeHeader(PatternSegmentStore store, List<String> previews) {
+        try {
+            store.writeHeader(previews);
+        } catch (IOException e) {
+            System.err.println("[AE2PatternGen] Failed to write pattern storage header: " + e.getMessage());
+        }
+    }
+
+    /** 调用方持有条目锁 */
+    private void scheduleFlush(Entry entry, long delayMillis) {
+        if (entry.flushScheduled) {
+            return;
+        }
+        entry.flushScheduled = true;
+        flusher.schedule(() -> flush(entry), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** 调用方持有条目锁 */
+    private void evict(Entry entry) {
+        entry.evicted = true;
+        entries.remove(entry.playerUUID, entry);
+    }
+
+    private synchronized void recordFlush(long flushNanos, long latencyNanos) {
+        flushes++;
+        totalFlushNanos += flushNanos;
+        maxFlushNanos = Math.max(maxFlushNanos, flushNanos);
+        totalLatencyNanos += latencyNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+    }
+
+    /**
+     * 缓存中的一条样板。
+     */
+    static final class Record {
+
+        final NBTTagCompound tag;
+        /** 在磁盘当前代号中的槽位；尚未写入时为 -1 */
+        int slot;
+        /** 产物预览文本，首次需要时由调用方填入 */
+        String preview;
+
+        Record(NBTTagCompound tag, int slot) {
+            this.tag = tag;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * 单个玩家的缓存条目。除 {@link #store} 外的状态由条目自身的锁保护，读写方法要求调用方持有该锁。
+     */
+    static final class Entry {
+
+        final UUID playerUUID;
+        final File dir;
+        final Object ioLock = new Object();
+        private final Previewer previewer;
+        private final LongSupplier clock;
+        /** 只在持有 ioLock 时访问 */
+        private PatternSegmentStore store;
+        private volatile boolean loaded;
+
+        /** 位置 [head, size) 为当前样板；从头部取出只前移 head，积累足够多时再整体收缩 */
+        private List<Record> records = new ArrayList<>();
+        private int head;
+        private String source = "";
+        private long timestamp;
+        /** 为 true 时下次写回整体重写，记录的槽位与待写墓碑都不再有意义 */
+        private boolean rewritePending;
+        private int[] pendingTombstones = new int[16];
+        private int pendingTombstoneCount;
+        /** 从头部取出的最后一条样板所在槽位，-1 表示没有待写的游标前移 */
+        private int pendingHeadSlot = -1;
+        private int pendingMutations;
+        private long dirtySinceNanos;
+        private boolean flushScheduled;
+        private boolean flushing;
+        private long lastAccessNanos;
+        private boolean evicted;
+
+        private Entry(UUID playerUUID, File dir, Previewer previewer, LongSupplier clock) {
+            this.playerUUID = playerUUID;
+            this.dir = dir;
+            this.previewer = previewer;
+            this.clock = clock;
+        }
+
+        int size() {
+            return records.size() - head;
+        }
+
+        String getSource() {
+            return source;
+        }
+
+        long getTimestamp() {
+            return timestamp;
+        }
+
+        Record get(int index) {
+            return index >= 0 && index < size() ? records.get(head + index) : null;
+        }
+
+        /**
+         * 位置 [from, to) 的预览文本，首次需要时计算并缓存在记录上。
+         */
+        List<String> previews(int from, int to) {
+            int start = Math.min(Math.max(0, from), size());
+            int end = Math.min(Math.max(start, to), size());
+            List<String> previews = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                Record record = records.get(head + i);
+                if (record.preview == null) {
+                    record.preview = previewer.preview(record.tag);
+                }
+                previews.add(record.preview);
+            }
+            return previews;
+        }
+
+        /**
+         * @return 只读视图，仅在持有条目锁期间有效
+         */
+        List<Record> records() {
+            return Collections.unmodifiableList(records.subList(head, records.size()));
+        }
+
+        void replaceAll(List<NBTTagCompound> tags, String newSource, long newTimestamp) {
+            beginMutation();
+            records = new ArrayList<>(tags.size());
+            head = 0;
+            for (NBTTagCompound tag : tags) {
+                records.add(new Record(tag, -1));
+            }
+            source = newSource != null ? newSource : "";
+            timestamp = newTimestamp;
+            discardPendingSlots();
+        }
+
+        /**
+         * @return 被删除的样板，或 null（索引越界）
+         */
+        Record remove(int index) {
+            if (index < 0 || index >= size()) {
+                return null;
+            }
+            beginMutation();
+            Record removed = records.remove(head + index);
+            addTombstone(removed);
+            return removed;
+        }
+
+        /**
+         * 取出前 count 条样板。只前移读取游标，不移动其余记录；写回时同样只前移磁盘索引的游标。
+         */
+        List<Record> removeHead(int count) {
+            int removeCount = Math.min(Math.max(0, count), size());
+            List<Record> removed = new ArrayList<>(removeCount);
+            if (removeCount == 0) {
+                return removed;
+            }
+            beginMutation();
+            for (int i = 0; i < removeCount; i++) {
+                removed.add(records.get(head));
+                records.set(head++, null);
+            }
+            // 未整体重写时记录按槽位递增排列，游标前移到最后一条之后即覆盖全部取出的记录
+            Record last = removed.get(removeCount - 1);
+            if (!rewritePending && last.slot >= 0) {
+                pendingHeadSlot = Math.max(pendingHeadSlot, last.slot);
+            }
+            if (head >= TRIM_MIN_HEAD && head * 2 >= records.size()) {
+                records = new ArrayList<>(records.subList(head, records.size()));
+                head = 0;
+            }
+            return removed;
+        }
+
+        /**
+         * 把样板按原顺序放回头部 (取出后未能交付时使用)。放回的记录没有槽位，下次写回整体重写。
+         */
+        void restoreHead(List<NBTTagCompound> tags) {
+            if (tags.isEmpty()) {
+                return;
+            }
+            beginMutation();
+            List<Record> restored = new ArrayList<>(tags.size());
+            for (NBTTagCompound tag : tags) {
+                restored.add(new Record(tag, -1));
+            }
+            if (head >= restored.size()) {
+                head -= restored.size();
+                for (int i = 0; i < restored.size(); i++) {
+                    records.set(head + i, restored.get(i));
+                }
+            } else {
+                records.addAll(head, restored);
+            }
+            discardPendingSlots();
+        }
+
+        void clear() {
+            beginMutation();
+            records = new ArrayList<>();
+            head = 0;
+            discardPendingSlots();
+        }
+
+        boolean isDirty() {
+            return pendingMutations > 0;
+        }
+
+        private boolean isEvictable() {
+            return !isDirty() && !flushScheduled && !flushing;
+        }
+
+        private void ensureLoaded(Loader loader) throws IOException {
+            if (loaded) {
+                return;
+            }
+            synchronized (ioLock) {
+                if (loaded) {
+                    return;
+                }
+                PatternSegmentStore opened = loader.open(dir, playerUUID);
+                int[] slots = opened.liveSlots();
+                List<NBTTagCompound> tags = opened.readSlots(slots);
+                List<String> headerPreviews;
+                synchronized (this) {
+                    records = new ArrayList<>(tags.size());
+                    head = 0;
+                    for (int i = 0; i < tags.size(); i++) {
+                        records.add(new Record(tags.get(i), slots[i]));
+                    }
+                    source = opened.getSource();
+                    timestamp = opened.getTimestamp();
+                    headerPreviews = previews(0, HEADER_PREVIEW_COUNT);
+                }
+                // 旧版迁移、头部写入失败或写回中途崩溃后补写头部
+                PatternSegmentStore.Header header = PatternSegmentStore.readHeader(dir, playerUUID.toString());
+                if (PatternSegmentStore.exists(dir, playerUUID.toString())
+                    && (header == null || header.count != tags.size() || !header.previews.equals(headerPreviews))) {
+                    writeHeader(opened, headerPreviews);
+                }
+                store = opened;
+                loaded = true;
+            }
+        }
+
+        private void beginMutation() {
+            if (pendingMutations == 0) {
+                dirtySinceNanos = clock.getAsLong();
+            }
+            pendingMutations++;
+        }
+
+        private void discardPendingSlots() {
+            rewritePending = true;
+            pendingTombstoneCount = 0;
+            pendingHeadSlot = -1;
+        }
+
+        private void addTombstone(Record record) {
+            if (rewritePending || record.slot < 0) {
+                return;
+            }
+            if (pendingTombstoneCount == pendingTombstones.length) {
+                pendingTombstones = Arrays.copyOf(pendingTombstones, pendingTombstoneCount * 2);
+            }
+            pendingTombstones[pendingTombstoneCount++] = record.slot;
+        }
+
+        private FlushPlan beginFlush() {
+            FlushPlan plan;
+            if (size() == 0) {
+                plan = new FlushPlan(FlushPlan.Kind.DELETE);
+            } else if (rewritePending) {
+                plan = new FlushPlan(FlushPlan.Kind.REWRITE);
+                plan.tags = new ArrayList<>(size());
+                for (int i = 0; i < size(); i++) {
+                    Record record = records.get(head + i);
+                    // 新代号按当前顺序编号；写回期间的删除据此记录墓碑
+                    record.slot = i;
+                    plan.tags.add(record.tag);
+                }
+                plan.source = source;
+                plan.timestamp = timestamp;
+            } else {
+                plan = new FlushPlan(FlushPlan.Kind.TOMBSTONES);
+                plan.tombstones = Arrays.copyOf(pendingTombstones, pendingTombstoneCount);
+                plan.headSlot = pendingHeadSlot + 1;
+            }
+            if (plan.kind != FlushPlan.Kind.DELETE) {
+                plan.headerPreviews = previews(0, HEADER_PREVIEW_COUNT);
+            }
+            plan.mutations = pendingMutations;
+            plan.dirtySinceNanos = dirtySinceNanos;
+            pendingMutations = 0;
+            pendingTombstoneCount = 0;
+            pendingHeadSlot = -1;
+            rewritePending = false;
+            flushing = true;
+            return plan;
+        }
+
+        private void endFlush(int[] remap) {
+            flushing = false;
+            if (remap == null) {
+                return;
+            }
+            for (int i = head; i < records.size(); i++) {
+                Record record = records.get(i);
+                if (record.slot >= 0 && record.slot < remap.length) {
+                    record.slot = remap[record.slot];
+                }
+            }
+            for (int i = 0; i < pendingTombstoneCount; i++) {
+                int slot = pendingTombstones[i];
+                pendingTombstones[i] = slot >= 0 && slot < remap.length ? remap[slot] : -1;
+            }
+            if (pendingHeadSlot >= 0) {
+                int slot = pendingHeadSlot < remap.length ? remap[pendingHeadSlot] : -1;
+                if (slot >= 0) {
+                    pendingHeadSlot = slot;
+                } else {
+                    // 无法在新代号中定位游标，保守地整体重写
+                    discardPendingSlots();
+                }
+            }
+        }
+
+        private void failFlush(FlushPlan plan) {
+            flushing = false;
+            discardPendingSlots();
+            pendingMutations += plan.mutations;
+            dirtySinceNanos = plan.dirtySinceNanos;
+        }
+    }
+
+    /**
+     * 一次写回要执行的磁盘操作，在条目锁内生成、锁外执行。
+     */
+    private static final class FlushPlan {
+
+        enum Kind {
+            DELETE,
+            REWRITE,
+            TOMBSTONES
+        }
+
+        final Kind kind;
+        List<NBTTagCompound> tags;
+        String source;
+        long timestamp;
+        int[] tombstones;
+        /** 新的读取游标，0 表示不前移 */
+        int headSlot;
+        /** 写回后写入头部的预览；DELETE 时为 null */
+        List<String> headerPreviews;
+        int mutations;
+        long dirtySinceNanos;
+
+        FlushPlan(Kind kind) {
+            this.kind = kind;
+        }
+
+        /**
+         * @return 压缩产生的槽位映射，未压缩时为 null
+         */
+        int[] apply(PatternSegmentStore store) throws IOException {
+            switch (kind) {
+                case DELETE:
+                    store.delete();
+                    return null;
+                case REWRITE:
+                    store.replaceAll(tags, source, timestamp);
+                    return null;
+                default:
+                    store.advanceHead(headSlot);
+                    store.markTombstones(tombstones);
+                    return store.needsCompaction() ? store.compact() : null;
+            }
+        }
+    }
+}
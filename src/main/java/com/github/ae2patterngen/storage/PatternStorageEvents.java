@@ -0,0 +1,17 @@
+package com.github.ae2patterngen.storage;
+
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.PlayerEvent;
+
+/**
+ * FML 事件: 玩家下线时写回其样板仓储的未落盘变更并释放内存缓存。
+ */
+public class PatternStorageEvents {
+
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        if (event.player != null) {
+            PatternStorage.release(event.player.getUniqueID());
+        }
+    }
+}
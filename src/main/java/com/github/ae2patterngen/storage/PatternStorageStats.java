@@ -0,0 +1,53 @@
+package com.github.ae2patterngen.storage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the per-player pattern storage cache and its write-behind flusher.
+ * <p>
+ * Flush time is the disk work of one flush; flush latency runs from the first unflushed mutation until that
+ * mutation is on disk.
+ */
+public final class PatternStorageStats {
+
+    public static final PatternStorageStats EMPTY = new PatternStorageStats(0, 0, 0, 0L, 0L, 0L, 0L, 0L, 0L);
+
+    public final int cachedPlayers;
+    public final int dirtyPlayers;
+    public final int pendingMutations;
+    public final long flushes;
+    public final long failedFlushes;
+    public final long totalFlushNanos;
+    public final long maxFlushNanos;
+    public final long totalLatencyNanos;
+    public final long maxLatencyNanos;
+
+    public PatternStorageStats(int cachedPlayers, int dirtyPlayers, int pendingMutations, long flushes,
+        long failedFlushes, long totalFlushNanos, long maxFlushNanos, long totalLatencyNanos, long maxLatencyNanos) {
+        this.cachedPlayers = cachedPlayers;
+        this.dirtyPlayers = dirtyPlayers;
+        this.pendingMutations = pendingMutations;
+        this.flushes = flushes;
+        this.failedFlushes = failedFlushes;
+        this.totalFlushNanos = totalFlushNanos;
+        this.maxFlushNanos = maxFlushNanos;
+        this.totalLatencyNanos = totalLatencyNanos;
+        this.maxLatencyNanos = maxLatencyNanos;
+    }
+
+    public long getAverageFlushMillis() {
+        return flushes == 0 ? 0L : TimeUnit.NANOSECONDS.toMillis(totalFlushNanos / flushes);
+    }
+
+    public long getMaxFlushMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxFlushNanos);
+    }
+
+    public long getAverageLatencyMillis() {
+        return flushes == 0 ? 0L : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos / flushes);
+    }
+
+    public long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos);
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.ae2patterngen.storage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived LRU of filtered query results, keyed by the normalized request fingerprint and the cache content
+ * version the result was computed against.
+ * <p>
+ * A preview followed by a generate with identical parameters reuses the preview's filtered list. Any rebuild, clear
+ * or metadata change produces a different content version, so stale results are never served.
+ */
+final class QueryResultCache {
+
+    private final int maxEntries;
+    private final IntSupplier ttlMillisSupplier;
+    private final LongSupplier clock;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    private long hits;
+    private long misses;
+
+    QueryResultCache(int maxEntries, IntSupplier ttlMillisSupplier, LongSupplier clock) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillisSupplier = ttlMillisSupplier;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the cached result, or {@code null} on a miss or when the entry expired
+     */
+    synchronized CacheQueryResult get(String fingerprint, Object contentVersion) {
+        Key key = new Key(fingerprint, contentVersion);
+        Entry entry = entries.get(key);
+        if (entry != null && clock.getAsLong() - entry.storedAt <= ttlMillisSupplier.getAsInt()) {
+            hits++;
+            return entry.result;
+        }
+
+        if (entry != null) {
+            entries.remove(key);
+        }
+        misses++;
+        return null;
+    }
+
+    synchronized void put(String fingerprint, Object contentVersion, CacheQueryResult result) {
+        if (ttlMillisSupplier.getAsInt() <= 0) {
+            return;
+        }
+        entries.put(new Key(fingerprint, contentVersion), new Entry(result, clock.getAsLong()));
+        Iterator<Key> iterator = entries.keySet()
+            .iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized void resetCounters() {
+        hits = 0L;
+        misses = 0L;
+    }
+
+    private static final class Key {
+
+        private final String fingerprint;
+        private final Object contentVersion;
+        private final int hash;
+
+        private Key(String fingerprint, Object contentVersion) {
+            this.fingerprint = fingerprint;
+            this.contentVersion = contentVersion;
+            this.hash = 31 * fingerprint.hashCode() + contentVersion.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && fingerprint.equals(key.fingerprint)
+                && Objects.equals(contentVersion, key.contentVersion);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+
+        private final CacheQueryResult result;
+        private final long storedAt;
+
+        private Entry(CacheQueryResult result, long storedAt) {
+            this.result = result;
+            this.storedAt = storedAt;
+        }
+    }
+}
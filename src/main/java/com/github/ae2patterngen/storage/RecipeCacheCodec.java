@@ -0,0 +1,652 @@
+package com.github.ae2patterngen.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.fluids.Fluid;
+import net.minecraftforge.fluids.FluidRegistry;
+import net.minecraftforge.fluids.FluidStack;
+
+import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.recipe.RecipeRecordView;
+
+/**
+ * Binary encoding for per-map recipe cache payloads.
+ * <p>
+ * A payload is a fixed header followed by per-file dictionaries and the recipe records:
+ *
+ * <pre>
+ * int     magic ("AEPC")
+ * varint  version
+ * string  mapId, modId
+ * varint  recipeCount
+ * long    cachedAt
+ * string  contentHash, cacheFileName
+ * strings dictionary   (registry names, fluid names, source types, map ids, display names)
+ * items   dictionary   (registry-name ref, legacy numeric id)
+ * fluids  dictionary   (fluid-name ref)
+ * tags    dictionary   (raw NBT blobs)
+ * records recipeCount recipe records
+ * </pre>
+ *
+ * Recipe records start with EU/t and duration, followed by varint references into the dictionaries, so every registry
+ * name, fluid name and NBT compound is written and resolved once per file instead of once per stack. The payload is
+ * stored uncompressed so it can be scanned in place with a {@link RecordCursor}.
+ */
+final class RecipeCacheCodec {
+
+    static final int MAGIC = 0x41455043;
+
+    private static final ItemStack[] EMPTY_ITEMS = new ItemStack[0];
+    private static final FluidStack[] EMPTY_FLUIDS = new FluidStack[0];
+
+    static final ItemResolver REGISTRY_ITEM_RESOLVER = new ItemResolver() {
+
+        @Override
+        public Item resolve(String registryName, int legacyItemId) {
+            if (registryName != null && !registryName.isEmpty()) {
+                Object resolved = Item.itemRegistry.getObject(registryName);
+                if (resolved instanceof Item) {
+                    return (Item) resolved;
+                }
+            }
+            return legacyItemId >= 0 ? Item.getItemById(legacyItemId) : null;
+        }
+    };
+
+    private RecipeCacheCodec() {}
+
+    static byte[] encode(String mapId, String modId, long cachedAt, String contentHash, String cacheFileName,
+        List<RecipeEntry> recipes) throws IOException {
+        Dictionary dictionary = new Dictionary();
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bodyBytes);
+
+        int recipeCount = 0;
+        if (recipes != null) {
+            for (RecipeEntry recipe : recipes) {
+                if (recipe != null) {
+                    writeRecipe(body, recipe, dictionary);
+                    recipeCount++;
+                }
+            }
+        }
+        body.flush();
+
+        ByteArrayOutputStream fileBytes = new ByteArrayOutputStream(bodyBytes.size() + 1024);
+        DataOutputStream out = new DataOutputStream(fileBytes);
+        out.writeInt(MAGIC);
+        writeVarInt(out, RecipeCacheMetadata.CURRENT_VERSION);
+        writeString(out, mapId);
+        writeString(out, modId);
+        writeVarInt(out, recipeCount);
+        out.writeLong(cachedAt);
+        writeString(out, contentHash);
+        writeString(out, cacheFileName);
+        dictionary.writeTo(out);
+        bodyBytes.writeTo(out);
+        out.flush();
+        return fileBytes.toByteArray();
+    }
+
+    /**
+     * Reads the header, or returns {@code null} when the payload is not in this format (e.g. a legacy NBT file).
+     */
+    static Header readHeader(ByteBuffer buffer) {
+        if (buffer.remaining() < 4 || buffer.getInt() != MAGIC) {
+            return null;
+        }
+
+        Header header = new Header();
+        header.version = readVarInt(buffer);
+        if (header.version != RecipeCacheMetadata.CURRENT_VERSION) {
+            return header;
+        }
+        header.mapId = readString(buffer);
+        header.modId = readString(buffer);
+        header.recipeCount = readVarInt(buffer);
+        header.cachedAt = buffer.getLong();
+        header.contentHash = readString(buffer);
+        header.cacheFileName = readString(buffer);
+        return header;
+    }
+
+    /**
+     * Opens a cursor over the recipe records following {@code header}, as read by {@link #readHeader}. Only the
+     * dictionaries are decoded up front; stacks are built per record on {@link RecordCursor#materialize()}.
+     */
+    static RecordCursor openCursor(ByteBuffer buffer, Header header, ItemResolver itemResolver) {
+        Tables tables = Tables.read(buffer, itemResolver != null ? itemResolver : REGISTRY_ITEM_RESOLVER);
+        return new RecordCursor(buffer, tables, header.recipeCount);
+    }
+
+    static List<RecipeEntry> decodeRecipes(ByteBuffer buffer, Header header, ItemResolver itemResolver) {
+        RecordCursor cursor = openCursor(buffer, header, itemResolver);
+        List<RecipeEntry> recipes = new ArrayList<RecipeEntry>(cursor.size());
+        while (cursor.next()) {
+            recipes.add(cursor.materialize());
+        }
+        return recipes;
+    }
+
+    private static void writeRecipe(DataOutputStream out, RecipeEntry recipe, Dictionary dictionary)
+        throws IOException {
+        writeZigZag(out, recipe.euPerTick);
+        writeZigZag(out, recipe.duration);
+        writeVarInt(out, dictionary.stringRef(recipe.sourceType));
+        writeVarInt(out, dictionary.stringRef(recipe.recipeMapId));
+        writeVarInt(out, dictionary.stringRef(recipe.machineDisplayName));
+        writeItemStacks(out, recipe.inputs, dictionary);
+        writeItemStacks(out, recipe.outputs, dictionary);
+        writeItemStacks(out, recipe.specialItems, dictionary);
+        writeFluidStacks(out, recipe.fluidInputs, dictionary);
+        writeFluidStacks(out, recipe.fluidOutputs, dictionary);
+    }
+
+    private static void writeItemStacks(DataOutputStream out, ItemStack[] stacks, Dictionary dictionary)
+        throws IOException {
+        int count = 0;
+        if (stacks != null) {
+            for (ItemStack stack : stacks) {
+                if (stack != null && stack.getItem() != null) {
+                    count++;
+                }
+            }
+        }
+
+        writeVarInt(out, count);
+        if (count == 0) {
+            return;
+        }
+        for (ItemStack stack : stacks) {
+            if (stack == null || stack.getItem() == null) {
+                continue;
+            }
+            writeVarInt(out, dictionary.itemRef(stack.getItem()));
+            writeZigZag(out, stack.stackSize);
+            writeZigZag(out, stack.getItemDamage());
+            writeVarInt(out, stack.hasTagCompound() ? dictionary.tagRef(stack.getTagCompound()) + 1 : 0);
+        }
+    }
+
+    private static void writeFluidStacks(DataOutputStream out, FluidStack[] stacks, Dictionary dictionary)
+        throws IOException {
+        int count = 0;
+        if (stacks != null) {
+            for (FluidStack stack : stacks) {
+                if (stack != null && stack.getFluid() != null) {
+                    count++;
+                }
+            }
+        }
+
+        writeVarInt(out, count);
+        if (count == 0) {
+            return;
+        }
+        for (FluidStack stack : stacks) {
+            if (stack == null || stack.getFluid() == null) {
+                continue;
+            }
+            writeVarInt(out, dictionary.fluidRef(stack.getFluid()));
+            writeZigZag(out, stack.amount);
+            writeVarInt(out, stack.tag != null ? dictionary.tagRef(stack.tag) + 1 : 0);
+        }
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            if (shift > 28) {
+                throw new IllegalStateException("varint_too_long");
+            }
+            current = buffer.get();
+            value |= (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return value;
+    }
+
+    static void writeZigZag(DataOutputStream out, int value) throws IOException {
+        writeVarInt(out, (value << 1) ^ (value >> 31));
+    }
+
+    static int readZigZag(ByteBuffer buffer) {
+        int encoded = readVarInt(buffer);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        if (length == 0) {
+            return "";
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Resolves a persisted item reference back to a live {@link Item}.
+     */
+    interface ItemResolver {
+
+        Item resolve(String registryName, int legacyItemId);
+    }
+
+    /**
+     * Parsed payload header.
+     */
+    static final class Header {
+
+        int version;
+        String mapId = "";
+        String modId = "";
+        int recipeCount;
+        long cachedAt;
+        String contentHash = "";
+        String cacheFileName = "";
+
+        boolean isCurrentVersion() {
+            return version == RecipeCacheMetadata.CURRENT_VERSION;
+        }
+    }
+
+    /**
+     * Write-side dictionaries, assigning dense ids in first-seen order.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> stringIds = new LinkedHashMap<String, Integer>();
+        private final Map<Item, Integer> itemIds = new IdentityHashMap<Item, Integer>();
+        private final List<int[]> items = new ArrayList<int[]>();
+        private final Map<String, Integer> fluidIds = new LinkedHashMap<String, Integer>();
+        private final Map<NBTTagCompound, Integer> tagIds = new HashMap<NBTTagCompound, Integer>();
+        private final List<byte[]> tags = new ArrayList<byte[]>();
+
+        private int stringRef(String value) {
+            String key = value != null ? value : "";
+            Integer id = stringIds.get(key);
+            if (id == null) {
+                id = Integer.valueOf(stringIds.size());
+                stringIds.put(key, id);
+            }
+            return id.intValue();
+        }
+
+        private int itemRef(Item item) {
+            Integer id = itemIds.get(item);
+            if (id == null) {
+                Object registryName = Item.itemRegistry.getNameForObject(item);
+                int nameRef = registryName != null ? stringRef(registryName.toString()) + 1 : 0;
+                id = Integer.valueOf(items.size());
+                items.add(new int[] { nameRef, Item.getIdFromItem(item) });
+                itemIds.put(item, id);
+            }
+            return id.intValue();
+        }
+
+        private int fluidRef(Fluid fluid) {
+            String name = fluid.getName();
+            Integer id = fluidIds.get(name);
+            if (id == null) {
+                stringRef(name);
+                id = Integer.valueOf(fluidIds.size());
+                fluidIds.put(name, id);
+            }
+            return id.intValue();
+        }
+
+        private int tagRef(NBTTagCompound tag) throws IOException {
+            Integer id = tagIds.get(tag);
+            if (id == null) {
+                NBTTagCompound snapshot = (NBTTagCompound) tag.copy();
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                CompressedStreamTools.write(snapshot, out);
+                out.flush();
+                id = Integer.valueOf(tags.size());
+                tags.add(bytes.toByteArray());
+                tagIds.put(snapshot, id);
+            }
+            return id.intValue();
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            writeVarInt(out, stringIds.size());
+            for (String value : stringIds.keySet()) {
+                writeString(out, value);
+            }
+
+            writeVarInt(out, items.size());
+            for (int[] item : items) {
+                writeVarInt(out, item[0]);
+                writeZigZag(out, item[1]);
+            }
+
+            writeVarInt(out, fluidIds.size());
+            for (String name : fluidIds.keySet()) {
+                writeVarInt(out, stringIds.get(name));
+            }
+
+            writeVarInt(out, tags.size());
+            for (byte[] tag : tags) {
+                writeVarInt(out, tag.length);
+                out.write(tag);
+            }
+        }
+    }
+
+    /**
+     * Read-side dictionaries, resolved to live registry objects once per file. NBT blobs are only parsed the first
+     * time a materialized stack needs them.
+     */
+    private static final class Tables {
+
+        private final ByteBuffer buffer;
+        private final String[] strings;
+        private final Item[] items;
+        private final int[] itemIds;
+        private final Fluid[] fluids;
+        private final int[] tagOffsets;
+        private final int[] tagLengths;
+        private final NBTTagCompound[] tags;
+
+        private Tables(ByteBuffer buffer, String[] strings, Item[] items, Fluid[] fluids, int[] tagOffsets,
+            int[] tagLengths) {
+            this.buffer = buffer;
+            this.strings = strings;
+            this.items = items;
+            this.fluids = fluids;
+            this.tagOffsets = tagOffsets;
+            this.tagLengths = tagLengths;
+            this.tags = new NBTTagCompound[tagOffsets.length];
+            this.itemIds = new int[items.length];
+            for (int i = 0; i < items.length; i++) {
+                itemIds[i] = items[i] != null ? Item.getIdFromItem(items[i]) : -1;
+            }
+        }
+
+        private static Tables read(ByteBuffer buffer, ItemResolver itemResolver) {
+            String[] strings = new String[readVarInt(buffer)];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(buffer);
+            }
+
+            Item[] items = new Item[readVarInt(buffer)];
+            for (int i = 0; i < items.length; i++) {
+                int nameRef = readVarInt(buffer);
+                int legacyId = readZigZag(buffer);
+                items[i] = itemResolver.resolve(nameRef > 0 ? strings[nameRef - 1] : null, legacyId);
+            }
+
+            Fluid[] fluids = new Fluid[readVarInt(buffer)];
+            for (int i = 0; i < fluids.length; i++) {
+                fluids[i] = FluidRegistry.getFluid(strings[readVarInt(buffer)]);
+            }
+
+            int tagCount = readVarInt(buffer);
+            int[] tagOffsets = new int[tagCount];
+            int[] tagLengths = new int[tagCount];
+            for (int i = 0; i < tagCount; i++) {
+                tagLengths[i] = readVarInt(buffer);
+                tagOffsets[i] = buffer.position();
+                buffer.position(tagOffsets[i] + tagLengths[i]);
+            }
+            return new Tables(buffer, strings, items, fluids, tagOffsets, tagLengths);
+        }
+
+        private NBTTagCompound tag(int ref) {
+            NBTTagCompound tag = tags[ref];
+            if (tag == null) {
+                byte[] bytes = new byte[tagLengths[ref]];
+                ByteBuffer view = buffer.duplicate();
+                view.position(tagOffsets[ref]);
+                view.get(bytes);
+                try {
+                    tag = CompressedStreamTools.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+                } catch (IOException e) {
+                    throw new IllegalStateException("corrupt_nbt_dictionary_entry", e);
+                }
+                tags[ref] = tag;
+            }
+            return tag;
+        }
+    }
+
+    /**
+     * Forward-only cursor over recipe records. {@link #next()} only parses varints into reusable arrays; no
+     * {@link ItemStack} or {@link FluidStack} is allocated until {@link #materialize()} is called.
+     */
+    static final class RecordCursor implements RecipeRecordView {
+
+        private final ByteBuffer buffer;
+        private final Tables tables;
+        private final int size;
+        private final ItemRefs inputs = new ItemRefs();
+        private final ItemRefs outputs = new ItemRefs();
+        private final ItemRefs specials = new ItemRefs();
+        private final FluidRefs fluidInputs = new FluidRefs();
+        private final FluidRefs fluidOutputs = new FluidRefs();
+        private int index = -1;
+        private int euPerTick;
+        private int duration;
+        private int sourceTypeRef;
+        private int mapIdRef;
+        private int displayNameRef;
+
+        private RecordCursor(ByteBuffer buffer, Tables tables, int size) {
+            this.buffer = buffer;
+            this.tables = tables;
+            this.size = size;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean next() {
+            if (index + 1 >= size) {
+                index = size;
+                return false;
+            }
+            index++;
+            euPerTick = readZigZag(buffer);
+            duration = readZigZag(buffer);
+            sourceTypeRef = readVarInt(buffer);
+            mapIdRef = readVarInt(buffer);
+            displayNameRef = readVarInt(buffer);
+            inputs.read(buffer, tables);
+            outputs.read(buffer, tables);
+            specials.read(buffer, tables);
+            fluidInputs.read(buffer);
+            fluidOutputs.read(buffer);
+            return true;
+        }
+
+        RecipeEntry materialize() {
+            return new RecipeEntry(
+                tables.strings[sourceTypeRef],
+                tables.strings[mapIdRef],
+                tables.strings[displayNameRef],
+                inputs.materialize(tables),
+                outputs.materialize(tables),
+                fluidInputs.materialize(tables),
+                fluidOutputs.materialize(tables),
+                specials.materialize(tables),
+                duration,
+                euPerTick);
+        }
+
+        @Override
+        public int getEuPerTick() {
+            return euPerTick;
+        }
+
+        @Override
+        public int getDuration() {
+            return duration;
+        }
+
+        @Override
+        public int getItemCount(Slot slot) {
+            return refs(slot).count;
+        }
+
+        @Override
+        public int getItemId(Slot slot, int index) {
+            return tables.itemIds[refs(slot).items[index]];
+        }
+
+        @Override
+        public int getItemMeta(Slot slot, int index) {
+            return refs(slot).damages[index];
+        }
+
+        @Override
+        public int getStackSize(Slot slot, int index) {
+            return refs(slot).sizes[index];
+        }
+
+        private ItemRefs refs(Slot slot) {
+            switch (slot) {
+                case OUTPUT:
+                    return outputs;
+                case SPECIAL:
+                    return specials;
+                default:
+                    return inputs;
+            }
+        }
+    }
+
+    private static final class ItemRefs {
+
+        private int count;
+        private int[] items = new int[8];
+        private int[] sizes = new int[8];
+        private int[] damages = new int[8];
+        private int[] tags = new int[8];
+
+        private void read(ByteBuffer buffer, Tables tables) {
+            count = readVarInt(buffer);
+            if (count > items.length) {
+                int capacity = Math.max(count, items.length * 2);
+                items = new int[capacity];
+                sizes = new int[capacity];
+                damages = new int[capacity];
+                tags = new int[capacity];
+            }
+            for (int i = 0; i < count; i++) {
+                items[i] = readVarInt(buffer);
+                sizes[i] = readZigZag(buffer);
+                damages[i] = readZigZag(buffer);
+                tags[i] = readVarInt(buffer);
+                if (items[i] >= tables.items.length || tags[i] > tables.tags.length) {
+                    throw new IllegalStateException("corrupt_item_reference");
+                }
+            }
+        }
+
+        private ItemStack[] materialize(Tables tables) {
+            if (count == 0) {
+                return EMPTY_ITEMS;
+            }
+
+            ItemStack[] stacks = new ItemStack[count];
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                Item item = tables.items[items[i]];
+                if (item == null) {
+                    continue;
+                }
+
+                ItemStack stack = RecipeCacheStorage.createRestoredItemStack(item, sizes[i], damages[i]);
+                if (tags[i] > 0) {
+                    stack.setTagCompound((NBTTagCompound) tables.tag(tags[i] - 1)
+                        .copy());
+                }
+                stacks[size++] = stack;
+            }
+            return size == count ? stacks : Arrays.copyOf(stacks, size);
+        }
+    }
+
+    private static final class FluidRefs {
+
+        private int count;
+        private int[] fluids = new int[4];
+        private int[] amounts = new int[4];
+        private int[] tags = new int[4];
+
+        private void read(ByteBuffer buffer) {
+            count = readVarInt(buffer);
+            if (count > fluids.length) {
+                int capacity = Math.max(count, fluids.length * 2);
+                fluids = new int[capacity];
+                amounts = new int[capacity];
+                tags = new int[capacity];
+            }
+            for (int i = 0; i < count; i++) {
+                fluids[i] = readVarInt(buffer);
+                amounts[i] = readZigZag(buffer);
+                tags[i] = readVarInt(buffer);
+            }
+        }
+
+        private FluidStack[] materialize(Tables tables) {
+            if (count == 0) {
+                return EMPTY_FLUIDS;
+            }
+
+            FluidStack[] stacks = new FluidStack[count];
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                Fluid fluid = tables.fluids[fluids[i]];
+                if (fluid == null) {
+                    continue;
+                }
+
+                FluidStack stack = new FluidStack(fluid, amounts[i]);
+                if (tags[i] > 0) {
+                    stack.tag = (NBTTagCompound) tables.tag(tags[i] - 1)
+                        .copy();
+                }
+                stacks[size++] = stack;
+            }
+            return size == count ? stacks : Arrays.copyOf(stacks, size);
+        }
+    }
+}
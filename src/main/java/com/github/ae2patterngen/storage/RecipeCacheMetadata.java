@@ -1,6 +1,7 @@
 package com.github.ae2patterngen.storage;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -8,7 +9,7 @@ import java.util.Map;
  */
 public class RecipeCacheMetadata {
 
-    public static final int CURRENT_VERSION = 1;
+    public static final int CURRENT_VERSION = 4;
 
     public int cacheVersion = CURRENT_VERSION;
     public long createdAt = System.currentTimeMillis();
@@ -17,7 +18,7 @@ public class RecipeCacheMetadata {
     public int totalRecipeMaps = 0;
 
     public final Map<String, ModInfo> mods = new HashMap<String, ModInfo>();
-    public final Map<String, RecipeMapInfo> recipeMaps = new HashMap<String, RecipeMapInfo>();
+    public final Map<String, RecipeMapInfo> recipeMaps = new LinkedHashMap<String, RecipeMapInfo>();
     public final Map<String, String> configHashes = new HashMap<String, String>();
 
     public void putModInfo(ModInfo info) {
@@ -161,6 +162,8 @@ public class RecipeCacheMetadata {
         public long cachedAt = 0L;
         public String contentHash = "";
         public String cacheFileName = "";
+        /** Cheap structural fingerprint of the live recipe map, used to skip unchanged maps on refresh. */
+        public String sourceFingerprint = "";
 
         public RecipeMapInfo() {}
 
@@ -175,6 +178,7 @@ public class RecipeCacheMetadata {
             copy.cachedAt = cachedAt;
             copy.contentHash = contentHash;
             copy.cacheFileName = cacheFileName;
+            copy.sourceFingerprint = sourceFingerprint;
             return copy;
         }
     }
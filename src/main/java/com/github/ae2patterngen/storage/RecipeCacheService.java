@@ -2,15 +2,34 @@ package com.github.ae2patterngen.storage;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import net.minecraft.server.MinecraftServer;
+
+import com.github.ae2patterngen.config.ForgeConfig;
 import com.github.ae2patterngen.filter.CompositeFilter;
+import com.github.ae2patterngen.filter.IRecipeFilter;
+import com.github.ae2patterngen.filter.ParallelRecipeFilter;
 import com.github.ae2patterngen.recipe.GTRecipeSource;
 import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.recipe.RecipeFilterCache;
+import com.github.ae2patterngen.recipe.RecipeIndex;
+import com.github.ae2patterngen.util.CancellationToken;
 
 /**
  * Coordinates recipe cache validation, rebuilds, and query access.
@@ -24,6 +43,22 @@ public final class RecipeCacheService {
     private static volatile StorageBackend storageBackend = new DefaultStorageBackend();
     private static volatile RecipeCollector recipeCollector = new DefaultRecipeCollector();
     private static volatile EnvironmentInspector environmentInspector = new DefaultEnvironmentInspector();
+    private static volatile MainThreadExecutor mainThreadExecutor = new DefaultMainThreadExecutor();
+    private static final long SNAPSHOT_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(20L);
+    private static final long SNAPSHOT_TIMEOUT_SECONDS = 120L;
+    private static final DecodedRecipeMapCache DECODED_MAPS = new DecodedRecipeMapCache(
+        ForgeConfig::getMemoryCacheMaxRecipes);
+    private static final AtomicLong CACHE_GENERATION = new AtomicLong();
+    private static final int QUERY_RESULT_CACHE_ENTRIES = 32;
+    private static final QueryResultCache QUERY_RESULTS = new QueryResultCache(
+        QUERY_RESULT_CACHE_ENTRIES,
+        () -> ForgeConfig.getQueryCacheTtlSeconds() * 1000,
+        System::currentTimeMillis);
+    /** Prefix of the query warning for a matched map whose payload could not be read. */
+    static final String WARNING_MAP_READ_FAILED = "map_read_failed:";
+    private static volatile ValidationSnapshot lastValidation;
+    /** Cancellation token of the running cache rebuild, or {@code null} when idle. */
+    private static volatile CancellationToken activeBuild;
 
     private RecipeCacheService() {}
 
@@ -36,9 +71,11 @@ public final class RecipeCacheService {
             caching = true;
         }
 
+        final CancellationToken token = CancellationToken.create();
+        activeBuild = token;
         CACHE_EXECUTOR.execute(() -> {
             try {
-                CacheStatistics stats = rebuildNow(notifier);
+                CacheStatistics stats = rebuildNow(notifier, token);
                 if (notifier != null) {
                     notifier.onComplete(stats);
                 }
@@ -48,6 +85,7 @@ public final class RecipeCacheService {
                 }
             } finally {
                 synchronized (RecipeCacheService.class) {
+                    activeBuild = null;
                     caching = false;
                 }
             }
@@ -55,31 +93,27 @@ public final class RecipeCacheService {
         return true;
     }
 
+    /**
+     * Requests cancellation of the running cache rebuild. Map files already written are kept and the metadata is not
+     * updated; the rebuild ends with a {@code cancelled} error at its next checkpoint.
+     *
+     * @return whether a rebuild was running
+     */
+    public static boolean cancelCacheBuild() {
+        CancellationToken token = activeBuild;
+        if (token == null) {
+            return false;
+        }
+        token.cancel();
+        return true;
+    }
+
     public static boolean isCaching() {
         return caching;
     }
 
     public static boolean validateCache() {
-        storageBackend.prepareAccessContext();
-        RecipeCacheMetadata metadata = storageBackend.loadMetadata();
-        if (metadata == null || metadata.cacheVersion != RecipeCacheMetadata.CURRENT_VERSION
-            || metadata.recipeMaps.isEmpty()) {
-            return false;
-        }
-
-        if (ModVersionHelper.isModVersionChanged(metadata, environmentInspector.getLoadedModVersions())) {
-            return false;
-        }
-        if (ModVersionHelper.isConfigHashChanged(metadata, environmentInspector.getConfigHashes())) {
-            return false;
-        }
-
-        for (String mapId : metadata.recipeMaps.keySet()) {
-            if (!storageBackend.recipeMapExists(mapId)) {
-                return false;
-            }
-        }
-        return true;
+        return loadValidMetadata() != null;
     }
 
     public static CacheQueryResult loadRecipes(String recipeMapKeyword) {
@@ -87,7 +121,18 @@ public final class RecipeCacheService {
     }
 
     public static CacheQueryResult loadAndFilterRecipes(String recipeMapKeyword, CompositeFilter filter) {
-        if (!validateCache()) {
+        return loadAndFilterRecipes(recipeMapKeyword, filter, CancellationToken.NONE);
+    }
+
+    /**
+     * Same as {@link #loadAndFilterRecipes(String, CompositeFilter)}, checking {@code token} between recipe maps and
+     * at chunk boundaries while scanning. A cancelled or timed-out query returns an
+     * {@link CacheQueryResult#aborted aborted} result instead of partial recipes.
+     */
+    public static CacheQueryResult loadAndFilterRecipes(String recipeMapKeyword, CompositeFilter filter,
+        CancellationToken token) {
+        RecipeCacheMetadata metadata = loadValidMetadata();
+        if (metadata == null) {
             return CacheQueryResult.invalid("cache_missing_or_invalid");
         }
 
@@ -96,24 +141,87 @@ public final class RecipeCacheService {
             return CacheQueryResult.valid(matchedMapIds, new ArrayList<RecipeEntry>(), 0, 0);
         }
 
+        try {
+            return scanMatchedMaps(metadata, matchedMapIds, filter, token);
+        } catch (CancellationToken.CancelledException e) {
+            return CacheQueryResult.aborted(matchedMapIds, e.reason);
+        }
+    }
+
+    private static CacheQueryResult scanMatchedMaps(RecipeCacheMetadata metadata, List<String> matchedMapIds,
+        CompositeFilter filter, CancellationToken token) {
         List<RecipeEntry> filtered = new ArrayList<RecipeEntry>();
+        List<String> warnings = new ArrayList<String>();
         int totalLoaded = 0;
         for (String mapId : matchedMapIds) {
-            List<RecipeEntry> recipes = storageBackend.loadRecipeMap(mapId);
-            totalLoaded += recipes.size();
+            token.throwIfCancelled();
+            RecipeCacheMetadata.RecipeMapInfo info = metadata.recipeMaps.get(mapId);
+            List<RecipeEntry> decoded = loadDecodedRecipeMap(mapId, info);
+            if (decoded != null) {
+                totalLoaded += decoded.size();
+                if (filter == null) {
+                    filtered.addAll(decoded);
+                    continue;
+                }
+                BitSet candidates = selectIndexedCandidates(mapId, info, filter);
+                if (candidates != null) {
+                    int limit = decoded.size();
+                    List<RecipeEntry> selected = new ArrayList<RecipeEntry>(candidates.cardinality());
+                    for (int i = candidates.nextSetBit(0); i >= 0 && i < limit; i = candidates.nextSetBit(i + 1)) {
+                        selected.add(decoded.get(i));
+                    }
+                    decoded = selected;
+                }
+                ParallelRecipeFilter.filterInto(decoded, filter, filtered, token);
+                continue;
+            }
+
+            int loaded;
             if (filter == null) {
+                List<RecipeEntry> recipes = storageBackend.loadRecipeMap(mapId);
+                loaded = recipes.size();
                 filtered.addAll(recipes);
-                continue;
+            } else {
+                loaded = storageBackend.scanRecipeMap(mapId, filter, filtered, token);
+            }
+            totalLoaded += loaded;
+            if (loaded == 0 && info != null && info.recipeCount > 0) {
+                warnings.add(WARNING_MAP_READ_FAILED + mapId);
             }
+        }
 
-            for (RecipeEntry recipe : recipes) {
-                if (filter.matches(recipe)) {
-                    filtered.add(recipe);
-                }
+        return CacheQueryResult.valid(matchedMapIds, filtered, totalLoaded, filtered.size(), warnings);
+    }
+
+    /**
+     * Same as {@link #loadAndFilterRecipes(String, CompositeFilter)}, but reuses a recent result for the same
+     * normalized request fingerprint while the cache content version (generation, metadata, configs, mods) is
+     * unchanged. The filter is only built on a miss. Cached results are shared and read-only.
+     */
+    public static CacheQueryResult loadAndFilterRecipes(String recipeMapKeyword, String queryFingerprint,
+        Supplier<CompositeFilter> filterFactory) {
+        return loadAndFilterRecipes(recipeMapKeyword, queryFingerprint, filterFactory, CancellationToken.NONE);
+    }
+
+    public static CacheQueryResult loadAndFilterRecipes(String recipeMapKeyword, String queryFingerprint,
+        Supplier<CompositeFilter> filterFactory, CancellationToken token) {
+        storageBackend.prepareAccessContext();
+        ValidationKey version = queryFingerprint != null ? currentValidationKey() : null;
+        if (version != null) {
+            CacheQueryResult cached = QUERY_RESULTS.get(queryFingerprint, version);
+            if (cached != null) {
+                return cached;
             }
         }
 
-        return CacheQueryResult.valid(matchedMapIds, filtered, totalLoaded, filtered.size());
+        CacheQueryResult result = loadAndFilterRecipes(recipeMapKeyword, filterFactory.get(), token);
+        // Don't store the result if the cache was rebuilt or cleared while it was computed
+        if (version != null && result.status == CacheQueryResult.Status.OK
+            && result.warnings.isEmpty()
+            && version.equals(currentValidationKey())) {
+            QUERY_RESULTS.put(queryFingerprint, version, result.sharedCopy(CacheQueryResult.SOURCE_QUERY_CACHE));
+        }
+        return result;
     }
 
     public static CacheStatistics getStatistics() {
@@ -122,20 +230,28 @@ public final class RecipeCacheService {
         if (metadata == null || metadata.recipeMaps.isEmpty()) {
             return CacheStatistics.EMPTY;
         }
-        return buildStatistics(metadata);
+        return buildStatistics(metadata, CacheStatistics.NOT_REBUILT, CacheStatistics.NOT_REBUILT);
     }
 
     public static void clearCache() {
         storageBackend.prepareAccessContext();
         storageBackend.clearAll();
+        DECODED_MAPS.clear();
+        CACHE_GENERATION.incrementAndGet();
+        RecipeFilterCache.clear();
+        QUERY_RESULTS.clear();
     }
 
     static CacheStatistics rebuildNow(ProgressNotifier notifier) {
+        return rebuildNow(notifier, CancellationToken.NONE);
+    }
+
+    static CacheStatistics rebuildNow(ProgressNotifier notifier, CancellationToken token) {
         RecipeCacheMetadata existing = storageBackend.loadMetadata();
         Map<String, String> currentModVersions = environmentInspector.getLoadedModVersions();
         Map<String, String> currentConfigHashes = environmentInspector.getConfigHashes();
-        boolean canReuseExisting = existing != null && existing.cacheVersion == RecipeCacheMetadata.CURRENT_VERSION
-            && !ModVersionHelper.isModVersionChanged(existing, currentModVersions)
+        boolean sameFormat = existing != null && existing.cacheVersion == RecipeCacheMetadata.CURRENT_VERSION;
+        boolean canReuseExisting = sameFormat && !ModVersionHelper.isModVersionChanged(existing, currentModVersions)
             && !ModVersionHelper.isConfigHashChanged(existing, currentConfigHashes);
 
         RecipeCacheMetadata metadata = new RecipeCacheMetadata();
@@ -145,35 +261,65 @@ public final class RecipeCacheService {
         List<String> availableMapIds = recipeCollector.getAvailableRecipeMapIds();
         java.util.Collections.sort(availableMapIds);
 
-        Map<String, int[]> modCounters = new LinkedHashMap<String, int[]>();
         int total = availableMapIds.size();
-        for (int index = 0; index < availableMapIds.size(); index++) {
+        ProgressTracker progress = new ProgressTracker(notifier, total);
+        RecipeCacheMetadata.RecipeMapInfo[] infos = new RecipeCacheMetadata.RecipeMapInfo[total];
+        List<Integer> pending = new ArrayList<Integer>();
+        List<Integer> candidates = new ArrayList<Integer>();
+        for (int index = 0; index < total; index++) {
             String mapId = availableMapIds.get(index);
-            if (notifier != null) {
-                notifier.onProgress("Caching " + mapId, index + 1, total);
+            RecipeCacheMetadata.RecipeMapInfo oldInfo = sameFormat ? existing.recipeMaps.get(mapId) : null;
+            if (oldInfo != null && storageBackend.recipeMapExists(mapId)) {
+                if (canReuseExisting) {
+                    infos[index] = oldInfo;
+                    progress.step("Caching " + mapId);
+                    continue;
+                }
+                if (oldInfo.sourceFingerprint != null && !oldInfo.sourceFingerprint.isEmpty()) {
+                    candidates.add(Integer.valueOf(index));
+                    continue;
+                }
             }
-
-            RecipeCacheMetadata.RecipeMapInfo info;
-            if (canReuseExisting && existing.recipeMaps.containsKey(mapId) && storageBackend.recipeMapExists(mapId)) {
+            pending.add(Integer.valueOf(index));
+        }
+
+        // When mods or configs change, compare structural fingerprints and keep the files of unchanged maps
+        if (!candidates.isEmpty()) {
+            final RecipeCollector collector = recipeCollector;
+            Map<Integer, String> fingerprints = new LinkedHashMap<Integer, String>();
+            for (int next = 0; next < candidates.size();) {
+                token.throwIfCancelled();
+                Map<Integer, String> batch = callOnMainThread(
+                    availableMapIds,
+                    candidates,
+                    next,
+                    collector::fingerprintRecipeMap);
+                next += batch.size();
+                fingerprints.putAll(batch);
+            }
+            for (Integer index : candidates) {
+                String mapId = availableMapIds.get(index.intValue());
                 RecipeCacheMetadata.RecipeMapInfo oldInfo = existing.recipeMaps.get(mapId);
-                info = new RecipeCacheMetadata.RecipeMapInfo(oldInfo.mapId, oldInfo.modId);
-                info.recipeCount = oldInfo.recipeCount;
-                info.cachedAt = oldInfo.cachedAt;
-                info.contentHash = oldInfo.contentHash;
-                info.cacheFileName = oldInfo.cacheFileName;
-            } else {
-                List<RecipeEntry> recipes = recipeCollector.collectRecipes(mapId);
-                info = new RecipeCacheMetadata.RecipeMapInfo(mapId, environmentInspector.resolveModId(mapId));
-                info.recipeCount = recipes.size();
-                info.cachedAt = System.currentTimeMillis();
-                info.contentHash = environmentInspector.calculateRecipeMapHash(mapId, recipes);
-                info.cacheFileName = RecipeCacheStorage.getRecipeMapFile(mapId)
-                    .getName();
-                if (!storageBackend.saveRecipeMap(mapId, recipes, info)) {
-                    throw new IllegalStateException("failed_to_save_recipe_map:" + mapId);
+                if (oldInfo.sourceFingerprint.equals(fingerprints.get(index))) {
+                    infos[index.intValue()] = oldInfo;
+                    progress.step("Caching " + mapId);
+                } else {
+                    pending.add(index);
                 }
             }
+            java.util.Collections.sort(pending);
+        }
+
+        int rewritten = pending.size();
+        if (!pending.isEmpty()) {
+            rebuildRecipeMaps(availableMapIds, pending, infos, progress, System.currentTimeMillis(), token);
+        }
+        // Last checkpoint: stale files are deleted and metadata is written after this
+        token.throwIfCancelled();
 
+        // Merge in sorted mapId order so the metadata does not depend on parallel completion order
+        Map<String, int[]> modCounters = new LinkedHashMap<String, int[]>();
+        for (RecipeCacheMetadata.RecipeMapInfo info : infos) {
             metadata.putRecipeMapInfo(info);
             incrementModCounter(modCounters, info.modId, info.recipeCount);
         }
@@ -200,8 +346,141 @@ public final class RecipeCacheService {
         if (!storageBackend.saveMetadata(metadata)) {
             throw new IllegalStateException("failed_to_save_recipe_cache_metadata");
         }
+        DECODED_MAPS.retainCurrent(metadata.recipeMaps);
+        CACHE_GENERATION.incrementAndGet();
+        RecipeFilterCache.clear();
+        QUERY_RESULTS.clear();
+
+        return buildStatistics(metadata, rewritten, total - rewritten);
+    }
+
+    /**
+     * Snapshots recipes on the server thread in time-boxed batches and hands each snapshot to the worker pool for
+     * hashing, encoding and writing. GT recipe maps are never iterated off the server thread.
+     */
+    private static void rebuildRecipeMaps(final List<String> mapIds, final List<Integer> pending,
+        final RecipeCacheMetadata.RecipeMapInfo[] infos, final ProgressTracker progress, final long cachedAt,
+        final CancellationToken token) {
+        int workerCount = Math.max(1, ForgeConfig.getCacheRebuildWorkers());
+        ExecutorService workers = workerCount > 1 ? Executors.newFixedThreadPool(workerCount, new ThreadFactory() {
+
+            private final AtomicInteger nextId = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "AE2PatternGen-RecipeCache-Worker-" + nextId.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : null;
+
+        List<Future<?>> writes = new ArrayList<Future<?>>();
+        try {
+            int next = 0;
+            final RecipeCollector collector = recipeCollector;
+            while (next < pending.size()) {
+                token.throwIfCancelled();
+                Map<Integer, MapSnapshot> batch = callOnMainThread(
+                    mapIds,
+                    pending,
+                    next,
+                    mapId -> new MapSnapshot(
+                        new ArrayList<RecipeEntry>(collector.collectRecipes(mapId)),
+                        collector.fingerprintRecipeMap(mapId)));
+                next += batch.size();
+
+                for (Map.Entry<Integer, MapSnapshot> entry : batch.entrySet()) {
+                    final int index = entry.getKey()
+                        .intValue();
+                    final MapSnapshot snapshot = entry.getValue();
+                    Runnable write = () -> {
+                        token.throwIfCancelled();
+                        String mapId = mapIds.get(index);
+                        infos[index] = writeRecipeMap(mapId, snapshot, cachedAt);
+                        progress.step("Caching " + mapId);
+                    };
+                    if (workers == null) {
+                        write.run();
+                    } else {
+                        writes.add(workers.submit(write));
+                    }
+                }
+            }
+
+            for (Future<?> write : writes) {
+                awaitWrite(write);
+            }
+        } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Runs {@code task} on the server thread for {@code indices[start..]} until the snapshot budget is used up.
+     *
+     * @return results keyed by map index, in {@code indices} order; never empty
+     */
+    private static <T> Map<Integer, T> callOnMainThread(final List<String> mapIds, final List<Integer> indices,
+        final int start, final Function<String, T> task) {
+        Map<Integer, T> batch;
+        try {
+            batch = mainThreadExecutor.call(() -> {
+                Map<Integer, T> result = new LinkedHashMap<Integer, T>();
+                long deadline = System.nanoTime() + SNAPSHOT_BUDGET_NANOS;
+                for (int i = start; i < indices.size(); i++) {
+                    Integer index = indices.get(i);
+                    result.put(index, task.apply(mapIds.get(index.intValue())));
+                    if (System.nanoTime() >= deadline) {
+                        break;
+                    }
+                }
+                return result;
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("recipe_snapshot_failed", e);
+        }
+        if (batch == null || batch.isEmpty()) {
+            throw new IllegalStateException("recipe_snapshot_failed");
+        }
+        return batch;
+    }
+
+    private static RecipeCacheMetadata.RecipeMapInfo writeRecipeMap(String mapId, MapSnapshot snapshot,
+        long cachedAt) {
+        List<RecipeEntry> recipes = snapshot.recipes;
+        RecipeCacheMetadata.RecipeMapInfo info = new RecipeCacheMetadata.RecipeMapInfo(
+            mapId,
+            environmentInspector.resolveModId(mapId));
+        info.recipeCount = recipes.size();
+        info.cachedAt = cachedAt;
+        info.contentHash = environmentInspector.calculateRecipeMapHash(mapId, recipes);
+        info.cacheFileName = RecipeCacheStorage.getRecipeMapFile(mapId)
+            .getName();
+        info.sourceFingerprint = snapshot.fingerprint != null ? snapshot.fingerprint : "";
+        if (!storageBackend.saveRecipeMap(mapId, recipes, info)) {
+            throw new IllegalStateException("failed_to_save_recipe_map:" + mapId);
+        }
+        return info;
+    }
 
-        return buildStatistics(metadata);
+    private static void awaitWrite(Future<?> write) {
+        try {
+            write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+            throw new IllegalStateException("recipe_cache_build_interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("recipe_cache_build_failed", cause);
+        }
     }
 
     static void setStorageBackend(StorageBackend backend) {
@@ -216,13 +495,116 @@ public final class RecipeCacheService {
         environmentInspector = inspector != null ? inspector : environmentInspector;
     }
 
+    static void setMainThreadExecutor(MainThreadExecutor executor) {
+        mainThreadExecutor = executor != null ? executor : mainThreadExecutor;
+    }
+
     static void resetTestHooks() {
         storageBackend = new DefaultStorageBackend();
         recipeCollector = new DefaultRecipeCollector();
         environmentInspector = new DefaultEnvironmentInspector();
+        mainThreadExecutor = new DefaultMainThreadExecutor();
+        DECODED_MAPS.clear();
+        DECODED_MAPS.resetCounters();
+        QUERY_RESULTS.clear();
+        QUERY_RESULTS.resetCounters();
+        lastValidation = null;
+    }
+
+    /**
+     * Returns the validated metadata, re-running the full check only when the metadata file, config files, loaded
+     * mods or the cache generation (bumped on rebuild/clear) changed since the last verdict.
+     */
+    private static RecipeCacheMetadata loadValidMetadata() {
+        storageBackend.prepareAccessContext();
+        ValidationKey key = currentValidationKey();
+        ValidationSnapshot snapshot = lastValidation;
+        if (key != null && snapshot != null && snapshot.key.equals(key)) {
+            return snapshot.metadata;
+        }
+
+        RecipeCacheMetadata metadata = validateMetadata();
+        lastValidation = key != null ? new ValidationSnapshot(key, metadata) : null;
+        return metadata;
+    }
+
+    private static ValidationKey currentValidationKey() {
+        long generation = CACHE_GENERATION.get();
+        String metadataStamp = storageBackend.getMetadataStamp();
+        if (metadataStamp == null) {
+            return null;
+        }
+        return new ValidationKey(
+            generation,
+            metadataStamp,
+            environmentInspector.getConfigStamp(),
+            environmentInspector.getLoadedModVersions());
+    }
+
+    private static RecipeCacheMetadata validateMetadata() {
+        RecipeCacheMetadata metadata = storageBackend.loadMetadata();
+        if (metadata == null || metadata.cacheVersion != RecipeCacheMetadata.CURRENT_VERSION
+            || metadata.recipeMaps.isEmpty()) {
+            return null;
+        }
+
+        if (ModVersionHelper.isModVersionChanged(metadata, environmentInspector.getLoadedModVersions())) {
+            return null;
+        }
+        if (ModVersionHelper.isConfigHashChanged(metadata, environmentInspector.getConfigHashes())) {
+            return null;
+        }
+
+        for (String mapId : metadata.recipeMaps.keySet()) {
+            if (!storageBackend.recipeMapExists(mapId)) {
+                return null;
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Returns the decoded map from memory, decoding and caching it on a miss when it fits the memory budget.
+     *
+     * @return {@code null} when the map should be streamed from disk instead
+     */
+    private static List<RecipeEntry> loadDecodedRecipeMap(String mapId, RecipeCacheMetadata.RecipeMapInfo info) {
+        if (info == null || info.contentHash == null || info.contentHash.isEmpty()) {
+            return null;
+        }
+
+        List<RecipeEntry> cached = DECODED_MAPS.get(mapId, info.contentHash);
+        if (cached != null) {
+            return cached;
+        }
+        if (!DECODED_MAPS.accepts(info.recipeCount)) {
+            return null;
+        }
+        List<RecipeEntry> loaded = storageBackend.loadRecipeMap(mapId);
+        if (loaded.isEmpty() && info.recipeCount > 0) {
+            // The read failed: don't cache the empty map, stream it from disk instead
+            return null;
+        }
+        return DECODED_MAPS.put(mapId, info.contentHash, loaded);
+    }
+
+    /**
+     * Narrows a cached map to the recipe ordinals the filter can possibly accept, using the map's inverted index.
+     *
+     * @return {@code null} when indexing is disabled or the filter cannot be resolved against the index
+     */
+    private static BitSet selectIndexedCandidates(String mapId, RecipeCacheMetadata.RecipeMapInfo info,
+        IRecipeFilter filter) {
+        // Ask the filter first so tier-only and display-name queries never build the index
+        if (!ForgeConfig.isRecipeIndexEnabled() || !filter.canSelectCandidates()) {
+            return null;
+        }
+        RecipeIndex index = DECODED_MAPS.getIndex(mapId, info.contentHash);
+        return index != null ? filter.selectCandidates(index) : null;
     }
 
-    private static CacheStatistics buildStatistics(RecipeCacheMetadata metadata) {
+    private static CacheStatistics buildStatistics(RecipeCacheMetadata metadata, int rewrittenMaps,
+        int skippedMaps) {
         return new CacheStatistics(
             true,
             metadata.totalRecipeCount,
@@ -230,7 +612,14 @@ public final class RecipeCacheService {
             metadata.mods.size(),
             calculateDirectoryBytes(storageBackend.getCacheDirectory()),
             metadata.createdAt,
-            metadata.lastUpdated);
+            metadata.lastUpdated,
+            DECODED_MAPS.getHits(),
+            DECODED_MAPS.getMisses(),
+            DECODED_MAPS.getEvictions(),
+            DECODED_MAPS.getEntryCount(),
+            DECODED_MAPS.getTotalWeight(),
+            rewrittenMaps,
+            skippedMaps);
     }
 
     private static long calculateDirectoryBytes(File file) {
@@ -263,6 +652,85 @@ public final class RecipeCacheService {
         counts[1] += Math.max(0, recipeCount);
     }
 
+    private static final class MapSnapshot {
+
+        private final List<RecipeEntry> recipes;
+        private final String fingerprint;
+
+        private MapSnapshot(List<RecipeEntry> recipes, String fingerprint) {
+            this.recipes = recipes;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private static final class ValidationKey {
+
+        private final long generation;
+        private final String metadataStamp;
+        private final String configStamp;
+        private final Map<String, String> modVersions;
+
+        private ValidationKey(long generation, String metadataStamp, String configStamp,
+            Map<String, String> modVersions) {
+            this.generation = generation;
+            this.metadataStamp = metadataStamp;
+            this.configStamp = configStamp;
+            this.modVersions = modVersions;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof ValidationKey)) {
+                return false;
+            }
+            ValidationKey key = (ValidationKey) other;
+            return generation == key.generation && metadataStamp.equals(key.metadataStamp)
+                && Objects.equals(configStamp, key.configStamp)
+                && Objects.equals(modVersions, key.modVersions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(generation, metadataStamp, configStamp, modVersions);
+        }
+    }
+
+    private static final class ValidationSnapshot {
+
+        private final ValidationKey key;
+        private final RecipeCacheMetadata metadata;
+
+        private ValidationSnapshot(ValidationKey key, RecipeCacheMetadata metadata) {
+            this.key = key;
+            this.metadata = metadata;
+        }
+    }
+
+    /**
+     * Serializes progress callbacks from worker threads and keeps {@code current} monotonic.
+     */
+    private static final class ProgressTracker {
+
+        private final ProgressNotifier notifier;
+        private final int total;
+        private int current;
+
+        private ProgressTracker(ProgressNotifier notifier, int total) {
+            this.notifier = notifier;
+            this.total = total;
+        }
+
+        private synchronized void step(String message) {
+            current++;
+            if (notifier != null) {
+                notifier.onProgress(message, current, total);
+            }
+        }
+    }
+
     public interface ProgressNotifier {
 
         void onProgress(String message, int current, int total);
@@ -280,6 +748,19 @@ public final class RecipeCacheService {
 
         List<RecipeEntry> loadRecipeMap(String mapId);
 
+        /**
+         * Appends recipes of {@code mapId} accepted by {@code filter} to {@code sink}, checking {@code token} while
+         * scanning.
+         *
+         * @return number of recipes stored for the map
+         */
+        default int scanRecipeMap(String mapId, IRecipeFilter filter, List<RecipeEntry> sink,
+            CancellationToken token) {
+            List<RecipeEntry> recipes = loadRecipeMap(mapId);
+            ParallelRecipeFilter.filterInto(recipes, filter, sink, token);
+            return recipes.size();
+        }
+
         boolean saveMetadata(RecipeCacheMetadata metadata);
 
         RecipeCacheMetadata loadMetadata();
@@ -291,6 +772,13 @@ public final class RecipeCacheService {
         File getCacheDirectory();
 
         boolean recipeMapExists(String mapId);
+
+        /**
+         * Cheap change signal for persisted metadata; {@code null} disables validation memoization.
+         */
+        default String getMetadataStamp() {
+            return null;
+        }
     }
 
     interface RecipeCollector {
@@ -300,6 +788,13 @@ public final class RecipeCacheService {
         List<String> findMatchingRecipeMaps(String keyword);
 
         List<RecipeEntry> collectRecipes(String mapId);
+
+        /**
+         * Cheap structural fingerprint of the live map; {@code null} means the map must always be re-collected.
+         */
+        default String fingerprintRecipeMap(String mapId) {
+            return null;
+        }
     }
 
     interface EnvironmentInspector {
@@ -308,11 +803,37 @@ public final class RecipeCacheService {
 
         Map<String, String> getConfigHashes();
 
+        /**
+         * Cheap change signal for the config files behind {@link #getConfigHashes()}.
+         */
+        default String getConfigStamp() {
+            return String.valueOf(getConfigHashes());
+        }
+
         String calculateRecipeMapHash(String mapId, List<RecipeEntry> recipes);
 
         String resolveModId(String mapId);
     }
 
+    interface MainThreadExecutor {
+
+        <T> T call(Callable<T> task) throws Exception;
+    }
+
+    private static final class DefaultMainThreadExecutor implements MainThreadExecutor {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T call(Callable<T> task) throws Exception {
+            MinecraftServer server = MinecraftServer.getServer();
+            if (server == null || !server.isServerRunning()) {
+                return task.call();
+            }
+            Future<T> future = server.func_152343_a(task);
+            return future.get(SNAPSHOT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
     private static final class DefaultStorageBackend implements StorageBackend {
 
         @Override
@@ -330,6 +851,12 @@ public final class RecipeCacheService {
             return RecipeCacheStorage.loadRecipeMap(mapId);
         }
 
+        @Override
+        public int scanRecipeMap(String mapId, IRecipeFilter filter, List<RecipeEntry> sink,
+            CancellationToken token) {
+            return RecipeCacheStorage.scanRecipeMap(mapId, filter, sink, token);
+        }
+
         @Override
         public boolean saveMetadata(RecipeCacheMetadata metadata) {
             return RecipeCacheStorage.saveMetadata(metadata);
@@ -360,6 +887,11 @@ public final class RecipeCacheService {
             return RecipeCacheStorage.getRecipeMapFile(mapId)
                 .exists();
         }
+
+        @Override
+        public String getMetadataStamp() {
+            return RecipeCacheStorage.getMetadataStamp();
+        }
     }
 
     private static final class DefaultRecipeCollector implements RecipeCollector {
@@ -380,6 +912,11 @@ public final class RecipeCacheService {
         public List<RecipeEntry> collectRecipes(String mapId) {
             return GTRecipeSource.collectRecipes(mapId);
         }
+
+        @Override
+        public String fingerprintRecipeMap(String mapId) {
+            return GTRecipeSource.fingerprintRecipeMap(mapId);
+        }
     }
 
     private static final class DefaultEnvironmentInspector implements EnvironmentInspector {
@@ -394,6 +931,11 @@ public final class RecipeCacheService {
             return ModVersionHelper.calculateConfigHashes();
         }
 
+        @Override
+        public String getConfigStamp() {
+            return ModVersionHelper.calculateConfigStamp();
+        }
+
         @Override
         public String calculateRecipeMapHash(String mapId, List<RecipeEntry> recipes) {
             return ModVersionHelper.calculateRecipeMapHash(mapId, recipes);
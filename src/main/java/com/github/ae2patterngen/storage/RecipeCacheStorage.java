@@ -3,6 +3,8 @@ package com.github.ae2patterngen.storage;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
@@ -15,10 +17,11 @@ import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraftforge.common.DimensionManager;
-import net.minecraftforge.fluids.FluidStack;
 
 import com.github.ae2patterngen.config.ForgeConfig;
+import com.github.ae2patterngen.filter.IRecipeFilter;
 import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.util.CancellationToken;
 
 /**
  * Persistent storage for recipe cache metadata and per-map payloads.
@@ -26,6 +29,8 @@ import com.github.ae2patterngen.recipe.RecipeEntry;
 public final class RecipeCacheStorage {
 
     private static final String METADATA_FILE_NAME = "metadata.dat";
+    /** Number of records between cancellation checks while streaming a map. */
+    static final int SCAN_CANCEL_CHECK_INTERVAL = 256;
 
     private static final String KEY_VERSION = "Version";
     private static final String KEY_CREATED_AT = "CreatedAt";
@@ -45,25 +50,10 @@ public final class RecipeCacheStorage {
     private static final String KEY_CACHED_AT = "CachedAt";
     private static final String KEY_HASH = "Hash";
     private static final String KEY_CACHE_FILE_NAME = "CacheFileName";
+    private static final String KEY_SOURCE_FINGERPRINT = "SourceFingerprint";
     private static final String KEY_PATH = "Path";
     private static final String KEY_VALUE = "Value";
 
-    private static final String KEY_RECIPES = "Recipes";
-    private static final String KEY_SOURCE_TYPE = "SourceType";
-    private static final String KEY_MACHINE_DISPLAY_NAME = "MachineDisplayName";
-    private static final String KEY_INPUTS = "Inputs";
-    private static final String KEY_OUTPUTS = "Outputs";
-    private static final String KEY_FLUID_INPUTS = "FluidInputs";
-    private static final String KEY_FLUID_OUTPUTS = "FluidOutputs";
-    private static final String KEY_SPECIAL_ITEMS = "SpecialItems";
-    private static final String KEY_DURATION = "Duration";
-    private static final String KEY_EU_PER_TICK = "EuPerTick";
-    private static final String KEY_REGISTRY_NAME = "RegistryName";
-    private static final String KEY_ITEM_ID = "ItemId";
-    private static final String KEY_STACK_SIZE = "StackSize";
-    private static final String KEY_DAMAGE = "Damage";
-    private static final String KEY_TAG = "tag";
-
     private static volatile DirectoryResolver directoryResolver = new DirectoryResolver() {
 
         @Override
@@ -72,6 +62,7 @@ public final class RecipeCacheStorage {
         }
     };
     private static volatile File rememberedWorldSaveRoot;
+    private static volatile RecipeCacheCodec.ItemResolver itemResolver = RecipeCacheCodec.REGISTRY_ITEM_RESOLVER;
 
     private RecipeCacheStorage() {}
 
@@ -93,19 +84,17 @@ public final class RecipeCacheStorage {
                 return false;
             }
 
-            NBTTagCompound root = new NBTTagCompound();
-            root.setInteger(KEY_VERSION, RecipeCacheMetadata.CURRENT_VERSION);
-            root.setString(KEY_MAP_ID, mapId);
-            root.setString(KEY_MOD_ID, info != null ? safe(info.modId) : "");
-            root.setInteger(KEY_RECIPE_COUNT, recipes != null ? recipes.size() : 0);
-            root.setLong(KEY_CACHED_AT, info != null ? info.cachedAt : System.currentTimeMillis());
-            root.setString(KEY_HASH, info != null ? safe(info.contentHash) : "");
-            root.setString(KEY_CACHE_FILE_NAME, file.getName());
-            root.setTag(KEY_RECIPES, toRecipeListNBT(recipes));
+            byte[] payload = RecipeCacheCodec.encode(
+                mapId,
+                info != null ? safe(info.modId) : "",
+                info != null ? info.cachedAt : System.currentTimeMillis(),
+                info != null ? safe(info.contentHash) : "",
+                file.getName(),
+                recipes);
 
             tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
             try (FileOutputStream fos = new FileOutputStream(tmpFile)) {
-                CompressedStreamTools.writeCompressed(root, fos);
+                fos.write(payload);
             }
             moveIntoPlace(tmpFile, file);
             return true;
@@ -129,16 +118,74 @@ public final class RecipeCacheStorage {
             return recipes;
         }
 
-        try (FileInputStream fis = new FileInputStream(file)) {
-            NBTTagCompound root = CompressedStreamTools.readCompressed(fis);
-            int version = root.getInteger(KEY_VERSION);
-            if (version != RecipeCacheMetadata.CURRENT_VERSION) {
+        try {
+            RecipeCacheCodec.RecordCursor cursor = openCursor(file);
+            if (cursor == null) {
                 return recipes;
             }
-            return fromRecipeListNBT(root.getTagList(KEY_RECIPES, 10));
+            recipes = new ArrayList<RecipeEntry>(cursor.size());
+            while (cursor.next()) {
+                recipes.add(cursor.materialize());
+            }
+            return recipes;
         } catch (Exception e) {
             System.err.println("[AE2PatternGen] Failed to load recipe cache map: " + e.getMessage());
-            return recipes;
+            return new ArrayList<RecipeEntry>();
+        }
+    }
+
+    /**
+     * Scans a cached map without decoding it up front: records rejected by {@link IRecipeFilter#mayMatch} are skipped
+     * on the raw bytes, and only the remaining ones are materialized and checked with {@link IRecipeFilter#matches}.
+     *
+     * @return number of records scanned, or 0 when the map is missing or stale
+     */
+    public static int scanRecipeMap(String mapId, IRecipeFilter filter, List<RecipeEntry> sink) {
+        return scanRecipeMap(mapId, filter, sink, CancellationToken.NONE);
+    }
+
+    /**
+     * Same as {@link #scanRecipeMap(String, IRecipeFilter, List)}, checking {@code token} every
+     * {@value #SCAN_CANCEL_CHECK_INTERVAL} records. A cancelled scan throws
+     * {@link CancellationToken.CancelledException} and leaves {@code sink} untouched.
+     */
+    public static int scanRecipeMap(String mapId, IRecipeFilter filter, List<RecipeEntry> sink,
+        CancellationToken token) {
+        if (isBlank(mapId) || sink == null) {
+            return 0;
+        }
+
+        File file = getRecipeMapFile(mapId);
+        if (!file.exists()) {
+            return 0;
+        }
+
+        List<RecipeEntry> matched = new ArrayList<RecipeEntry>();
+        try {
+            RecipeCacheCodec.RecordCursor cursor = openCursor(file);
+            if (cursor == null) {
+                return 0;
+            }
+            int scanned = 0;
+            while (cursor.next()) {
+                if (scanned++ % SCAN_CANCEL_CHECK_INTERVAL == 0) {
+                    token.throwIfCancelled();
+                }
+                if (filter != null && !filter.mayMatch(cursor)) {
+                    continue;
+                }
+                RecipeEntry recipe = cursor.materialize();
+                if (filter == null || filter.matches(recipe)) {
+                    matched.add(recipe);
+                }
+            }
+            sink.addAll(matched);
+            return cursor.size();
+        } catch (CancellationToken.CancelledException e) {
+            throw e;
+        } catch (Exception e) {
+            System.err.println("[AE2PatternGen] Failed to scan recipe cache map: " + e.getMessage());
+            return 0;
         }
     }
 
@@ -224,6 +271,15 @@ public final class RecipeCacheStorage {
         return new File(getCacheDirectory(), METADATA_FILE_NAME);
     }
 
+    /**
+     * Cheap change signal for the metadata file (path, size, mtime).
+     */
+    static String getMetadataStamp() {
+        StringBuilder stamp = new StringBuilder();
+        ModVersionHelper.appendFileStamp(stamp, getMetadataFile());
+        return stamp.toString();
+    }
+
     public static File getRecipeMapFile(String mapId) {
         return new File(getCacheDirectory(), sanitizeFileComponent(mapId) + ".dat");
     }
@@ -288,6 +344,7 @@ public final class RecipeCacheStorage {
             tag.setLong(KEY_CACHED_AT, info.cachedAt);
             tag.setString(KEY_HASH, safe(info.contentHash));
             tag.setString(KEY_CACHE_FILE_NAME, safe(info.cacheFileName));
+            tag.setString(KEY_SOURCE_FINGERPRINT, safe(info.sourceFingerprint));
             recipeMaps.appendTag(tag);
         }
         root.setTag(KEY_RECIPE_MAPS, recipeMaps);
@@ -337,6 +394,7 @@ public final class RecipeCacheStorage {
             info.cachedAt = tag.getLong(KEY_CACHED_AT);
             info.contentHash = tag.getString(KEY_HASH);
             info.cacheFileName = tag.getString(KEY_CACHE_FILE_NAME);
+            info.sourceFingerprint = tag.getString(KEY_SOURCE_FINGERPRINT);
             metadata.putRecipeMapInfo(info);
         }
 
@@ -351,121 +409,26 @@ public final class RecipeCacheStorage {
         return metadata;
     }
 
-    private static NBTTagList toRecipeListNBT(List<RecipeEntry> recipes) {
-        NBTTagList list = new NBTTagList();
-        if (recipes == null) {
-            return list;
-        }
-        for (RecipeEntry recipe : recipes) {
-            if (recipe != null) {
-                list.appendTag(toRecipeNBT(recipe));
-            }
-        }
-        return list;
-    }
-
-    private static List<RecipeEntry> fromRecipeListNBT(NBTTagList list) {
-        List<RecipeEntry> recipes = new ArrayList<RecipeEntry>();
-        for (int i = 0; i < list.tagCount(); i++) {
-            recipes.add(fromRecipeNBT(list.getCompoundTagAt(i)));
-        }
-        return recipes;
-    }
-
-    private static NBTTagCompound toRecipeNBT(RecipeEntry recipe) {
-        NBTTagCompound tag = new NBTTagCompound();
-        tag.setString(KEY_SOURCE_TYPE, safe(recipe.sourceType));
-        tag.setString(KEY_MAP_ID, safe(recipe.recipeMapId));
-        tag.setString(KEY_MACHINE_DISPLAY_NAME, safe(recipe.machineDisplayName));
-        tag.setTag(KEY_INPUTS, writeItemStacks(recipe.inputs));
-        tag.setTag(KEY_OUTPUTS, writeItemStacks(recipe.outputs));
-        tag.setTag(KEY_FLUID_INPUTS, writeFluidStacks(recipe.fluidInputs));
-        tag.setTag(KEY_FLUID_OUTPUTS, writeFluidStacks(recipe.fluidOutputs));
-        tag.setTag(KEY_SPECIAL_ITEMS, writeItemStacks(recipe.specialItems));
-        tag.setInteger(KEY_DURATION, recipe.duration);
-        tag.setInteger(KEY_EU_PER_TICK, recipe.euPerTick);
-        return tag;
+    static void setItemResolver(RecipeCacheCodec.ItemResolver resolver) {
+        itemResolver = resolver != null ? resolver : RecipeCacheCodec.REGISTRY_ITEM_RESOLVER;
     }
 
-    private static RecipeEntry fromRecipeNBT(NBTTagCompound tag) {
-        return new RecipeEntry(
-            tag.getString(KEY_SOURCE_TYPE),
-            tag.getString(KEY_MAP_ID),
-            tag.getString(KEY_MACHINE_DISPLAY_NAME),
-            readItemStacks(tag.getTagList(KEY_INPUTS, 10)),
-            readItemStacks(tag.getTagList(KEY_OUTPUTS, 10)),
-            readFluidStacks(tag.getTagList(KEY_FLUID_INPUTS, 10)),
-            readFluidStacks(tag.getTagList(KEY_FLUID_OUTPUTS, 10)),
-            readItemStacks(tag.getTagList(KEY_SPECIAL_ITEMS, 10)),
-            tag.getInteger(KEY_DURATION),
-            tag.getInteger(KEY_EU_PER_TICK));
+    static void resetItemResolver() {
+        itemResolver = RecipeCacheCodec.REGISTRY_ITEM_RESOLVER;
     }
 
-    private static NBTTagList writeItemStacks(ItemStack[] stacks) {
-        NBTTagList list = new NBTTagList();
-        if (stacks == null) {
-            return list;
-        }
-        for (ItemStack stack : stacks) {
-            if (stack == null || stack.getItem() == null) {
-                continue;
-            }
-
-            NBTTagCompound tag = new NBTTagCompound();
-            Item item = stack.getItem();
-            Object registryName = Item.itemRegistry.getNameForObject(item);
-            if (registryName != null) {
-                tag.setString(KEY_REGISTRY_NAME, registryName.toString());
-            }
-            tag.setInteger(KEY_ITEM_ID, Item.getIdFromItem(item));
-            tag.setInteger(KEY_STACK_SIZE, stack.stackSize);
-            tag.setShort(KEY_DAMAGE, (short) stack.getItemDamage());
-            if (stack.hasTagCompound()) {
-                tag.setTag(
-                    KEY_TAG,
-                    stack.getTagCompound()
-                        .copy());
-            }
-            list.appendTag(tag);
-        }
-        return list;
-    }
-
-    private static ItemStack[] readItemStacks(NBTTagList list) {
-        List<ItemStack> stacks = new ArrayList<ItemStack>();
-        for (int i = 0; i < list.tagCount(); i++) {
-            ItemStack stack = readItemStack(list.getCompoundTagAt(i));
-            if (stack != null) {
-                stacks.add(stack);
-            }
-        }
-        return stacks.toArray(new ItemStack[stacks.size()]);
-    }
-
-    private static NBTTagList writeFluidStacks(FluidStack[] stacks) {
-        NBTTagList list = new NBTTagList();
-        if (stacks == null) {
-            return list;
-        }
-        for (FluidStack stack : stacks) {
-            if (stack != null) {
-                NBTTagCompound tag = new NBTTagCompound();
-                stack.writeToNBT(tag);
-                list.appendTag(tag);
-            }
-        }
-        return list;
-    }
+    /**
+     * Reads the whole file into a heap buffer. A memory mapping would stay alive until GC and, on Windows, block the
+     * later replace or delete of the same file.
+     */
+    private static RecipeCacheCodec.RecordCursor openCursor(File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
 
-    private static FluidStack[] readFluidStacks(NBTTagList list) {
-        List<FluidStack> stacks = new ArrayList<FluidStack>();
-        for (int i = 0; i < list.tagCount(); i++) {
-            FluidStack stack = FluidStack.loadFluidStackFromNBT(list.getCompoundTagAt(i));
-            if (stack != null) {
-                stacks.add(stack);
-            }
+        RecipeCacheCodec.Header header = RecipeCacheCodec.readHeader(buffer);
+        if (header == null || !header.isCurrentVersion()) {
+            return null;
         }
-        return stacks.toArray(new FluidStack[stacks.size()]);
+        return RecipeCacheCodec.openCursor(buffer, header, itemResolver);
     }
 
     private static void moveIntoPlace(File source, File target) throws Exception {
@@ -489,38 +452,6 @@ public final class RecipeCacheStorage {
         return value != null ? value : "";
     }
 
-    private static ItemStack readItemStack(NBTTagCompound tag) {
-        Item item = null;
-        String registryName = tag.getString(KEY_REGISTRY_NAME);
-        if (!isBlank(registryName)) {
-            Object resolved = Item.itemRegistry.getObject(registryName);
-            if (resolved instanceof Item) {
-                item = (Item) resolved;
-            }
-        }
-
-        if (item == null) {
-            int itemId = tag.getInteger(KEY_ITEM_ID);
-            if (itemId >= 0) {
-                item = Item.getItemById(itemId);
-            }
-        }
-
-        if (item == null) {
-            return null;
-        }
-
-        int stackSize = tag.hasKey(KEY_STACK_SIZE) ? tag.getInteger(KEY_STACK_SIZE) : tag.getByte("Count");
-        int damage = tag.getShort(KEY_DAMAGE);
-        ItemStack fallback = createRestoredItemStack(item, stackSize, damage);
-        if (tag.hasKey(KEY_TAG, 10)) {
-            fallback.setTagCompound(
-                (NBTTagCompound) tag.getCompoundTag(KEY_TAG)
-                    .copy());
-        }
-        return fallback;
-    }
-
     static ItemStack createRestoredItemStack(Item item, int stackSize, int damage) {
         if (item == null) {
             return null;
@@ -0,0 +1,95 @@
+package com.github.ae2patterngen.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 协作式取消令牌 — 长时间扫描在分块边界调用 {@link #throwIfCancelled()}，可由调用方主动取消或到达截止时间后自动失效。
+ * <p>
+ * 线程安全；一旦进入取消状态不会恢复。{@link #NONE} 永不取消。
+ */
+public final class CancellationToken {
+
+    public enum Reason {
+        CANCELLED,
+        DEADLINE_EXCEEDED
+    }
+
+    public static final CancellationToken NONE = new CancellationToken(0L, System::nanoTime);
+
+    /** 无截止时间 */
+    private static final long NO_DEADLINE = 0L;
+
+    private final long deadlineNanos;
+    private final LongSupplier clock;
+    private volatile Reason reason;
+
+    private CancellationToken(long deadlineNanos, LongSupplier clock) {
+        this.deadlineNanos = deadlineNanos;
+        this.clock = clock;
+    }
+
+    public static CancellationToken create() {
+        return new CancellationToken(NO_DEADLINE, System::nanoTime);
+    }
+
+    /**
+     * @param timeoutMillis 超时毫秒数，不大于 0 时无截止时间
+     */
+    public static CancellationToken withTimeout(long timeoutMillis) {
+        return withTimeout(timeoutMillis, System::nanoTime);
+    }
+
+    static CancellationToken withTimeout(long timeoutMillis, LongSupplier clock) {
+        if (timeoutMillis <= 0) {
+            return new CancellationToken(NO_DEADLINE, clock);
+        }
+        // 0 保留为 "无截止时间"
+        long deadline = clock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        return new CancellationToken(deadline != NO_DEADLINE ? deadline : 1L, clock);
+    }
+
+    public void cancel() {
+        if (this != NONE && reason == null) {
+            reason = Reason.CANCELLED;
+        }
+    }
+
+    /**
+     * @return 取消原因；仍有效时返回 null
+     */
+    public Reason getReason() {
+        Reason current = reason;
+        if (current == null && deadlineNanos != NO_DEADLINE && clock.getAsLong() - deadlineNanos >= 0) {
+            reason = Reason.DEADLINE_EXCEEDED;
+            current = reason;
+        }
+        return current;
+    }
+
+    public boolean isCancelled() {
+        return getReason() != null;
+    }
+
+    public void throwIfCancelled() {
+        Reason current = getReason();
+        if (current != null) {
+            throw new CancelledException(current);
+        }
+    }
+
+    /**
+     * 扫描被取消或超时时抛出；不记录堆栈，由发起扫描的一方捕获并转换为结果状态。
+     */
+    public static final class CancelledException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public final Reason reason;
+
+        public CancelledException(Reason reason) {
+            super(reason == Reason.DEADLINE_EXCEEDED ? "deadline_exceeded" : "cancelled", null, false, false);
+            this.reason = reason;
+        }
+    }
+}
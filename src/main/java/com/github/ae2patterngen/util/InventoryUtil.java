@@ -57,6 +57,26 @@ public class InventoryUtil {
         return true;
     }
 
+    /**
+     * 把指定数量的物品放入玩家背包，放不下的部分掉落在玩家脚下
+     */
+    public static void giveItem(EntityPlayer player, ItemStack template, int amount) {
+        int maxStackSize = Math.max(1, template.getMaxStackSize());
+        int remainToGive = amount;
+        while (remainToGive > 0) {
+            ItemStack stack = template.copy();
+            stack.stackSize = Math.min(maxStackSize, remainToGive);
+            remainToGive -= stack.stackSize;
+            player.inventory.addItemStackToInventory(stack);
+            if (stack.stackSize > 0) {
+                player.dropPlayerItemWithRandomChoice(stack, false);
+            }
+        }
+
+        // 通知背包更新
+        player.inventoryContainer.detectAndSendChanges();
+    }
+
     /**
      * 获得 AE2 的空白样板 ItemStack 实例
      */
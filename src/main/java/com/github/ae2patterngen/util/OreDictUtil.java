@@ -23,6 +23,27 @@ public final class OreDictUtil {
         }
     }
 
+    public static int[] getOreIdsSafe(ItemStack stack) {
+        if (stack == null) return new int[0];
+        try {
+            int[] oreIds = OreDictionary.getOreIDs(stack);
+            return oreIds != null ? oreIds : new int[0];
+        } catch (RuntimeException ignored) {
+            return new int[0];
+        }
+    }
+
+    /**
+     * All ore names indexed by ore id, or {@code null} when they cannot be read.
+     */
+    public static String[] getAllOreNamesSafe() {
+        try {
+            return OreDictionary.getOreNames();
+        } catch (RuntimeException ignored) {
+            return null;
+        }
+    }
+
     static String[] getOreNamesSafe(int[] oreIds, String[] oreNamesById) {
         if (oreIds == null || oreIds.length == 0 || oreNamesById == null || oreNamesById.length == 0) {
             return new String[0];
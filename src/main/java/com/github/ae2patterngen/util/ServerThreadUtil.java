@@ -0,0 +1,23 @@
+package com.github.ae2patterngen.util;
+
+import net.minecraft.server.MinecraftServer;
+
+/**
+ * 把后台线程的后续操作切回服务器主线程。
+ */
+public final class ServerThreadUtil {
+
+    private ServerThreadUtil() {}
+
+    /**
+     * 在服务器主线程执行 (按提交顺序)；服务器未运行时直接在当前线程执行。
+     */
+    public static void execute(Runnable action) {
+        MinecraftServer server = MinecraftServer.getServer();
+        if (server == null || !server.isServerRunning()) {
+            action.run();
+            return;
+        }
+        server.func_152344_a(action);
+    }
+}
@@ -5,6 +5,8 @@ import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
+import com.github.ae2patterngen.recipe.RecipeRecordView;
+
 public class BlacklistFilterTest {
 
     @Test
@@ -72,4 +74,60 @@ public class BlacklistFilterTest {
         assertTrue(matcher.isInvalid());
         assertFalse(matcher.matches("Copper Dust", 8119, 12, new String[] { "dustCopper" }));
     }
+
+    @Test
+    public void idOnlyBlacklistRejectsRawRecordsWithoutDecoding() {
+        BlacklistFilter filter = new BlacklistFilter("[8119:12]", true, false);
+
+        assertFalse(filter.mayMatch(new FixedRecord(new int[] { 1, 8119 }, new int[] { 0, 12 })));
+        assertTrue(filter.mayMatch(new FixedRecord(new int[] { 1, 8119 }, new int[] { 0, 13 })));
+    }
+
+    @Test
+    public void nonIdBlacklistDefersToFullMatch() {
+        BlacklistFilter filter = new BlacklistFilter("(dustCopper)", true, false);
+
+        assertTrue(filter.mayMatch(new FixedRecord(new int[] { 8119 }, new int[] { 12 })));
+    }
+
+    private static final class FixedRecord implements RecipeRecordView {
+
+        private final int[] inputIds;
+        private final int[] inputMetas;
+
+        private FixedRecord(int[] inputIds, int[] inputMetas) {
+            this.inputIds = inputIds;
+            this.inputMetas = inputMetas;
+        }
+
+        @Override
+        public int getEuPerTick() {
+            return 30;
+        }
+
+        @Override
+        public int getDuration() {
+            return 100;
+        }
+
+        @Override
+        public int getItemCount(Slot slot) {
+            return slot == Slot.INPUT ? inputIds.length : 0;
+        }
+
+        @Override
+        public int getItemId(Slot slot, int index) {
+            return inputIds[index];
+        }
+
+        @Override
+        public int getItemMeta(Slot slot, int index) {
+            return inputMetas[index];
+        }
+
+        @Override
+        public int getStackSize(Slot slot, int index) {
+            return 1;
+        }
+    }
 }
@@ -0,0 +1,115 @@
+package com.github.ae2patterngen.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fluids.FluidStack;
+
+import org.junit.Test;
+
+import com.github.ae2patterngen.recipe.RecipeEntry;
+
+public class CompositeFilterTest {
+
+    @Test
+    public void adaptiveModeMovesTheMostSelectiveFilterFirstAfterSampling() {
+        CountingFilter permissive = new CountingFilter("permissive", 1);
+        CountingFilter selective = new CountingFilter("selective", 10);
+        CompositeFilter filter = new CompositeFilter();
+        filter.addFilter(permissive);
+        filter.addFilter(selective);
+        filter.setAdaptiveSampleSize(20);
+
+        int matched = 0;
+        for (int duration = 0; duration < 100; duration++) {
+            if (filter.matches(recipe(duration))) {
+                matched++;
+            }
+        }
+
+        assertEquals(10, matched);
+        assertTrue(filter.isEvaluationOrderAdapted());
+        List<IRecipeFilter> order = filter.getEvaluationOrder();
+        assertSame(selective, order.get(0));
+        assertSame(permissive, order.get(1));
+        // 采样阶段 20 次全量求值，之后仅对 selective 放行的 8 条配方求值
+        assertEquals(28, permissive.calls.get());
+        assertEquals(100, selective.calls.get());
+    }
+
+    @Test
+    public void fixedOrderIsKeptWhenAdaptiveModeIsDisabled() {
+        CountingFilter permissive = new CountingFilter("permissive", 1);
+        CountingFilter selective = new CountingFilter("selective", 10);
+        CompositeFilter filter = new CompositeFilter();
+        filter.addFilter(permissive);
+        filter.addFilter(selective);
+
+        for (int duration = 0; duration < 50; duration++) {
+            filter.matches(recipe(duration));
+        }
+
+        assertFalse(filter.isEvaluationOrderAdapted());
+        assertSame(permissive, filter.getEvaluationOrder().get(0));
+        assertEquals(50, permissive.calls.get());
+    }
+
+    @Test
+    public void indexIsOnlyUsableWhenSomeFilterHasIndexableRules() {
+        CompositeFilter tierOnly = new CompositeFilter();
+        tierOnly.addFilter(new TierFilter(2));
+        tierOnly.addFilter(new OutputOreDictFilter("{Plate}"));
+        assertFalse(tierOnly.canSelectCandidates());
+
+        CompositeFilter withOre = new CompositeFilter();
+        withOre.addFilter(new TierFilter(2));
+        withOre.addFilter(new InputOreDictFilter("(plate)"));
+        assertTrue(withOre.canSelectCandidates());
+    }
+
+    private static RecipeEntry recipe(int duration) {
+        return new RecipeEntry(
+            "gt",
+            "gt.recipe.assembler",
+            "Assembler",
+            new ItemStack[0],
+            new ItemStack[0],
+            new FluidStack[0],
+            new FluidStack[0],
+            new ItemStack[0],
+            duration,
+            30);
+    }
+
+    /**
+     * 仅保留 duration 能被 modulus 整除的配方。
+     */
+    private static final class CountingFilter implements IRecipeFilter {
+
+        private final String name;
+        private final int modulus;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private CountingFilter(String name, int modulus) {
+            this.name = name;
+            this.modulus = modulus;
+        }
+
+        @Override
+        public boolean matches(RecipeEntry recipe) {
+            calls.incrementAndGet();
+            return recipe.duration % modulus == 0;
+        }
+
+        @Override
+        public String getDescription() {
+            return name;
+        }
+    }
+}
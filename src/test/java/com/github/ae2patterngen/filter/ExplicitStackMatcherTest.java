@@ -1,18 +1,38 @@
 package com.github.ae2patterngen.filter;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+
+import org.junit.After;
 import org.junit.Test;
 
+import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.recipe.RecipeIndex;
+import com.github.ae2patterngen.recipe.RecipeRecordView;
+
 public class ExplicitStackMatcherTest {
 
+    @After
+    public void tearDown() {
+        ExplicitStackMatcher.resetOreNameTable();
+    }
+
     @Test
     public void asteriskDisablesFiltering() {
         ExplicitStackMatcher matcher = new ExplicitStackMatcher("*");
@@ -104,6 +124,116 @@ public class ExplicitStackMatcherTest {
         assertTrue("display-only matcher should load display name", displayLoads.get() > 0);
     }
 
+    @Test
+    public void oreRulesMatchOreIdsWithoutLoadingOreNames() {
+        final String[][] table = { { "dustCopper", "plateTitanium" } };
+        ExplicitStackMatcher.setOreNameTable(() -> table[0]);
+        ExplicitStackMatcher matcher = new ExplicitStackMatcher("(titanium)");
+        AtomicInteger nameLoads = new AtomicInteger();
+        Supplier<String[]> names = () -> {
+            nameLoads.incrementAndGet();
+            return new String[0];
+        };
+
+        assertTrue(matcher.matches(1, 0, () -> new int[] { 1 }, names, null));
+        assertFalse(matcher.matches(1, 0, () -> new int[] { 0 }, names, null));
+        assertEquals(0, nameLoads.get());
+
+        // An ore id registered after compilation falls outside the bitmap and triggers a recompile
+        table[0] = new String[] { "dustCopper", "plateTitanium", "gearTitanium" };
+        assertTrue(matcher.matches(1, 0, () -> new int[] { 2 }, names, null));
+        assertEquals(0, nameLoads.get());
+    }
+
+    @Test
+    public void oreRulesFallBackToOreNamesWhenOreTableIsUnavailable() {
+        ExplicitStackMatcher.setOreNameTable(() -> null);
+        ExplicitStackMatcher matcher = new ExplicitStackMatcher("[5] (titanium)");
+
+        assertTrue(matcher.matches(1, 0, () -> new int[] { 7 }, () -> new String[] { "plateTitanium" }, null));
+        assertFalse(matcher.matches(1, 0, () -> new int[] { 7 }, () -> new String[] { "plateSteel" }, null));
+        assertTrue(matcher.matches(5, 0, () -> new int[0], () -> new String[0], null));
+    }
+
+    @Test
+    public void stackMatchCacheSharesDataAcrossEquivalentStackInstances() {
+        ExplicitStackMatcher.GlobalStackMatchCache cache = new ExplicitStackMatcher.GlobalStackMatchCache(16);
+        Item item = new Item();
+        ItemStack tagged = new ItemStack(item, 1, 3);
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setString("Circuit", "basic");
+        tagged.setTagCompound(tag);
+        ItemStack taggedCopy = new ItemStack(item, 64, 3);
+        taggedCopy.setTagCompound((NBTTagCompound) tag.copy());
+
+        Object first = cache.getOrCreate(new ItemStack(item, 1, 3));
+        assertSame(first, cache.getOrCreate(new ItemStack(item, 16, 3)));
+        Object taggedData = cache.getOrCreate(tagged);
+        assertNotSame(first, taggedData);
+        assertSame(taggedData, cache.getOrCreate(taggedCopy));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void stackMatchCacheStaysWithinItsBound() {
+        ExplicitStackMatcher.GlobalStackMatchCache cache = new ExplicitStackMatcher.GlobalStackMatchCache(8);
+        Item item = new Item();
+        for (int meta = 0; meta < 100; meta++) {
+            cache.getOrCreate(new ItemStack(item, 1, meta));
+        }
+
+        assertTrue(cache.size() <= 8);
+        assertEquals(100, cache.getMisses());
+        assertEquals(100 - cache.size(), cache.getEvictions());
+    }
+
+    @Test
+    public void oreRulesResolveToIndexedCandidatesPerSlot() {
+        Item plate = new Item();
+        RecipeIndex index = RecipeIndex.build(
+            Arrays.asList(
+                recipeWithOutput(new ItemStack(plate, 1, 1)),
+                recipeWithOutput(new ItemStack(plate, 1, 2)),
+                recipeWithOutput(new ItemStack(plate, 1, 1))),
+            stack -> stack.getItemDamage() == 1 ? new String[] { "plateTitanium" } : new String[] { "plateSteel" });
+
+        BitSet outputs = new ExplicitStackMatcher("(titanium)").selectCandidates(index, RecipeRecordView.Slot.OUTPUT);
+        BitSet inputs = new ExplicitStackMatcher("(titanium)").selectCandidates(index, RecipeRecordView.Slot.INPUT);
+
+        assertEquals("{0, 2}", outputs.toString());
+        assertTrue(inputs.isEmpty());
+    }
+
+    @Test
+    public void displayRulesCannotBeResolvedAgainstIndex() {
+        RecipeIndex index = RecipeIndex
+            .build(Arrays.asList(recipeWithOutput(new ItemStack(new Item(), 1, 0))), stack -> new String[0]);
+
+        assertNull(new ExplicitStackMatcher("(plate) {Plate}").selectCandidates(index, RecipeRecordView.Slot.OUTPUT));
+        assertNull(new ExplicitStackMatcher("*").selectCandidates(index, RecipeRecordView.Slot.OUTPUT));
+        assertNull(new ExplicitStackMatcher("(plate)").selectCandidates(index, RecipeRecordView.Slot.SPECIAL));
+        assertFalse(new ExplicitStackMatcher("(plate) {Plate}").canSelectCandidates());
+        assertFalse(new ExplicitStackMatcher("*").canSelectCandidates());
+        assertTrue(new ExplicitStackMatcher("(plate)").canSelectCandidates());
+    }
+
+    private static RecipeEntry recipeWithOutput(ItemStack output) {
+        return new RecipeEntry(
+            "gt",
+            "gt.recipe.bender",
+            "Bender",
+            new ItemStack[0],
+            new ItemStack[] { output },
+            null,
+            null,
+            null,
+            20,
+            30);
+    }
+
     private boolean invokeLazyMatch(ExplicitStackMatcher matcher, int itemId, int meta, AtomicInteger oreLoads,
         AtomicInteger displayLoads, String[] oreNames, String displayName) {
         try {
@@ -0,0 +1,134 @@
+package com.github.ae2patterngen.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fluids.FluidStack;
+
+import org.junit.Test;
+
+import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.util.CancellationToken;
+
+public class ParallelRecipeFilterTest {
+
+    @Test
+    public void chunkedFilteringKeepsOriginalOrder() {
+        List<RecipeEntry> recipes = new ArrayList<RecipeEntry>();
+        for (int duration = 0; duration < 20000; duration++) {
+            recipes.add(recipe(duration));
+        }
+        CompositeFilter filter = new CompositeFilter();
+        filter.addFilter(new TierFilter(1));
+        filter.addFilter(new DurationFilter(3));
+        filter.setAdaptiveSampleSize(64);
+
+        List<RecipeEntry> matched = new ArrayList<RecipeEntry>();
+        ForkJoinPool workers = new ForkJoinPool(4);
+        try {
+            ParallelRecipeFilter.filterInto(recipes, filter, matched, workers);
+        } finally {
+            workers.shutdown();
+        }
+
+        assertEquals(6667, matched.size());
+        for (int i = 0; i < matched.size(); i++) {
+            assertSame(recipes.get(i * 3), matched.get(i));
+        }
+    }
+
+    @Test
+    public void listsBelowThresholdAreFilteredSequentially() {
+        List<RecipeEntry> recipes = new ArrayList<RecipeEntry>();
+        for (int duration = 0; duration < 10; duration++) {
+            recipes.add(recipe(duration));
+        }
+
+        List<RecipeEntry> matched = new ArrayList<RecipeEntry>();
+        ParallelRecipeFilter.filterInto(recipes, new DurationFilter(2), matched, 1000);
+
+        assertEquals(5, matched.size());
+        assertSame(recipes.get(8), matched.get(4));
+    }
+
+    @Test
+    public void cancelledTokenStopsChunkedFilteringWithoutPartialOutput() {
+        List<RecipeEntry> recipes = new ArrayList<RecipeEntry>();
+        for (int duration = 0; duration < 20000; duration++) {
+            recipes.add(recipe(duration));
+        }
+        CancellationToken token = CancellationToken.create();
+        int[] evaluated = new int[1];
+        IRecipeFilter cancelling = new IRecipeFilter() {
+
+            @Override
+            public boolean matches(RecipeEntry recipe) {
+                synchronized (evaluated) {
+                    if (++evaluated[0] == 1000) {
+                        token.cancel();
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public String getDescription() {
+                return "cancel after 1000";
+            }
+        };
+
+        List<RecipeEntry> matched = new ArrayList<RecipeEntry>();
+        ForkJoinPool workers = new ForkJoinPool(2);
+        try {
+            ParallelRecipeFilter.filterInto(recipes, cancelling, matched, workers, token);
+            fail("expected cancellation");
+        } catch (CancellationToken.CancelledException e) {
+            assertEquals(CancellationToken.Reason.CANCELLED, e.reason);
+        } finally {
+            workers.shutdown();
+        }
+
+        assertTrue(matched.isEmpty());
+        assertTrue(evaluated[0] < recipes.size());
+    }
+
+    private static RecipeEntry recipe(int duration) {
+        return new RecipeEntry(
+            "gt",
+            "gt.recipe.assembler",
+            "Assembler",
+            new ItemStack[0],
+            new ItemStack[0],
+            new FluidStack[0],
+            new FluidStack[0],
+            new ItemStack[0],
+            duration,
+            30);
+    }
+
+    private static final class DurationFilter implements IRecipeFilter {
+
+        private final int modulus;
+
+        private DurationFilter(int modulus) {
+            this.modulus = modulus;
+        }
+
+        @Override
+        public boolean matches(RecipeEntry recipe) {
+            return recipe.duration % modulus == 0;
+        }
+
+        @Override
+        public String getDescription() {
+            return "duration % " + modulus;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.ae2patterngen.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class GenerationJobSchedulerTest {
+
+    @Test
+    public void queuesBeyondConcurrencyLimitAndDispatchesInFifoOrder() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingListener listener = new RecordingListener();
+        List<String> ran = new ArrayList<String>();
+        GenerationJobScheduler<String> scheduler = new GenerationJobScheduler<String>(executor, 1, 4, listener);
+
+        assertEquals(GenerationJobScheduler.Admission.STARTED, scheduler.submit("a", () -> ran.add("a")));
+        assertEquals(GenerationJobScheduler.Admission.QUEUED, scheduler.submit("b", () -> ran.add("b")));
+        assertEquals(GenerationJobScheduler.Admission.QUEUED, scheduler.submit("c", () -> ran.add("c")));
+        assertEquals(1, executor.pending.size());
+        assertEquals(2, scheduler.stats().queued);
+
+        executor.runNext();
+        // b 开始后 c 前移到第 1 位
+        assertEquals("started:b", listener.events.get(listener.events.size() - 2));
+        assertEquals("queued:c@1", listener.events.get(listener.events.size() - 1));
+
+        executor.runNext();
+        executor.runNext();
+        assertEquals(Arrays.asList("a", "b", "c"), ran);
+        GenerationJobStats stats = scheduler.stats();
+        assertEquals(0, stats.running);
+        assertEquals(0, stats.queued);
+        assertEquals(2, stats.peakQueued);
+        assertEquals(3L, stats.started);
+    }
+
+    @Test
+    public void rejectsWhenQueueIsFull() {
+        ManualExecutor executor = new ManualExecutor();
+        GenerationJobScheduler<String> scheduler = new GenerationJobScheduler<String>(
+            executor,
+            1,
+            1,
+            new RecordingListener());
+
+        scheduler.submit("a", () -> {});
+        scheduler.submit("b", () -> {});
+
+        assertEquals(GenerationJobScheduler.Admission.REJECTED, scheduler.submit("c", () -> {}));
+        assertEquals(1L, scheduler.stats().rejected);
+        assertEquals(1, scheduler.stats().queued);
+    }
+
+    @Test
+    public void removingQueuedJobUpdatesPositionsBehindIt() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingListener listener = new RecordingListener();
+        GenerationJobScheduler<String> scheduler = new GenerationJobScheduler<String>(executor, 1, 4, listener);
+
+        scheduler.submit("a", () -> {});
+        scheduler.submit("b", () -> {});
+        scheduler.submit("c", () -> {});
+        listener.events.clear();
+
+        assertTrue(scheduler.remove("b"));
+        assertFalse(scheduler.remove("a"));
+        assertEquals(Arrays.asList("queued:c@1"), listener.events);
+
+        executor.runNext();
+        assertEquals("started:c", listener.events.get(listener.events.size() - 1));
+    }
+
+    @Test
+    public void recordsWaitTimeFromSubmissionToDispatch() {
+        ManualExecutor executor = new ManualExecutor();
+        AtomicLong now = new AtomicLong(0L);
+        GenerationJobScheduler<String> scheduler = new GenerationJobScheduler<String>(
+            executor,
+            1,
+            4,
+            new RecordingListener(),
+            now::get);
+
+        scheduler.submit("a", () -> {});
+        scheduler.submit("b", () -> {});
+        now.set(5_000_000L);
+        executor.runNext();
+
+        GenerationJobStats stats = scheduler.stats();
+        assertEquals(2L, stats.started);
+        assertEquals(5_000_000L, stats.maxWaitNanos);
+        assertEquals(5_000_000L, stats.totalWaitNanos);
+    }
+
+    private static final class ManualExecutor implements Executor {
+
+        private final List<Runnable> pending = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            pending.add(command);
+        }
+
+        private void runNext() {
+            pending.remove(0)
+                .run();
+        }
+    }
+
+    private static final class RecordingListener implements GenerationJobScheduler.Listener<String> {
+
+        private final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void started(String job) {
+            events.add("started:" + job);
+        }
+
+        @Override
+        public void queued(String job, int position) {
+            events.add("queued:" + job + "@" + position);
+        }
+    }
+}
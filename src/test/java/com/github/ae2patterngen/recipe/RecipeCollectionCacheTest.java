@@ -2,10 +2,16 @@ package com.github.ae2patterngen.recipe;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
@@ -51,6 +57,57 @@ public class RecipeCollectionCacheTest {
         org.junit.Assert.assertNotSame("cleared cache should not reuse old entry", first, second);
     }
 
+    @Test
+    public void slowKeyDoesNotBlockOtherKeys() throws Exception {
+        final RecipeCollectionCache<String, String> cache = new RecipeCollectionCache<String, String>();
+        final CountDownLatch computing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> slow = executor.submit(() -> cache.getOrCompute("assembler", () -> {
+                computing.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread()
+                        .interrupt();
+                }
+                return "slow";
+            }));
+            assertTrue(computing.await(5, TimeUnit.SECONDS));
+
+            assertEquals("fast", cache.getOrCompute("mixer", () -> "fast"));
+
+            release.countDown();
+            assertEquals("slow", slow.get(5, TimeUnit.SECONDS));
+            assertEquals(
+                1,
+                cache.getComputeStats()
+                    .get("assembler")
+                    .getComputeCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvictedBeyondBound() {
+        RecipeCollectionCache<String, String> cache = new RecipeCollectionCache<String, String>(2);
+        AtomicInteger computeCount = new AtomicInteger();
+        Supplier<String> supplier = () -> "value-" + computeCount.incrementAndGet();
+
+        cache.getOrCompute("a", supplier);
+        cache.getOrCompute("b", supplier);
+        cache.getOrCompute("a", supplier);
+        cache.getOrCompute("c", supplier);
+        cache.getOrCompute("a", supplier);
+        cache.getOrCompute("b", supplier);
+
+        assertEquals(2, cache.size());
+        assertEquals(4, computeCount.get());
+        assertEquals(2L, cache.getEvictions());
+    }
+
     private Object newCacheInstance() throws Exception {
         try {
             Class<?> cacheClass = Class.forName("com.github.ae2patterngen.recipe.RecipeCollectionCache");
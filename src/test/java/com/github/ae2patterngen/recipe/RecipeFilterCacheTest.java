@@ -0,0 +1,100 @@
+package com.github.ae2patterngen.recipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RecipeFilterCacheTest {
+
+    @After
+    public void tearDown() {
+        RecipeFilterCache.resetTestHooks();
+    }
+
+    @Test
+    public void concurrentRequestsForSameKeyShareOneComputation() throws Exception {
+        final AtomicInteger computeCount = new AtomicInteger();
+        final CountDownLatch computing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<RecipeEntry>> first = executor.submit(
+                () -> RecipeFilterCache.getOrCompute("gt.recipe.assembler", "tier=1", () -> {
+                    computeCount.incrementAndGet();
+                    computing.countDown();
+                    await(release);
+                    return recipes(3);
+                }));
+            computing.await(5, TimeUnit.SECONDS);
+            Future<List<RecipeEntry>> second = executor.submit(
+                () -> RecipeFilterCache.getOrCompute("gt.recipe.assembler", "tier=1", () -> {
+                    computeCount.incrementAndGet();
+                    return recipes(3);
+                }));
+            Thread.sleep(50L);
+            release.countDown();
+
+            assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, computeCount.get());
+            assertEquals(0.5D, RecipeFilterCache.getHitRate(), 1e-9);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void expiredEntriesAreRecomputedAndClearDropsEverything() {
+        final AtomicLong now = new AtomicLong();
+        RecipeFilterCache.setClock(now::get);
+        AtomicInteger computeCount = new AtomicInteger();
+
+        List<RecipeEntry> first = RecipeFilterCache.getOrCompute("map", "filter", () -> {
+            computeCount.incrementAndGet();
+            return recipes(2);
+        });
+        now.addAndGet(TimeUnit.HOURS.toNanos(1));
+        List<RecipeEntry> second = RecipeFilterCache.getOrCompute("map", "filter", () -> {
+            computeCount.incrementAndGet();
+            return recipes(2);
+        });
+
+        assertEquals(2, computeCount.get());
+        assertNotSame(first, second);
+        assertEquals(2L, RecipeFilterCache.getTotalWeight());
+
+        RecipeFilterCache.clear();
+
+        assertEquals(0, RecipeFilterCache.size());
+        assertEquals(0L, RecipeFilterCache.getTotalWeight());
+    }
+
+    private static List<RecipeEntry> recipes(int count) {
+        List<RecipeEntry> recipes = new ArrayList<RecipeEntry>();
+        for (int i = 0; i < count; i++) {
+            recipes.add(new RecipeEntry("gt", "map", "Machine", null, null, null, null, null, 20, 30));
+        }
+        return recipes;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+        }
+    }
+}
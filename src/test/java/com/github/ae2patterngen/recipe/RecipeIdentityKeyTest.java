@@ -0,0 +1,157 @@
+package com.github.ae2patterngen.recipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.fluids.Fluid;
+import net.minecraftforge.fluids.FluidRegistry;
+import net.minecraftforge.fluids.FluidStack;
+
+import org.junit.Test;
+
+import gregtech.api.util.GTRecipe;
+
+public class RecipeIdentityKeyTest {
+
+    private static final Item ITEM = new Item();
+    private static final Fluid WATER = fluid("ae2patterngen_test_water");
+    private static final Fluid LAVA = fluid("ae2patterngen_test_lava");
+
+    @Test
+    public void sameStructureWithDifferentInstancesIsEqual() {
+        GTRecipe first = recipe();
+        GTRecipe second = recipe();
+
+        assertEqualKeys(RecipeIdentityKey.of(first), RecipeIdentityKey.of(second));
+        assertEqualKeys(RecipeIdentityKey.of(first, "gt.recipe.furnace"), RecipeIdentityKey.of(second, "gt.recipe.furnace"));
+    }
+
+    @Test
+    public void durationEuAndStacksAreDistinguished() {
+        RecipeIdentityKey base = RecipeIdentityKey.of(recipe());
+
+        GTRecipe recipe = recipe();
+        recipe.mDuration = 101;
+        assertNotEquals(base, RecipeIdentityKey.of(recipe));
+
+        recipe = recipe();
+        recipe.mEUt = 31;
+        assertNotEquals(base, RecipeIdentityKey.of(recipe));
+
+        recipe = recipe();
+        recipe.mInputs[0].setItemDamage(6);
+        assertNotEquals(base, RecipeIdentityKey.of(recipe));
+
+        recipe = recipe();
+        recipe.mOutputs[0].stackSize = 2;
+        assertNotEquals(base, RecipeIdentityKey.of(recipe));
+    }
+
+    @Test
+    public void emptySlotsCountButNullFluidsAndSpecialsAreIgnored() {
+        RecipeIdentityKey base = RecipeIdentityKey.of(recipe());
+
+        GTRecipe recipe = recipe();
+        recipe.mInputs = new ItemStack[] { recipe.mInputs[0], null };
+        assertNotEquals(base, RecipeIdentityKey.of(recipe));
+
+        recipe = recipe();
+        recipe.mFluidInputs = new FluidStack[] { recipe.mFluidInputs[0], null };
+        recipe.mSpecialItems = new ItemStack[] { null };
+        assertEqualKeys(base, RecipeIdentityKey.of(recipe));
+    }
+
+    @Test
+    public void itemNbtIsDistinguished() {
+        GTRecipe first = recipe();
+        first.mInputs[0].setTagCompound(tag(1));
+        GTRecipe second = recipe();
+        second.mInputs[0].setTagCompound(tag(1));
+        assertEqualKeys(RecipeIdentityKey.of(first), RecipeIdentityKey.of(second));
+
+        second.mInputs[0].setTagCompound(tag(2));
+        assertNotEquals(RecipeIdentityKey.of(first), RecipeIdentityKey.of(second));
+        assertNotEquals(RecipeIdentityKey.of(first), RecipeIdentityKey.of(recipe()));
+
+        // 相同 NBT 出现在不同的槽位
+        GTRecipe moved = recipe();
+        moved.mOutputs[0].setTagCompound(tag(1));
+        assertNotEquals(RecipeIdentityKey.of(first), RecipeIdentityKey.of(moved));
+    }
+
+    @Test
+    public void fluidsAreDistinguished() {
+        RecipeIdentityKey base = RecipeIdentityKey.of(recipe());
+
+        GTRecipe recipe = recipe();
+        recipe.mFluidInputs = new FluidStack[] { new FluidStack(LAVA, 1000) };
+        assertNotEquals(base, RecipeIdentityKey.of(recipe));
+
+        recipe = recipe();
+        recipe.mFluidInputs[0].amount = 500;
+        assertNotEquals(base, RecipeIdentityKey.of(recipe));
+
+        // 输入与输出流体不可互换
+        recipe = recipe();
+        recipe.mFluidOutputs = recipe.mFluidInputs;
+        recipe.mFluidInputs = new FluidStack[0];
+        assertNotEquals(base, RecipeIdentityKey.of(recipe));
+    }
+
+    @Test
+    public void specialItemsAreDistinguished() {
+        GTRecipe single = recipe();
+        single.mSpecialItems = new ItemStack(ITEM, 1, 3);
+        GTRecipe array = recipe();
+        array.mSpecialItems = new ItemStack[] { new ItemStack(ITEM, 64, 3) };
+        assertEqualKeys(RecipeIdentityKey.of(single), RecipeIdentityKey.of(array));
+
+        assertNotEquals(RecipeIdentityKey.of(recipe()), RecipeIdentityKey.of(single));
+
+        GTRecipe otherMeta = recipe();
+        otherMeta.mSpecialItems = new ItemStack(ITEM, 1, 4);
+        assertNotEquals(RecipeIdentityKey.of(single), RecipeIdentityKey.of(otherMeta));
+    }
+
+    @Test
+    public void scopeIsDistinguished() {
+        GTRecipe recipe = recipe();
+
+        assertNotEquals(RecipeIdentityKey.of(recipe), RecipeIdentityKey.of(recipe, "gt.recipe.furnace"));
+        assertNotEquals(
+            RecipeIdentityKey.of(recipe, "gt.recipe.furnace"),
+            RecipeIdentityKey.of(recipe, "gt.recipe.microwave"));
+    }
+
+    private static void assertEqualKeys(RecipeIdentityKey expected, RecipeIdentityKey actual) {
+        assertEquals(expected, actual);
+        assertEquals(actual, expected);
+        assertEquals(expected.hashCode(), actual.hashCode());
+    }
+
+    private static GTRecipe recipe() {
+        GTRecipe recipe = new GTRecipe();
+        recipe.mInputs = new ItemStack[] { new ItemStack(ITEM, 2, 5) };
+        recipe.mOutputs = new ItemStack[] { new ItemStack(ITEM, 1, 9) };
+        recipe.mFluidInputs = new FluidStack[] { new FluidStack(WATER, 1000) };
+        recipe.mFluidOutputs = new FluidStack[0];
+        recipe.mDuration = 100;
+        recipe.mEUt = 30;
+        return recipe;
+    }
+
+    private static NBTTagCompound tag(int value) {
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setInteger("Value", value);
+        return tag;
+    }
+
+    private static Fluid fluid(String name) {
+        Fluid fluid = new Fluid(name);
+        FluidRegistry.registerFluid(fluid);
+        return fluid;
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.ae2patterngen.recipe;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.fluids.FluidStack;
+
+import org.junit.Test;
+
+public class RecipeSummaryTest {
+
+    @Test
+    public void tierFollowsVoltageLadder() {
+        assertEquals(-1, RecipeSummary.tierOf(0));
+        assertEquals(0, RecipeSummary.tierOf(8));
+        assertEquals(1, RecipeSummary.tierOf(9));
+        assertEquals(1, RecipeSummary.tierOf(32));
+        assertEquals(2, RecipeSummary.tierOf(33));
+        assertEquals(2, RecipeSummary.tierOf(128));
+    }
+
+    @Test
+    public void packedItemsRoundTripNegativeIdsAndMeta() {
+        long packed = RecipeSummary.packItem(-1, 32767);
+
+        assertEquals(-1, RecipeSummary.itemId(packed));
+        assertEquals(32767, RecipeSummary.meta(packed));
+        assertTrue(packed != RecipeSummary.ABSENT_ITEM);
+    }
+
+    @Test
+    public void summaryAlignsWithStackArraysAndFlagsZeroSizeInputs() {
+        Item item = new Item();
+        ItemStack consumed = new ItemStack(item, 2, 5);
+        ItemStack notConsumed = new ItemStack(item, 1, 7);
+        notConsumed.stackSize = 0;
+        RecipeEntry recipe = new RecipeEntry(
+            "gt",
+            "gt.recipe.assembler",
+            "Assembler",
+            new ItemStack[] { consumed, null, notConsumed },
+            new ItemStack[] { new ItemStack(item, 1, 9) },
+            new FluidStack[] { null },
+            new FluidStack[0],
+            new ItemStack[0],
+            100,
+            30);
+
+        RecipeSummary summary = recipe.getSummary();
+
+        assertSame(summary, recipe.getSummary());
+        assertEquals(1, summary.tier);
+        int itemId = Item.getIdFromItem(item);
+        assertArrayEquals(
+            new long[] { RecipeSummary.packItem(itemId, 5), RecipeSummary.ABSENT_ITEM,
+                RecipeSummary.packItem(itemId, 7) },
+            summary.inputItems);
+        assertFalse(summary.ncInputs[0]);
+        assertFalse(summary.ncInputs[1]);
+        assertTrue(summary.ncInputs[2]);
+        assertEquals(9, RecipeSummary.meta(summary.outputItems[0]));
+        assertArrayEquals(new int[] { RecipeSummary.ABSENT_FLUID }, summary.fluidInputIds);
+        assertEquals(0, summary.specialItems.length);
+    }
+}
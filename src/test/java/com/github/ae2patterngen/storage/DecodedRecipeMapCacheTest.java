@@ -0,0 +1,87 @@
+package com.github.ae2patterngen.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.ae2patterngen.recipe.RecipeEntry;
+
+public class DecodedRecipeMapCacheTest {
+
+    @Test
+    public void hitRequiresMatchingContentHash() {
+        DecodedRecipeMapCache cache = new DecodedRecipeMapCache(() -> 100);
+        cache.put("gt.recipe.assembler", "hash-a", recipes(3));
+
+        assertNotNull(cache.get("gt.recipe.assembler", "hash-a"));
+        assertNull(cache.get("gt.recipe.assembler", "hash-b"));
+        assertNull(cache.get("gt.recipe.assembler", "hash-a"));
+        assertEquals(1L, cache.getHits());
+        assertEquals(2L, cache.getMisses());
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedMapsWhenOverWeight() {
+        DecodedRecipeMapCache cache = new DecodedRecipeMapCache(() -> 10);
+        cache.put("a", "h", recipes(4));
+        cache.put("b", "h", recipes(4));
+        cache.get("a", "h");
+        cache.put("c", "h", recipes(4));
+
+        assertNotNull(cache.get("a", "h"));
+        assertNull(cache.get("b", "h"));
+        assertNotNull(cache.get("c", "h"));
+        assertEquals(1L, cache.getEvictions());
+        assertEquals(8L, cache.getTotalWeight());
+    }
+
+    @Test
+    public void mapsLargerThanBudgetAreNotRetained() {
+        DecodedRecipeMapCache cache = new DecodedRecipeMapCache(() -> 2);
+
+        assertFalse(cache.accepts(3));
+        assertEquals(3, cache.put("big", "h", recipes(3)).size());
+        assertEquals(0, cache.getEntryCount());
+        assertTrue(cache.accepts(2));
+    }
+
+    @Test
+    public void retainCurrentDropsRebuiltAndRemovedMaps() {
+        DecodedRecipeMapCache cache = new DecodedRecipeMapCache(() -> 100);
+        cache.put("kept", "h1", recipes(1));
+        cache.put("rebuilt", "h1", recipes(1));
+        cache.put("removed", "h1", recipes(1));
+
+        Map<String, RecipeCacheMetadata.RecipeMapInfo> current = new HashMap<>();
+        current.put("kept", info("kept", "h1"));
+        current.put("rebuilt", info("rebuilt", "h2"));
+        cache.retainCurrent(current);
+
+        assertEquals(1, cache.getEntryCount());
+        assertNotNull(cache.get("kept", "h1"));
+    }
+
+    private static RecipeCacheMetadata.RecipeMapInfo info(String mapId, String hash) {
+        RecipeCacheMetadata.RecipeMapInfo info = new RecipeCacheMetadata.RecipeMapInfo(mapId, "gregtech");
+        info.contentHash = hash;
+        return info;
+    }
+
+    private static List<RecipeEntry> recipes(int count) {
+        List<RecipeEntry> recipes = new ArrayList<RecipeEntry>();
+        for (int i = 0; i < count; i++) {
+            recipes.add(new RecipeEntry("gt", "gt.recipe.assembler", "Assembler", null, null, null, null, null, i, 30));
+        }
+        return recipes;
+    }
+}
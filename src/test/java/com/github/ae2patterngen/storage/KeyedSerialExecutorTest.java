@@ -0,0 +1,94 @@
+package com.github.ae2patterngen.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeyedSerialExecutorTest {
+
+    private ExecutorService pool;
+    private KeyedSerialExecutor<String> queue;
+
+    @Before
+    public void setUp() {
+        pool = Executors.newFixedThreadPool(4);
+        queue = new KeyedSerialExecutor<>(pool);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void tasksOfOneKeyRunInSubmissionOrderEvenAfterFailures() throws Exception {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            final int n = i;
+            futures.add(queue.submit("player", () -> {
+                order.add(n);
+                if (n == 10) {
+                    throw new IllegalStateException("boom");
+                }
+                return n;
+            }));
+        }
+
+        assertEquals(Integer.valueOf(49), futures.get(49)
+            .get(5, TimeUnit.SECONDS));
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, order);
+        try {
+            futures.get(10)
+                .get();
+            throw new AssertionError("expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void blockedKeyDoesNotDelayOtherKeys() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> blocked = queue.submit("slow", () -> release.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = queue.submit("slow", () -> "after");
+
+        assertEquals("other", queue.submit("fast", () -> "other")
+            .get(5, TimeUnit.SECONDS));
+        assertFalse(queued.isDone());
+        assertEquals(1, queue.pendingKeys());
+
+        release.countDown();
+        assertTrue(queue.awaitIdle(5000L));
+        assertTrue(blocked.get());
+        assertEquals("after", queued.get());
+        assertEquals(0, queue.pendingKeys());
+    }
+
+    @Test
+    public void rejectedTasksCompleteExceptionally() throws Exception {
+        pool.shutdown();
+        CompletableFuture<String> rejected = queue.submit("player", () -> "never");
+
+        assertTrue(rejected.isCompletedExceptionally());
+        assertEquals(0, queue.pendingKeys());
+    }
+}
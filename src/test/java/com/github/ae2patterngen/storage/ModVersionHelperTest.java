@@ -72,6 +72,29 @@ public class ModVersionHelperTest {
         assertEquals(hashA, hashB);
     }
 
+    @Test
+    public void recipeMapHashTracksDuplicatesAndFieldChanges() {
+        RecipeEntry recipe = assemblerRecipe(20);
+        RecipeEntry slower = assemblerRecipe(21);
+
+        String single = ModVersionHelper.calculateRecipeMapHash("gt.recipe.assembler", Arrays.asList(recipe));
+        String duplicated = ModVersionHelper
+            .calculateRecipeMapHash("gt.recipe.assembler", Arrays.asList(recipe, recipe));
+        String changed = ModVersionHelper.calculateRecipeMapHash("gt.recipe.assembler", Arrays.asList(slower));
+
+        assertEquals(32, single.length());
+        assertFalse(single.equals(duplicated));
+        assertFalse(single.equals(changed));
+        assertFalse(single.equals(ModVersionHelper.calculateRecipeMapHash("gt.recipe.mixer", Arrays.asList(recipe))));
+    }
+
+    @Test
+    public void recipeMapHashIsStableAcrossRuns() {
+        assertEquals(
+            "91b0dc9da242a28ff7466284ff9c1200",
+            ModVersionHelper.calculateRecipeMapHash("gt.recipe.assembler", Arrays.asList(assemblerRecipe(20))));
+    }
+
     @Test
     public void versionAndConfigComparisonDetectsChanges() {
         RecipeCacheMetadata metadata = new RecipeCacheMetadata();
@@ -89,6 +112,19 @@ public class ModVersionHelperTest {
         assertTrue(ModVersionHelper.isConfigHashChanged(metadata, changedConfig));
     }
 
+    @Test
+    public void configStampChangesWhenTrackedFileChanges() throws Exception {
+        final File temp = File.createTempFile("ae2patterngen-config", ".cfg");
+        Files.write(temp.toPath(), Arrays.asList("foo=bar"), StandardCharsets.UTF_8);
+        ModVersionHelper.setConfigFilesProvider(() -> Collections.singletonList(temp));
+
+        String first = ModVersionHelper.calculateConfigStamp();
+        assertEquals(first, ModVersionHelper.calculateConfigStamp());
+
+        Files.write(temp.toPath(), Arrays.asList("foo=bar", "baz=qux"), StandardCharsets.UTF_8);
+        assertFalse(first.equals(ModVersionHelper.calculateConfigStamp()));
+    }
+
     @Test
     public void loadedModVersionsUsesOverrideProvider() {
         ModVersionHelper.setLoadedModVersionsProvider(() -> {
@@ -102,4 +138,8 @@ public class ModVersionHelperTest {
             ModVersionHelper.getLoadedModVersions()
                 .get("gregtech"));
     }
+
+    private static RecipeEntry assemblerRecipe(int duration) {
+        return new RecipeEntry("gt", "gt.recipe.assembler", "Assembler", null, null, null, null, null, duration, 5);
+    }
 }
@@ -0,0 +1,189 @@
+package com.github.ae2patterngen.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PatternSegmentStoreTest {
+
+    private static final String NAME = "player";
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("ae2patterngen-pattern-storage")
+            .toFile();
+    }
+
+    @Test
+    public void replaceAllRoundTripsThroughIndexAndSegment() throws Exception {
+        PatternSegmentStore store = PatternSegmentStore.open(dir, NAME);
+        store.replaceAll(records(5), "assembler", 1234L);
+
+        PatternSegmentStore reopened = PatternSegmentStore.open(dir, NAME);
+        assertEquals(5, reopened.size());
+        assertEquals("assembler", reopened.getSource());
+        assertEquals(1234L, reopened.getTimestamp());
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, reopened.liveSlots());
+        assertEquals(ids(records(5)), ids(reopened.readSlots(reopened.liveSlots())));
+        assertEquals(Arrays.asList(3, 1), ids(reopened.readSlots(new int[] { 3, 1 })));
+    }
+
+    @Test
+    public void tombstonesArePersistedInPlace() throws Exception {
+        PatternSegmentStore store = PatternSegmentStore.open(dir, NAME);
+        store.replaceAll(records(6), "", 0L);
+
+        store.markTombstones(new int[] { 2, 0, 1 });
+        // 重复标记与越界槽位被忽略
+        store.markTombstones(new int[] { 2, 17 });
+        assertEquals(3, store.size());
+
+        PatternSegmentStore reopened = PatternSegmentStore.open(dir, NAME);
+        assertEquals(3, reopened.size());
+        assertEquals(3, reopened.getTombstoneCount());
+        assertEquals(Arrays.asList(3, 4, 5), ids(reopened.readSlots(reopened.liveSlots())));
+    }
+
+    @Test
+    public void advancingHeadDropsLeadingSlotsWithoutNewGeneration() throws Exception {
+        PatternSegmentStore store = PatternSegmentStore.open(dir, NAME);
+        store.replaceAll(records(6), "", 0L);
+        store.markTombstones(new int[] { 4 });
+
+        store.advanceHead(3);
+        // 不超过当前游标的值被忽略
+        store.advanceHead(1);
+        assertEquals(2, store.size());
+
+        PatternSegmentStore reopened = PatternSegmentStore.open(dir, NAME);
+        assertEquals(2, reopened.size());
+        assertEquals(4, reopened.getTombstoneCount());
+        assertArrayEquals(new int[] { 3, 5 }, reopened.liveSlots());
+        assertEquals(Arrays.asList(3, 5), ids(reopened.readSlots(reopened.liveSlots())));
+        assertEquals(1, segmentFileCount());
+
+        // 整体替换后游标归零
+        reopened.replaceAll(records(2), "", 0L);
+        assertArrayEquals(new int[] { 0, 1 }, PatternSegmentStore.open(dir, NAME)
+            .liveSlots());
+    }
+
+    @Test
+    public void compactionDropsTombstonesAndReturnsSlotRemap() throws Exception {
+        int total = PatternSegmentStore.COMPACT_MIN_TOMBSTONES * 2;
+        PatternSegmentStore store = PatternSegmentStore.open(dir, NAME);
+        store.replaceAll(records(total), "src", 42L);
+        int[] dead = new int[PatternSegmentStore.COMPACT_MIN_TOMBSTONES];
+        for (int i = 0; i < dead.length; i++) {
+            dead[i] = i * 2;
+        }
+        store.markTombstones(dead);
+        assertTrue(store.needsCompaction());
+
+        int[] remap = store.compact();
+
+        assertFalse(store.needsCompaction());
+        assertEquals(-1, remap[0]);
+        assertEquals(0, remap[1]);
+        assertEquals(1, remap[3]);
+        PatternSegmentStore reopened = PatternSegmentStore.open(dir, NAME);
+        assertEquals(total / 2, reopened.size());
+        assertEquals(0, reopened.getTombstoneCount());
+        assertEquals("src", reopened.getSource());
+        assertEquals(Arrays.asList(1, 3), ids(reopened.readSlots(new int[] { 0, 1 })));
+        // 旧代号的段文件已删除
+        assertEquals(1, segmentFileCount());
+    }
+
+    @Test
+    public void headerIsReadWithoutIndexSlotsAndRejectedAfterGenerationChange() throws Exception {
+        PatternSegmentStore store = PatternSegmentStore.open(dir, NAME);
+        assertNull(PatternSegmentStore.readHeader(dir, NAME));
+        store.replaceAll(records(3), "assembler", 99L);
+        store.writeHeader(Arrays.asList("a", "b"));
+
+        PatternSegmentStore.Header header = PatternSegmentStore.readHeader(dir, NAME);
+        assertEquals(3, header.count);
+        assertEquals("assembler", header.source);
+        assertEquals(99L, header.timestamp);
+        assertEquals(Arrays.asList("a", "b"), header.previews);
+
+        // 新代号提交后、头部重写前崩溃: 旧头部不再可信
+        store.replaceAll(records(1), "assembler", 100L);
+        assertNull(PatternSegmentStore.readHeader(dir, NAME));
+    }
+
+    @Test
+    public void inPlaceIndexWritesInvalidateHeader() throws Exception {
+        PatternSegmentStore store = PatternSegmentStore.open(dir, NAME);
+        store.replaceAll(records(4), "", 0L);
+        store.writeHeader(Arrays.asList("a"));
+
+        // 没有槽位被修改时头部保留
+        store.markTombstones(new int[0]);
+        store.markTombstones(new int[] { 9 });
+        assertEquals(4, PatternSegmentStore.readHeader(dir, NAME).count);
+
+        store.markTombstones(new int[] { 3 });
+        assertNull(PatternSegmentStore.readHeader(dir, NAME));
+
+        store.writeHeader(Arrays.asList("a"));
+        store.advanceHead(1);
+        assertNull(PatternSegmentStore.readHeader(dir, NAME));
+    }
+
+    @Test
+    public void deleteRemovesAllFiles() throws Exception {
+        PatternSegmentStore store = PatternSegmentStore.open(dir, NAME);
+        store.replaceAll(records(2), "", 0L);
+        assertTrue(PatternSegmentStore.exists(dir, NAME));
+
+        store.delete();
+
+        assertFalse(PatternSegmentStore.exists(dir, NAME));
+        assertEquals(0, segmentFileCount());
+        assertEquals(0, PatternSegmentStore.open(dir, NAME)
+            .size());
+    }
+
+    private int segmentFileCount() {
+        File[] segments = dir.listFiles(
+            file -> file.getName()
+                .endsWith(".seg"));
+        return segments == null ? 0 : segments.length;
+    }
+
+    private static List<NBTTagCompound> records(int count) {
+        List<NBTTagCompound> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            NBTTagCompound tag = new NBTTagCompound();
+            tag.setInteger("Id", i);
+            tag.setString("Name", "pattern-" + i);
+            records.add(tag);
+        }
+        return records;
+    }
+
+    private static List<Integer> ids(List<NBTTagCompound> records) {
+        List<Integer> ids = new ArrayList<>();
+        for (NBTTagCompound record : records) {
+            ids.add(record.getInteger("Id"));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,296 @@
+package com.github.ae2patterngen.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PatternStorageCacheTest {
+
+    private static final UUID PLAYER = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private File dir;
+    private ScheduledExecutorService flusher;
+    private AtomicLong now;
+    private PatternStorageCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("ae2patterngen-pattern-cache")
+            .toFile();
+        flusher = Executors.newSingleThreadScheduledExecutor();
+        now = new AtomicLong();
+        cache = newCache();
+    }
+
+    @After
+    public void tearDown() {
+        flusher.shutdownNow();
+    }
+
+    @Test
+    public void mutationsAreVisibleImmediatelyAndCoalescedIntoOneFlush() throws Exception {
+        cache.access(dir, PLAYER, entry -> {
+            entry.replaceAll(records(5), "assembler", 7L);
+            entry.remove(1);
+            entry.removeHead(1);
+            return null;
+        });
+
+        assertEquals(Arrays.asList(2, 3, 4), cachedIds());
+        PatternStorageStats dirty = cache.stats();
+        assertEquals(1, dirty.dirtyPlayers);
+        assertEquals(3, dirty.pendingMutations);
+        assertFalse(PatternSegmentStore.exists(dir, PLAYER.toString()));
+
+        cache.flushAll();
+
+        PatternStorageStats flushed = cache.stats();
+        assertEquals(0, flushed.dirtyPlayers);
+        assertEquals(1L, flushed.flushes);
+        assertEquals(Arrays.asList(2, 3, 4), diskIds());
+        assertEquals("assembler", openStore().getSource());
+    }
+
+    @Test
+    public void removalsAfterFlushAreWrittenAsTombstones() throws Exception {
+        cache.access(dir, PLAYER, entry -> {
+            entry.replaceAll(records(4), "", 0L);
+            return null;
+        });
+        cache.flushAll();
+
+        cache.access(dir, PLAYER, entry -> entry.remove(2));
+        cache.flushAll();
+
+        PatternSegmentStore store = openStore();
+        assertEquals(1, store.getTombstoneCount());
+        assertEquals(Arrays.asList(0, 1, 3), diskIds());
+        // 新缓存从磁盘加载到相同内容
+        assertEquals(Arrays.asList(0, 1, 3), idsOf(newCache()));
+    }
+
+    @Test
+    public void compactionDuringFlushRemapsCachedSlots() throws Exception {
+        int half = PatternSegmentStore.COMPACT_MIN_TOMBSTONES;
+        cache.access(dir, PLAYER, entry -> {
+            entry.replaceAll(records(half * 2), "", 0L);
+            return null;
+        });
+        cache.flushAll();
+
+        cache.access(dir, PLAYER, entry -> entry.removeHead(half));
+        cache.flushAll();
+        assertEquals(0, openStore().getTombstoneCount());
+
+        // 压缩后的删除必须命中新代号中的正确槽位
+        cache.access(dir, PLAYER, entry -> entry.remove(1));
+        cache.flushAll();
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = half; i < half * 2; i++) {
+            if (i != half + 1) {
+                expected.add(i);
+            }
+        }
+        assertEquals(expected, diskIds());
+    }
+
+    @Test
+    public void headExtractionAdvancesCursorInsteadOfRewriting() throws Exception {
+        int total = PatternStorageCache.TRIM_MIN_HEAD * 2 + 10;
+        cache.access(dir, PLAYER, entry -> {
+            entry.replaceAll(records(total), "", 0L);
+            return null;
+        });
+        cache.flushAll();
+        File segment = onlySegmentFile();
+
+        List<Integer> taken = cache.access(dir, PLAYER, entry -> {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                for (PatternStorageCache.Record record : entry.removeHead(25)) {
+                    ids.add(record.tag.getInteger("Id"));
+                }
+            }
+            return ids;
+        });
+        assertEquals(100, taken.size());
+        assertEquals(Integer.valueOf(99), taken.get(99));
+        cache.flushAll();
+
+        // 未压缩: 仍是同一个段文件，只前移了游标
+        PatternSegmentStore store = openStore();
+        assertEquals(segment, onlySegmentFile());
+        assertEquals(100, store.getTombstoneCount());
+        assertEquals(Integer.valueOf(100), diskIds().get(0));
+
+        // 游标越过收缩阈值后内存列表收缩，逻辑位置不变
+        int head = 100 + PatternStorageCache.TRIM_MIN_HEAD;
+        cache.access(dir, PLAYER, entry -> entry.removeHead(PatternStorageCache.TRIM_MIN_HEAD));
+        cache.access(dir, PLAYER, entry -> entry.remove(0));
+        assertEquals(Integer.valueOf(head + 1), cache.access(dir, PLAYER, entry -> entry.get(0).tag.getInteger("Id")));
+        assertEquals(total - head - 1, cachedIds().size());
+        cache.flushAll();
+
+        assertEquals(cachedIds(), diskIds());
+        assertEquals(cachedIds(), idsOf(newCache()));
+    }
+
+    @Test
+    public void undeliveredPatternsAreRestoredAtHeadInOrder() throws Exception {
+        cache.access(dir, PLAYER, entry -> {
+            entry.replaceAll(records(5), "", 0L);
+            return null;
+        });
+        cache.flushAll();
+
+        cache.access(dir, PLAYER, entry -> {
+            List<NBTTagCompound> undelivered = new ArrayList<>();
+            for (PatternStorageCache.Record record : entry.removeHead(3)) {
+                if (record.tag.getInteger("Id") != 2) {
+                    undelivered.add(record.tag);
+                }
+            }
+            entry.restoreHead(undelivered);
+            return null;
+        });
+        assertEquals(Arrays.asList(0, 1, 3, 4), cachedIds());
+        cache.flushAll();
+
+        assertEquals(Arrays.asList(0, 1, 3, 4), diskIds());
+        assertEquals(Arrays.asList(0, 1, 3, 4), idsOf(newCache()));
+    }
+
+    @Test
+    public void flushRewritesHeaderForUncachedSummaryReads() throws Exception {
+        cache.access(dir, PLAYER, entry -> {
+            entry.replaceAll(records(8), "assembler", 7L);
+            return null;
+        });
+        cache.flushAll();
+        cache.access(dir, PLAYER, entry -> entry.removeHead(2));
+        cache.flushAll();
+
+        PatternSegmentStore.Header header = PatternSegmentStore.readHeader(dir, PLAYER.toString());
+        assertEquals(6, header.count);
+        assertEquals("assembler", header.source);
+        assertEquals(PatternStorageCache.HEADER_PREVIEW_COUNT, header.previews.size());
+        assertEquals("pattern-2", header.previews.get(0));
+
+        assertNull(newCache().peek(PLAYER, PatternStorageCache.Entry::size));
+        assertEquals(Integer.valueOf(6), cache.peek(PLAYER, PatternStorageCache.Entry::size));
+    }
+
+    @Test
+    public void idleEvictionSkipsEntriesWithUnflushedChanges() throws Exception {
+        cache.access(dir, PLAYER, entry -> {
+            entry.replaceAll(records(2), "", 0L);
+            return null;
+        });
+        now.addAndGet(1_000_000_000L);
+
+        assertEquals(0, cache.evictIdle(0L));
+        cache.flushAll();
+        assertEquals(1, cache.evictIdle(0L));
+        assertEquals(0, cache.stats().cachedPlayers);
+        assertEquals(Arrays.asList(0, 1), cachedIds());
+    }
+
+    @Test
+    public void closeAllKeepsEntriesWhoseFlushFailed() throws Exception {
+        cache.access(dir, PLAYER, entry -> {
+            entry.replaceAll(records(3), "", 0L);
+            return null;
+        });
+        // 存储目录被同名文件占据，写回必然失败
+        assertTrue(dir.delete());
+        assertTrue(dir.createNewFile());
+
+        assertEquals(1, cache.closeAll());
+        assertEquals(1, cache.stats().cachedPlayers);
+        assertEquals(1L, cache.stats().failedFlushes);
+        assertEquals(Arrays.asList(0, 1, 2), cache.peek(PLAYER, entry -> {
+            List<Integer> ids = new ArrayList<>();
+            for (PatternStorageCache.Record record : entry.records()) {
+                ids.add(record.tag.getInteger("Id"));
+            }
+            return ids;
+        }));
+
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdirs());
+        assertEquals(0, cache.closeAll());
+        assertEquals(0, cache.stats().cachedPlayers);
+        assertEquals(Arrays.asList(0, 1, 2), diskIds());
+    }
+
+    private PatternStorageCache newCache() {
+        return new PatternStorageCache(
+            flusher,
+            (storageDir, playerUUID) -> PatternSegmentStore.open(storageDir, playerUUID.toString()),
+            tag -> "pattern-" + tag.getInteger("Id"),
+            now::get);
+    }
+
+    private File onlySegmentFile() {
+        File[] segments = dir.listFiles(
+            file -> file.getName()
+                .endsWith(".seg"));
+        assertEquals(1, segments.length);
+        return segments[0];
+    }
+
+    private PatternSegmentStore openStore() throws Exception {
+        return PatternSegmentStore.open(dir, PLAYER.toString());
+    }
+
+    private List<Integer> cachedIds() throws Exception {
+        return idsOf(cache);
+    }
+
+    private List<Integer> idsOf(PatternStorageCache target) throws Exception {
+        return target.access(dir, PLAYER, entry -> {
+            List<Integer> ids = new ArrayList<>();
+            for (PatternStorageCache.Record record : entry.records()) {
+                ids.add(record.tag.getInteger("Id"));
+            }
+            return ids;
+        });
+    }
+
+    private List<Integer> diskIds() throws Exception {
+        PatternSegmentStore store = openStore();
+        List<Integer> ids = new ArrayList<>();
+        for (NBTTagCompound record : store.readSlots(store.liveSlots())) {
+            ids.add(record.getInteger("Id"));
+        }
+        return ids;
+    }
+
+    private static List<NBTTagCompound> records(int count) {
+        List<NBTTagCompound> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            NBTTagCompound tag = new NBTTagCompound();
+            tag.setInteger("Id", i);
+            records.add(tag);
+        }
+        return records;
+    }
+}
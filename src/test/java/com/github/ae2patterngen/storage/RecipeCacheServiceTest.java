@@ -20,6 +20,7 @@ import org.junit.Test;
 import com.github.ae2patterngen.filter.CompositeFilter;
 import com.github.ae2patterngen.filter.IRecipeFilter;
 import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.util.CancellationToken;
 
 public class RecipeCacheServiceTest {
 
@@ -82,6 +83,35 @@ public class RecipeCacheServiceTest {
         assertEquals(0, storage.saveRecipeMapCalls);
     }
 
+    @Test
+    public void rebuildAfterModUpdateRewritesOnlyMapsWhoseFingerprintChanged() {
+        collector.availableMapIds = Arrays.asList("gt.recipe.assembler", "gt.recipe.mixer", "gt.recipe.furnace");
+        collector.fingerprints.put("gt.recipe.assembler", "2:aa");
+        collector.fingerprints.put("gt.recipe.mixer", "2:bb");
+        inspector.modVersions.put("gregtech", "5.0.0");
+        RecipeCacheService.rebuildNow(null);
+        assertEquals("2:aa", storage.metadata.recipeMaps.get("gt.recipe.assembler").sourceFingerprint);
+        assertEquals("", storage.metadata.recipeMaps.get("gt.recipe.furnace").sourceFingerprint);
+        storage.saveRecipeMapCalls = 0;
+        collector.collectCalls = 0;
+
+        inspector.modVersions.put("gregtech", "5.0.1");
+        collector.fingerprints.put("gt.recipe.mixer", "3:cc");
+        CacheStatistics stats = RecipeCacheService.rebuildNow(null);
+
+        // furnace has no fingerprint and is rewritten; assembler's fingerprint is unchanged, so its file is kept
+        assertEquals(2, stats.rewrittenMaps);
+        assertEquals(1, stats.skippedMaps);
+        assertEquals(2, collector.collectCalls);
+        assertEquals(2, storage.saveRecipeMapCalls);
+        assertEquals("3:cc", storage.metadata.recipeMaps.get("gt.recipe.mixer").sourceFingerprint);
+        assertEquals("2:aa", storage.metadata.recipeMaps.get("gt.recipe.assembler").sourceFingerprint);
+        assertEquals(
+            Arrays.asList("gt.recipe.assembler", "gt.recipe.furnace", "gt.recipe.mixer"),
+            new ArrayList<String>(storage.metadata.recipeMaps.keySet()));
+        assertTrue(RecipeCacheService.validateCache());
+    }
+
     @Test
     public void validateCacheSucceedsAfterRebuildWithFullModSnapshot() {
         collector.availableMapIds = Collections.singletonList("gt.recipe.assembler");
@@ -147,6 +177,187 @@ public class RecipeCacheServiceTest {
         assertEquals(120, result.recipes.get(0).duration);
     }
 
+    @Test
+    public void cancelledQueryReturnsAbortedResultAndIsNotCached() {
+        RecipeCacheMetadata metadata = new RecipeCacheMetadata();
+        metadata.updateRecipeMapInfo("gt.recipe.assembler", "gregtech", 2, "hash-a", "gt.recipe.assembler.dat");
+        metadata.updateModInfo("gregtech", "5.0.0", 1, 2);
+        storage.metadata = metadata;
+        storage.persistedRecipeMaps.put("gt.recipe.assembler", Arrays.asList(sampleRecipe(20), sampleRecipe(120)));
+        collector.matches.put("assembler", Collections.singletonList("gt.recipe.assembler"));
+        inspector.modVersions.put("gregtech", "5.0.0");
+        CancellationToken token = CancellationToken.create();
+        token.cancel();
+
+        CacheQueryResult aborted = RecipeCacheService
+            .loadAndFilterRecipes("assembler", "fingerprint", CompositeFilter::new, token);
+
+        assertEquals(CacheQueryResult.Status.CANCELLED, aborted.status);
+        assertTrue(aborted.isAborted());
+        assertTrue(aborted.recipes.isEmpty());
+
+        CacheQueryResult retried = RecipeCacheService
+            .loadAndFilterRecipes("assembler", "fingerprint", CompositeFilter::new);
+        assertEquals(CacheQueryResult.Status.OK, retried.status);
+        assertEquals(CacheQueryResult.SOURCE_DISK, retried.cacheSource);
+        assertEquals(2, retried.totalFilteredCount);
+    }
+
+    @Test
+    public void identicalQueryFingerprintReusesResultUntilContentVersionChanges() {
+        RecipeCacheMetadata metadata = new RecipeCacheMetadata();
+        metadata.updateRecipeMapInfo("gt.recipe.assembler", "gregtech", 2, "hash-a", "gt.recipe.assembler.dat");
+        metadata.updateModInfo("gregtech", "5.0.0", 1, 2);
+        storage.metadata = metadata;
+        storage.metadataStamp = "stamp-1";
+        storage.persistedRecipeMaps.put("gt.recipe.assembler", Arrays.asList(sampleRecipe(20), sampleRecipe(120)));
+        collector.matches.put("assembler", Collections.singletonList("gt.recipe.assembler"));
+        inspector.modVersions.put("gregtech", "5.0.0");
+        final int[] filterBuilds = new int[1];
+
+        CacheQueryResult preview = RecipeCacheService.loadAndFilterRecipes("assembler", "fingerprint", () -> {
+            filterBuilds[0]++;
+            return new CompositeFilter();
+        });
+        CacheQueryResult generate = RecipeCacheService.loadAndFilterRecipes("assembler", "fingerprint", () -> {
+            filterBuilds[0]++;
+            return new CompositeFilter();
+        });
+
+        assertEquals(1, filterBuilds[0]);
+        assertEquals(CacheQueryResult.SOURCE_DISK, preview.cacheSource);
+        assertEquals(CacheQueryResult.SOURCE_QUERY_CACHE, generate.cacheSource);
+        assertEquals(preview.recipes, generate.recipes);
+
+        storage.metadataStamp = "stamp-2";
+        CacheQueryResult afterChange = RecipeCacheService.loadAndFilterRecipes("assembler", "fingerprint", () -> {
+            filterBuilds[0]++;
+            return new CompositeFilter();
+        });
+
+        assertEquals(2, filterBuilds[0]);
+        assertEquals(CacheQueryResult.SOURCE_DISK, afterChange.cacheSource);
+    }
+
+    @Test
+    public void unreadableMapIsNotCachedAsEmpty() {
+        RecipeCacheMetadata metadata = new RecipeCacheMetadata();
+        metadata.updateRecipeMapInfo("gt.recipe.assembler", "gregtech", 2, "hash-a", "gt.recipe.assembler.dat");
+        metadata.updateModInfo("gregtech", "5.0.0", 1, 2);
+        storage.metadata = metadata;
+        storage.metadataStamp = "stamp-1";
+        // Metadata lists 2 recipes but the file reads back empty (a failed read)
+        storage.persistedRecipeMaps.put("gt.recipe.assembler", Collections.<RecipeEntry>emptyList());
+        collector.matches.put("assembler", Collections.singletonList("gt.recipe.assembler"));
+        inspector.modVersions.put("gregtech", "5.0.0");
+
+        CacheQueryResult failed = RecipeCacheService
+            .loadAndFilterRecipes("assembler", "fingerprint", () -> new CompositeFilter());
+
+        assertEquals(CacheQueryResult.Status.OK, failed.status);
+        assertEquals(0, failed.totalFilteredCount);
+        assertEquals(
+            Collections.singletonList(RecipeCacheService.WARNING_MAP_READ_FAILED + "gt.recipe.assembler"),
+            failed.warnings);
+
+        storage.persistedRecipeMaps.put("gt.recipe.assembler", Arrays.asList(sampleRecipe(20), sampleRecipe(120)));
+        CacheQueryResult retried = RecipeCacheService
+            .loadAndFilterRecipes("assembler", "fingerprint", () -> new CompositeFilter());
+
+        assertEquals(CacheQueryResult.SOURCE_DISK, retried.cacheSource);
+        assertEquals(2, retried.totalFilteredCount);
+        assertTrue(retried.warnings.isEmpty());
+    }
+
+    @Test
+    public void repeatedQueriesReuseDecodedMapUntilContentHashChanges() {
+        RecipeCacheMetadata metadata = new RecipeCacheMetadata();
+        metadata.updateRecipeMapInfo("gt.recipe.assembler", "gregtech", 2, "hash-a", "gt.recipe.assembler.dat");
+        metadata.updateModInfo("gregtech", "5.0.0", 1, 2);
+        storage.metadata = metadata;
+        storage.persistedRecipeMaps.put("gt.recipe.assembler", Arrays.asList(sampleRecipe(20), sampleRecipe(120)));
+        collector.matches.put("assembler", Collections.singletonList("gt.recipe.assembler"));
+        inspector.modVersions.put("gregtech", "5.0.0");
+
+        RecipeCacheService.loadAndFilterRecipes("assembler", new CompositeFilter());
+        RecipeCacheService.loadAndFilterRecipes("assembler", new CompositeFilter());
+        assertEquals(1, storage.loadRecipeMapCalls);
+
+        metadata.recipeMaps.get("gt.recipe.assembler").contentHash = "hash-b";
+        CacheQueryResult result = RecipeCacheService.loadAndFilterRecipes("assembler", new CompositeFilter());
+
+        assertEquals(2, storage.loadRecipeMapCalls);
+        assertEquals(2, result.totalFilteredCount);
+        CacheStatistics stats = RecipeCacheService.getStatistics();
+        assertEquals(1L, stats.memoryCacheHits);
+        assertEquals(2L, stats.memoryCacheMisses);
+        assertEquals(1, stats.memoryCachedMaps);
+    }
+
+    @Test
+    public void validationVerdictIsReusedUntilStampOrGenerationChanges() {
+        collector.availableMapIds = Collections.singletonList("gt.recipe.assembler");
+        inspector.modVersions.put("gregtech", "5.0.0");
+        RecipeCacheService.rebuildNow(null);
+        storage.metadataStamp = "stamp-1";
+        storage.loadMetadataCalls = 0;
+
+        assertTrue(RecipeCacheService.validateCache());
+        assertTrue(RecipeCacheService.validateCache());
+        assertEquals(1, storage.loadMetadataCalls);
+
+        storage.metadataStamp = "stamp-2";
+        assertTrue(RecipeCacheService.validateCache());
+        assertEquals(2, storage.loadMetadataCalls);
+
+        inspector.modVersions.put("gregtech", "5.0.1");
+        assertFalse(RecipeCacheService.validateCache());
+        inspector.modVersions.put("gregtech", "5.0.0");
+
+        RecipeCacheService.clearCache();
+        assertFalse(RecipeCacheService.validateCache());
+    }
+
+    @Test
+    public void parallelRebuildSnapshotsOnMainThreadAndMergesInMapOrder() {
+        collector.availableMapIds = Arrays
+            .asList("gt.recipe.e", "gt.recipe.b", "gt.recipe.d", "gt.recipe.a", "gt.recipe.c", "gt.recipe.f");
+        inspector.modVersions.put("gregtech", "5.0.0");
+        final int[] mainThreadCalls = new int[1];
+        RecipeCacheService.setMainThreadExecutor(new RecipeCacheService.MainThreadExecutor() {
+
+            @Override
+            public <T> T call(java.util.concurrent.Callable<T> task) throws Exception {
+                mainThreadCalls[0]++;
+                return task.call();
+            }
+        });
+        final List<Integer> progress = Collections.synchronizedList(new ArrayList<Integer>());
+        RecipeCacheService.ProgressNotifier notifier = new RecipeCacheService.ProgressNotifier() {
+
+            @Override
+            public void onProgress(String message, int current, int total) {
+                progress.add(current);
+            }
+
+            @Override
+            public void onComplete(CacheStatistics statistics) {}
+
+            @Override
+            public void onError(String message) {}
+        };
+
+        CacheStatistics stats = RecipeCacheService.rebuildNow(notifier);
+
+        assertEquals(12, stats.totalRecipeCount);
+        assertTrue(mainThreadCalls[0] >= 1);
+        assertEquals(6, collector.collectCalls);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), progress);
+        assertEquals(
+            Arrays.asList("gt.recipe.a", "gt.recipe.b", "gt.recipe.c", "gt.recipe.d", "gt.recipe.e", "gt.recipe.f"),
+            new ArrayList<String>(storage.metadata.recipeMaps.keySet()));
+    }
+
     private static RecipeEntry sampleRecipe(int duration) {
         return new RecipeEntry("gt", "gt.recipe.assembler", "Assembler", null, null, null, null, null, duration, 30);
     }
@@ -157,13 +368,16 @@ public class RecipeCacheServiceTest {
         private RecipeCacheMetadata metadata;
         private final Map<String, List<RecipeEntry>> persistedRecipeMaps = new LinkedHashMap<String, List<RecipeEntry>>();
         private int saveRecipeMapCalls;
+        private int loadRecipeMapCalls;
+        private int loadMetadataCalls;
+        private String metadataStamp;
 
         private FakeStorageBackend(File cacheDirectory) {
             this.cacheDirectory = cacheDirectory;
         }
 
         @Override
-        public boolean saveRecipeMap(String mapId, List<RecipeEntry> recipes, RecipeCacheMetadata.RecipeMapInfo info) {
+        public synchronized boolean saveRecipeMap(String mapId, List<RecipeEntry> recipes, RecipeCacheMetadata.RecipeMapInfo info) {
             saveRecipeMapCalls++;
             persistedRecipeMaps.put(mapId, new ArrayList<RecipeEntry>(recipes));
             return true;
@@ -171,6 +385,7 @@ public class RecipeCacheServiceTest {
 
         @Override
         public List<RecipeEntry> loadRecipeMap(String mapId) {
+            loadRecipeMapCalls++;
             List<RecipeEntry> recipes = persistedRecipeMaps.get(mapId);
             return recipes != null ? new ArrayList<RecipeEntry>(recipes) : new ArrayList<RecipeEntry>();
         }
@@ -183,6 +398,7 @@ public class RecipeCacheServiceTest {
 
         @Override
         public RecipeCacheMetadata loadMetadata() {
+            loadMetadataCalls++;
             return metadata;
         }
 
@@ -204,15 +420,21 @@ public class RecipeCacheServiceTest {
         }
 
         @Override
-        public boolean recipeMapExists(String mapId) {
+        public synchronized boolean recipeMapExists(String mapId) {
             return persistedRecipeMaps.containsKey(mapId);
         }
+
+        @Override
+        public String getMetadataStamp() {
+            return metadataStamp;
+        }
     }
 
     private static final class FakeRecipeCollector implements RecipeCacheService.RecipeCollector {
 
         private List<String> availableMapIds = new ArrayList<String>();
         private Map<String, List<String>> matches = new LinkedHashMap<String, List<String>>();
+        private final Map<String, String> fingerprints = new LinkedHashMap<String, String>();
         private int collectCalls;
 
         @Override
@@ -231,6 +453,11 @@ public class RecipeCacheServiceTest {
             collectCalls++;
             return Arrays.asList(sampleRecipe(20), sampleRecipe(40));
         }
+
+        @Override
+        public String fingerprintRecipeMap(String mapId) {
+            return fingerprints.get(mapId);
+        }
     }
 
     private static final class FakeEnvironmentInspector implements RecipeCacheService.EnvironmentInspector {
@@ -4,18 +4,18 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
-import static org.junit.Assert.fail;
 
 import java.io.File;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.io.FileOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
 
@@ -25,10 +25,12 @@ import org.junit.Test;
 
 import com.github.ae2patterngen.config.ForgeConfig;
 import com.github.ae2patterngen.filter.BlacklistFilter;
+import com.github.ae2patterngen.filter.IRecipeFilter;
 import com.github.ae2patterngen.filter.NCItemFilter;
 import com.github.ae2patterngen.filter.OutputOreDictFilter;
 import com.github.ae2patterngen.filter.TierFilter;
 import com.github.ae2patterngen.recipe.RecipeEntry;
+import com.github.ae2patterngen.recipe.RecipeRecordView;
 
 public class RecipeCacheStorageTest {
 
@@ -50,6 +52,7 @@ public class RecipeCacheStorageTest {
     @After
     public void tearDown() {
         RecipeCacheStorage.resetDirectoryResolver();
+        RecipeCacheStorage.resetItemResolver();
     }
 
     @Test
@@ -148,15 +151,118 @@ public class RecipeCacheStorageTest {
     }
 
     @Test
-    public void writeItemStacksPreservesZeroCountForNcInputs() {
-        ItemStack normalInput = new ItemStack(createTestItem("Normal Input"), 2, 0);
-        ItemStack zeroUseInput = new ItemStack(createTestItem("Zero Use Input"), 1, 0);
+    public void encodedItemStacksPreserveZeroCountForNcInputs() {
+        final Item inputItem = createTestItem("Zero Use Input");
+        useFixedItemResolver(inputItem);
+        ItemStack normalInput = new ItemStack(inputItem, 2, 0);
+        ItemStack zeroUseInput = new ItemStack(inputItem, 1, 3);
         zeroUseInput.stackSize = 0;
-        NBTTagList written = invokeWriteItemStacks(new ItemStack[] { normalInput, zeroUseInput });
+        String mapId = "gt.recipe.zero.count";
 
-        assertEquals(2, written.tagCount());
-        NBTTagCompound zeroUseTag = written.getCompoundTagAt(1);
-        assertEquals(0, zeroUseTag.getInteger("StackSize"));
+        assertTrue(
+            RecipeCacheStorage.saveRecipeMap(
+                mapId,
+                Collections.singletonList(recipeWithInputs(mapId, normalInput, zeroUseInput))));
+
+        List<RecipeEntry> loaded = RecipeCacheStorage.loadRecipeMap(mapId);
+        assertEquals(1, loaded.size());
+        assertEquals(2, loaded.get(0).inputs.length);
+        assertEquals(2, loaded.get(0).inputs[0].stackSize);
+        assertEquals(0, loaded.get(0).inputs[1].stackSize);
+        assertEquals(3, loaded.get(0).inputs[1].getItemDamage());
+        assertEquals(inputItem, loaded.get(0).inputs[1].getItem());
+    }
+
+    @Test
+    public void sharedNbtTagsRoundTripAsIndependentCopies() {
+        Item inputItem = createTestItem("Tagged Input");
+        useFixedItemResolver(inputItem);
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setString("Circuit", "basic");
+        ItemStack first = new ItemStack(inputItem, 1, 0);
+        first.setTagCompound((NBTTagCompound) tag.copy());
+        ItemStack second = new ItemStack(inputItem, 4, 1);
+        second.setTagCompound((NBTTagCompound) tag.copy());
+        String mapId = "gt.recipe.tagged";
+
+        assertTrue(
+            RecipeCacheStorage
+                .saveRecipeMap(mapId, Collections.singletonList(recipeWithInputs(mapId, first, second))));
+
+        List<RecipeEntry> loaded = RecipeCacheStorage.loadRecipeMap(mapId);
+        ItemStack[] inputs = loaded.get(0).inputs;
+        assertEquals(2, inputs.length);
+        assertEquals(tag, inputs[0].getTagCompound());
+        assertEquals(tag, inputs[1].getTagCompound());
+        assertTrue(inputs[0].getTagCompound() != inputs[1].getTagCompound());
+    }
+
+    @Test
+    public void scanRecipeMapOnlyMaterializesRecordsPassingRawPrecheck() {
+        Item inputItem = createTestItem("Scan Input");
+        useFixedItemResolver(inputItem);
+        String mapId = "gt.recipe.scan";
+        List<RecipeEntry> recipes = new ArrayList<RecipeEntry>();
+        for (int eu : new int[] { 30, 120, 512, 30 }) {
+            recipes.add(
+                new RecipeEntry(
+                    "gt",
+                    mapId,
+                    "Assembler",
+                    new ItemStack[] { new ItemStack(inputItem, 1, eu) },
+                    new ItemStack[0],
+                    new net.minecraftforge.fluids.FluidStack[0],
+                    new net.minecraftforge.fluids.FluidStack[0],
+                    new ItemStack[0],
+                    100,
+                    eu));
+        }
+        assertTrue(RecipeCacheStorage.saveRecipeMap(mapId, recipes));
+
+        final int[] fullMatches = new int[1];
+        IRecipeFilter lvOnly = new IRecipeFilter() {
+
+            @Override
+            public boolean mayMatch(RecipeRecordView record) {
+                return record.getEuPerTick() <= 32 && record.getItemMeta(RecipeRecordView.Slot.INPUT, 0) == 30;
+            }
+
+            @Override
+            public boolean matches(RecipeEntry recipe) {
+                fullMatches[0]++;
+                return true;
+            }
+
+            @Override
+            public String getDescription() {
+                return "lv";
+            }
+        };
+
+        List<RecipeEntry> matched = new ArrayList<RecipeEntry>();
+        assertEquals(4, RecipeCacheStorage.scanRecipeMap(mapId, lvOnly, matched));
+        assertEquals(2, matched.size());
+        assertEquals(2, fullMatches[0]);
+        assertEquals(30, matched.get(1).euPerTick);
+    }
+
+    @Test
+    public void legacyNbtRecipeMapFilesAreTreatedAsStale() throws Exception {
+        String mapId = "gt.recipe.legacy";
+        File file = RecipeCacheStorage.getRecipeMapFile(mapId);
+        assertTrue(
+            file.getParentFile()
+                .mkdirs());
+        NBTTagCompound root = new NBTTagCompound();
+        root.setInteger("Version", 1);
+        root.setTag("Recipes", new NBTTagList());
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            CompressedStreamTools.writeCompressed(root, fos);
+        }
+
+        assertTrue(
+            RecipeCacheStorage.loadRecipeMap(mapId)
+                .isEmpty());
     }
 
     @Test
@@ -210,6 +316,30 @@ public class RecipeCacheStorageTest {
             30);
     }
 
+    private static RecipeEntry recipeWithInputs(String mapId, ItemStack... inputs) {
+        return new RecipeEntry(
+            "gt",
+            mapId,
+            "Assembler",
+            inputs,
+            new ItemStack[0],
+            new net.minecraftforge.fluids.FluidStack[0],
+            new net.minecraftforge.fluids.FluidStack[0],
+            new ItemStack[0],
+            120,
+            30);
+    }
+
+    private static void useFixedItemResolver(final Item item) {
+        RecipeCacheStorage.setItemResolver(new RecipeCacheCodec.ItemResolver() {
+
+            @Override
+            public Item resolve(String registryName, int legacyItemId) {
+                return item;
+            }
+        });
+    }
+
     private static Item createTestItem(String displayName) {
         return new NamedTestItem(displayName);
     }
@@ -252,20 +382,4 @@ public class RecipeCacheStorageTest {
                 .invoke(null);
         } catch (Exception ignored) {}
     }
-
-    private static NBTTagList invokeWriteItemStacks(ItemStack[] stacks) {
-        try {
-            Method method = RecipeCacheStorage.class.getDeclaredMethod("writeItemStacks", ItemStack[].class);
-            method.setAccessible(true);
-            return (NBTTagList) method.invoke(null, new Object[] { stacks });
-        } catch (NoSuchMethodException e) {
-            fail("Expected private writeItemStacks helper to exist");
-        } catch (IllegalAccessException e) {
-            fail("Unable to access writeItemStacks helper: " + e.getMessage());
-        } catch (InvocationTargetException e) {
-            Throwable cause = e.getCause() != null ? e.getCause() : e;
-            fail("writeItemStacks helper threw unexpectedly: " + cause.getMessage());
-        }
-        return new NBTTagList();
-    }
 }
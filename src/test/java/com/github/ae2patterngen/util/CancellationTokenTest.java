@@ -0,0 +1,57 @@
+package com.github.ae2patterngen.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class CancellationTokenTest {
+
+    @Test
+    public void deadlineExpiresAfterTimeout() {
+        AtomicLong now = new AtomicLong(1_000L);
+        CancellationToken token = CancellationToken.withTimeout(5L, now::get);
+
+        now.addAndGet(4_999_999L);
+        assertNull(token.getReason());
+
+        now.incrementAndGet();
+        assertEquals(CancellationToken.Reason.DEADLINE_EXCEEDED, token.getReason());
+        try {
+            token.throwIfCancelled();
+            fail("expected cancellation");
+        } catch (CancellationToken.CancelledException e) {
+            assertEquals(CancellationToken.Reason.DEADLINE_EXCEEDED, e.reason);
+        }
+    }
+
+    @Test
+    public void explicitCancelWinsOverLaterDeadline() {
+        AtomicLong now = new AtomicLong(0L);
+        CancellationToken token = CancellationToken.withTimeout(1L, now::get);
+
+        token.cancel();
+        now.set(10_000_000L);
+
+        assertEquals(CancellationToken.Reason.CANCELLED, token.getReason());
+    }
+
+    @Test
+    public void noneAndZeroTimeoutNeverExpire() {
+        CancellationToken.NONE.cancel();
+        assertFalse(CancellationToken.NONE.isCancelled());
+
+        AtomicLong now = new AtomicLong(0L);
+        CancellationToken token = CancellationToken.withTimeout(0L, now::get);
+        now.set(Long.MAX_VALUE);
+        assertFalse(token.isCancelled());
+
+        token.cancel();
+        assertTrue(token.isCancelled());
+    }
+}